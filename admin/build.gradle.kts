@@ -28,6 +28,7 @@ dependencies {
     implementation(libs.aeron)
     implementation(libs.slf4j)
     implementation(libs.logback)
+    implementation(libs.hdrHistogram)
     implementation(libs.picocli)
     implementation(libs.jline)
     implementation(libs.picoJline)
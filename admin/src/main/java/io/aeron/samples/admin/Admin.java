@@ -18,6 +18,7 @@ package io.aeron.samples.admin;
 
 import io.aeron.samples.admin.cli.CliCommands;
 import io.aeron.samples.admin.cluster.ClusterInteractionAgent;
+import io.aeron.samples.admin.util.AgentIdleMode;
 import io.aeron.samples.admin.util.EnvironmentUtil;
 import io.aeron.samples.cluster.admin.protocol.ConnectClusterEncoder;
 import io.aeron.samples.cluster.admin.protocol.MessageHeaderEncoder;
@@ -26,7 +27,6 @@ import org.agrona.CloseHelper;
 import org.agrona.ExpandableArrayBuffer;
 import org.agrona.concurrent.AgentRunner;
 import org.agrona.concurrent.IdleStrategy;
-import org.agrona.concurrent.SleepingMillisIdleStrategy;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
 import org.jline.builtins.ConfigurationPath;
@@ -55,7 +55,9 @@ import java.util.function.Supplier;
 import static io.aeron.samples.admin.util.EnvironmentUtil.getThisHostName;
 import static io.aeron.samples.admin.util.EnvironmentUtil.tryGetClusterHostsFromEnv;
 import static io.aeron.samples.admin.util.EnvironmentUtil.tryGetDumbTerminalFromEnv;
+import static io.aeron.samples.admin.util.EnvironmentUtil.tryGetIdleModeFromEnv;
 import static io.aeron.samples.admin.util.EnvironmentUtil.tryGetResponsePortFromEnv;
+import static io.aeron.samples.admin.util.EnvironmentUtil.tryGetThreadingModeFromEnv;
 import static org.agrona.concurrent.ringbuffer.RingBufferDescriptor.TRAILER_LENGTH;
 
 /**
@@ -73,13 +75,14 @@ public class Admin
         //start the agent used for cluster interaction
         final String prompt = "admin > ";
         final AtomicBoolean running = new AtomicBoolean(true);
-        final IdleStrategy idleStrategy = new SleepingMillisIdleStrategy();
+        final AgentIdleMode idleMode = tryGetIdleModeFromEnv();
+        final IdleStrategy idleStrategy = idleMode.newIdleStrategy();
         final UnsafeBuffer adminClusterBuffer =
             new UnsafeBuffer(BufferUtil.allocateDirectAligned(8192 + TRAILER_LENGTH, 8));
         final OneToOneRingBuffer adminClusterChannel = new OneToOneRingBuffer(adminClusterBuffer);
 
         final ClusterInteractionAgent clusterInteractionAgent = new ClusterInteractionAgent(adminClusterChannel,
-            idleStrategy, running);
+            idleStrategy, idleMode, tryGetThreadingModeFromEnv(), running);
         final AgentRunner clusterInteractionAgentRunner = new AgentRunner(idleStrategy, Throwable::printStackTrace,
             null, clusterInteractionAgent);
         AgentRunner.startOnThread(clusterInteractionAgentRunner);
@@ -36,7 +36,7 @@ import java.io.PrintWriter;
     subcommands = {
         AddParticipant.class, PicocliCommands.ClearScreen.class, CommandLine.HelpCommand.class,
         ConnectCluster.class, DisconnectCluster.class, AddAuction.class, AddAuctionBid.class,
-        ListAuctions.class, ListParticipants.class})
+        ListAuctions.class, ListParticipants.class, ShowLatency.class})
 public class CliCommands implements Runnable
 {
     PrintWriter out;
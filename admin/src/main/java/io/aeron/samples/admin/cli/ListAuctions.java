@@ -30,6 +30,11 @@ public class ListAuctions implements Runnable
 {
     @CommandLine.ParentCommand
     CliCommands parent;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "page-size", description = "Auctions to fetch per request")
+    private Integer pageSize = 100;
+
     private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
     private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder(); //cluster protocol header
     private final ListAuctionsEncoder listAuctionsCommandEncoder = new ListAuctionsEncoder();
@@ -39,6 +44,7 @@ public class ListAuctions implements Runnable
     public void run()
     {
         listAuctionsCommandEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        listAuctionsCommandEncoder.pageSize(pageSize);
         parent.offerRingBufferMessage(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
             listAuctionsCommandEncoder.encodedLength());
     }
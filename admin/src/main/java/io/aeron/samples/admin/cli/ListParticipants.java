@@ -30,6 +30,11 @@ public class ListParticipants implements Runnable
 {
     @CommandLine.ParentCommand
     CliCommands parent;
+
+    @SuppressWarnings("all")
+    @CommandLine.Option(names = "page-size", description = "Participants to fetch per request")
+    private Integer pageSize = 100;
+
     private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer(1024);
     private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder(); //cluster protocol header
     private final ListParticipantsEncoder listCommandEncoder = new ListParticipantsEncoder();
@@ -39,6 +44,7 @@ public class ListParticipants implements Runnable
     public void run()
     {
         listCommandEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        listCommandEncoder.pageSize(pageSize);
         parent.offerRingBufferMessage(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
             listCommandEncoder.encodedLength());
     }
@@ -21,11 +21,13 @@ import io.aeron.cluster.codecs.EventCode;
 import io.aeron.logbuffer.Header;
 import io.aeron.samples.cluster.protocol.*;
 import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.jline.reader.LineReader;
 import org.jline.utils.AttributedStyle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.function.LongConsumer;
 
 /**
  * Admin client egress listener
@@ -42,16 +44,54 @@ public class AdminClientEgressListener implements EgressListener
     private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
     private final AddParticipantCommandResultDecoder addParticipantDecoder = new AddParticipantCommandResultDecoder();
     private final ParticipantListDecoder participantListDecoder = new ParticipantListDecoder();
+    private final CreateAuctionCommandResultDecoder createAuctionResultDecoder =
+        new CreateAuctionCommandResultDecoder();
+    private final AddAuctionBidCommandResultDecoder addAuctionBidResultDecoder =
+        new AddAuctionBidCommandResultDecoder();
+    private final NewAuctionEventDecoder newAuctionEventDecoder = new NewAuctionEventDecoder();
+    private final AuctionUpdateEventDecoder auctionUpdateEventDecoder = new AuctionUpdateEventDecoder();
+    private final AuctionListDecoder auctionListDecoder = new AuctionListDecoder();
+    private final ParticipantPageDecoder participantPageDecoder = new ParticipantPageDecoder();
+    private final AuctionPageDecoder auctionPageDecoder = new AuctionPageDecoder();
+    private final CommandBatchResultDecoder commandBatchResultDecoder = new CommandBatchResultDecoder();
+    private final UnsafeBuffer resultBuffer = new UnsafeBuffer();
     private final PendingMessageManager pendingMessageManager;
+    private final LongConsumer participantPageRequester;
+    private final LongConsumer auctionPageRequester;
     private LineReader lineReader;
+    private int listedParticipantCount;
+    private int listedAuctionCount;
 
     /**
      * Constructor
      * @param pendingMessageManager the manager for pending messages
+     * @param participantPageRequester requests the page of participants after the given participant id
+     * @param auctionPageRequester requests the page of auctions after the given auction id
      */
-    public AdminClientEgressListener(final PendingMessageManager pendingMessageManager)
+    public AdminClientEgressListener(
+        final PendingMessageManager pendingMessageManager,
+        final LongConsumer participantPageRequester,
+        final LongConsumer auctionPageRequester)
     {
         this.pendingMessageManager = pendingMessageManager;
+        this.participantPageRequester = participantPageRequester;
+        this.auctionPageRequester = auctionPageRequester;
+    }
+
+    /**
+     * Resets the running count of participants listed, ahead of requesting the first page of a new listing
+     */
+    public void beginParticipantListing()
+    {
+        listedParticipantCount = 0;
+    }
+
+    /**
+     * Resets the running count of auctions listed, ahead of requesting the first page of a new listing
+     */
+    public void beginAuctionListing()
+    {
+        listedAuctionCount = 0;
     }
 
     @Override
@@ -75,17 +115,47 @@ public class AdminClientEgressListener implements EgressListener
             case AddParticipantCommandResultDecoder.TEMPLATE_ID ->
             {
                 addParticipantDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
-                final String correlationId = addParticipantDecoder.correlationId();
+                pendingMessageManager.markMessageAsReceived(addParticipantDecoder.correlationId());
                 final long addedId = addParticipantDecoder.participantId();
                 log("Participant added with id " + addedId, AttributedStyle.GREEN);
-                pendingMessageManager.markMessageAsReceived(correlationId);
             }
             case ParticipantListDecoder.TEMPLATE_ID -> displayParticipants(buffer, offset);
+            case ParticipantPageDecoder.TEMPLATE_ID -> displayParticipantPage(buffer, offset);
+            case CreateAuctionCommandResultDecoder.TEMPLATE_ID -> displayCreateAuctionResult(buffer, offset);
+            case AddAuctionBidCommandResultDecoder.TEMPLATE_ID -> displayAddAuctionBidResult(buffer, offset);
+            case NewAuctionEventDecoder.TEMPLATE_ID -> displayNewAuction(buffer, offset);
+            case AuctionUpdateEventDecoder.TEMPLATE_ID -> displayAuctionUpdate(buffer, offset);
+            case AuctionListDecoder.TEMPLATE_ID -> displayAuctions(buffer, offset);
+            case AuctionPageDecoder.TEMPLATE_ID -> displayAuctionPage(buffer, offset);
+            case CommandBatchResultDecoder.TEMPLATE_ID ->
+                onCommandBatchResult(clusterSessionId, timestamp, buffer, offset, header);
 
             default -> log("unknown message type: " + messageHeaderDecoder.templateId(), AttributedStyle.RED);
         }
     }
 
+    /**
+     * Handles each of the replies in a batched reply, in order, as if received on its own
+     * @param clusterSessionId the cluster session id
+     * @param timestamp the cluster timestamp of the reply
+     * @param buffer the buffer containing the batched reply
+     * @param offset the offset of the batched reply
+     * @param header the header of the batched reply
+     */
+    private void onCommandBatchResult(
+        final long clusterSessionId,
+        final long timestamp,
+        final DirectBuffer buffer,
+        final int offset,
+        final Header header)
+    {
+        commandBatchResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        for (final CommandBatchResultDecoder.ResultsDecoder results : commandBatchResultDecoder.results())
+        {
+            results.wrapResult(resultBuffer);
+            onMessage(clusterSessionId, timestamp, resultBuffer, 0, resultBuffer.capacity(), header);
+        }
+    }
 
     private void displayParticipants(final DirectBuffer buffer, final int offset)
     {
@@ -111,6 +181,157 @@ public class AdminClientEgressListener implements EgressListener
         }
     }
 
+    private void displayParticipantPage(final DirectBuffer buffer, final int offset)
+    {
+        participantPageDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(participantPageDecoder.correlationId());
+        final long nextStartAfterId = participantPageDecoder.nextStartAfterId();
+        final ParticipantPageDecoder.ParticipantsDecoder participants = participantPageDecoder.participants();
+        while (participants.hasNext())
+        {
+            participants.next();
+            final long participantId = participants.participantId();
+            final String name = participants.name();
+            log("Participant: id " + participantId + " name: '" + name + "'", AttributedStyle.YELLOW);
+            listedParticipantCount++;
+        }
+
+        if (ParticipantPageDecoder.nextStartAfterIdNullValue() != nextStartAfterId)
+        {
+            participantPageRequester.accept(nextStartAfterId);
+        }
+        else if (0 == listedParticipantCount)
+        {
+            log("No participants exist in the cluster.", AttributedStyle.YELLOW);
+        }
+        else
+        {
+            log("Participant count: " + listedParticipantCount, AttributedStyle.YELLOW);
+        }
+    }
+
+    private void displayCreateAuctionResult(final DirectBuffer buffer, final int offset)
+    {
+        createAuctionResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(createAuctionResultDecoder.correlationId());
+        final AddAuctionResult result = createAuctionResultDecoder.result();
+        if (result == AddAuctionResult.SUCCESS)
+        {
+            log("Auction added with id: " + createAuctionResultDecoder.auctionId(), AttributedStyle.GREEN);
+        }
+        else
+        {
+            log("Add auction rejected with reason: " + result.name(), AttributedStyle.RED);
+        }
+    }
+
+    private void displayAddAuctionBidResult(final DirectBuffer buffer, final int offset)
+    {
+        addAuctionBidResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(addAuctionBidResultDecoder.correlationId());
+        final AddAuctionBidResult result = addAuctionBidResultDecoder.result();
+        final long auctionId = addAuctionBidResultDecoder.auctionId();
+        if (result == AddAuctionBidResult.SUCCESS)
+        {
+            log("Bid added to auction " + auctionId, AttributedStyle.GREEN);
+        }
+        else
+        {
+            log("Bid on auction " + auctionId + " rejected with reason: " + result.name(), AttributedStyle.RED);
+        }
+    }
+
+    private void displayNewAuction(final DirectBuffer buffer, final int offset)
+    {
+        newAuctionEventDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        final long auctionId = newAuctionEventDecoder.auctionId();
+        log("New auction: '" + newAuctionEventDecoder.name() + "' (" + auctionId + ")", AttributedStyle.YELLOW);
+    }
+
+    private void displayAuctionUpdate(final DirectBuffer buffer, final int offset)
+    {
+        auctionUpdateEventDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        final long auctionId = auctionUpdateEventDecoder.auctionId();
+        final AuctionStatus status = auctionUpdateEventDecoder.status();
+        final int bidCount = auctionUpdateEventDecoder.bidCount();
+        if (0 == bidCount)
+        {
+            log("Auction " + auctionId + " is now in state " + status.name() + ". There have been 0 bids.",
+                AttributedStyle.YELLOW);
+        }
+        else
+        {
+            log("Auction " + auctionId + " is now in state " + status.name() + ". There have been " + bidCount +
+                " bids. Current price: " + auctionUpdateEventDecoder.currentPrice() + " held by participant " +
+                auctionUpdateEventDecoder.winningParticipantId(), AttributedStyle.YELLOW);
+        }
+    }
+
+    private void displayAuctions(final DirectBuffer buffer, final int offset)
+    {
+        auctionListDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(auctionListDecoder.correlationId());
+        final AuctionListDecoder.AuctionsDecoder auctions = auctionListDecoder.auctions();
+        final int count = auctions.count();
+        if (0 == count)
+        {
+            log("No auctions exist in the cluster.", AttributedStyle.YELLOW);
+        }
+        else
+        {
+            log("Auction count: " + count, AttributedStyle.YELLOW);
+            while (auctions.hasNext())
+            {
+                auctions.next();
+                logAuction(auctions.auctionId(), auctions.createdByParticipantId(), auctions.status(),
+                    auctions.bidCount(), auctions.currentPrice(), auctions.winningParticipantId(), auctions.name());
+            }
+        }
+    }
+
+    private void displayAuctionPage(final DirectBuffer buffer, final int offset)
+    {
+        auctionPageDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        pendingMessageManager.markMessageAsReceived(auctionPageDecoder.correlationId());
+        final long nextStartAfterId = auctionPageDecoder.nextStartAfterId();
+        final AuctionPageDecoder.AuctionsDecoder auctions = auctionPageDecoder.auctions();
+        while (auctions.hasNext())
+        {
+            auctions.next();
+            logAuction(auctions.auctionId(), auctions.createdByParticipantId(), auctions.status(),
+                auctions.bidCount(), auctions.currentPrice(), auctions.winningParticipantId(), auctions.name());
+            listedAuctionCount++;
+        }
+
+        if (AuctionPageDecoder.nextStartAfterIdNullValue() != nextStartAfterId)
+        {
+            auctionPageRequester.accept(nextStartAfterId);
+        }
+        else if (0 == listedAuctionCount)
+        {
+            log("No auctions exist in the cluster.", AttributedStyle.YELLOW);
+        }
+        else
+        {
+            log("Auction count: " + listedAuctionCount, AttributedStyle.YELLOW);
+        }
+    }
+
+    private void logAuction(
+        final long auctionId,
+        final long createdBy,
+        final AuctionStatus status,
+        final int bidCount,
+        final long currentPrice,
+        final long winningParticipantId,
+        final String name)
+    {
+        log("Auction: id " + auctionId + " name: '" + name + "' created by: " + createdBy + " status: " +
+            status.name() + " bids: " + bidCount +
+            (0 == bidCount ? "" : " current price: " + currentPrice + " held by: " + winningParticipantId),
+            AttributedStyle.YELLOW);
+    }
+
     @Override
     public void onSessionEvent(
         final long correlationId,
@@ -20,6 +20,7 @@ import io.aeron.Publication;
 import io.aeron.cluster.client.AeronCluster;
 import io.aeron.driver.MediaDriver;
 import io.aeron.driver.ThreadingMode;
+import io.aeron.samples.admin.util.AgentIdleMode;
 import io.aeron.samples.cluster.ClusterConfig;
 import io.aeron.samples.cluster.admin.protocol.AddAuctionBidDecoder;
 import io.aeron.samples.cluster.admin.protocol.AddAuctionDecoder;
@@ -29,10 +30,15 @@ import io.aeron.samples.cluster.admin.protocol.DisconnectClusterDecoder;
 import io.aeron.samples.cluster.admin.protocol.ListAuctionsDecoder;
 import io.aeron.samples.cluster.admin.protocol.ListParticipantsDecoder;
 import io.aeron.samples.cluster.admin.protocol.MessageHeaderDecoder;
+import io.aeron.samples.cluster.admin.protocol.ShowLatencyDecoder;
 
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
 import io.aeron.samples.cluster.protocol.AddParticipantCommandEncoder;
-
-import io.aeron.samples.cluster.protocol.ListParticipantsCommandEncoder;
+import io.aeron.samples.cluster.protocol.CommandBatchEncoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandEncoder;
+import io.aeron.samples.cluster.protocol.GroupSizeEncodingEncoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsPageCommandEncoder;
+import io.aeron.samples.cluster.protocol.ListParticipantsPageCommandEncoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
 import org.agrona.DirectBuffer;
 import org.agrona.ExpandableDirectByteBuffer;
@@ -41,65 +47,110 @@ import org.agrona.concurrent.Agent;
 import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.MessageHandler;
 import org.agrona.concurrent.SystemEpochClock;
+import org.agrona.concurrent.SystemNanoClock;
 import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
 import org.jline.reader.LineReader;
 import org.jline.utils.AttributedStyle;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Agent to interact with the cluster
+ * Agent to interact with the cluster.
+ * <p>
+ * The commands drained from the REPL in a duty cycle are coalesced into a single CommandBatch, so that they are offered
+ * to the cluster, and appended to the log, as one message. A duty cycle with a single command offers it as-is.
  */
 public class ClusterInteractionAgent implements Agent, MessageHandler
 {
     private static final long HEARTBEAT_INTERVAL = 250;
     private static final long RETRY_COUNT = 10;
     private static final String INGRESS_CHANNEL = "aeron:udp?term-length=64k";
+    /**
+     * Batches are bounded to fit the max message length of the 64k ingress term length
+     */
+    private static final int MAX_BATCH_LENGTH = 8 * 1024 - AeronCluster.SESSION_HEADER_LENGTH;
+    private static final int MAX_COMMANDS_PER_BATCH = CommandBatchEncoder.CommandsEncoder.countMaxValue();
+    private static final int BATCH_GROUP_HEADER_OFFSET =
+        MessageHeaderEncoder.ENCODED_LENGTH + CommandBatchEncoder.BLOCK_LENGTH;
+    private static final int BATCH_HEADER_LENGTH =
+        BATCH_GROUP_HEADER_OFFSET + CommandBatchEncoder.CommandsEncoder.sbeHeaderSize();
+    private static final int BATCH_ENTRY_HEADER_LENGTH = CommandBatchEncoder.CommandsEncoder.sbeBlockLength() +
+        CommandBatchEncoder.CommandsEncoder.commandHeaderLength();
     private final MutableDirectBuffer sendBuffer = new ExpandableDirectByteBuffer(1024);
+    private final MutableDirectBuffer batchBuffer = new ExpandableDirectByteBuffer(MAX_BATCH_LENGTH);
+    private int batchCount;
+    private int batchLength;
     private long lastHeartbeatTime = Long.MIN_VALUE;
     private final OneToOneRingBuffer adminClusterComms;
     private final IdleStrategy idleStrategy;
+    private final AgentIdleMode idleMode;
+    private final ThreadingMode threadingMode;
     private final AtomicBoolean runningFlag;
     private final PendingMessageManager pendingMessageManager;
+    private long lastCorrelationId;
     private AdminClientEgressListener adminClientEgressListener;
     private AeronCluster aeronCluster;
     private ConnectionState connectionState = ConnectionState.NOT_CONNECTED;
     private LineReader lineReader;
     private MediaDriver mediaDriver;
+    private int participantPageSize;
+    private int auctionPageSize;
 
     private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
     private final ConnectClusterDecoder connectClusterDecoder = new ConnectClusterDecoder();
     private final AddAuctionDecoder addAuctionDecoder = new AddAuctionDecoder();
     private final AddParticipantDecoder addParticipantDecoder = new AddParticipantDecoder();
     private final AddAuctionBidDecoder addAuctionBidDecoder = new AddAuctionBidDecoder();
+    private final ListParticipantsDecoder listParticipantsDecoder = new ListParticipantsDecoder();
+    private final ListAuctionsDecoder listAuctionsDecoder = new ListAuctionsDecoder();
 
     private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
     private final AddParticipantCommandEncoder addParticipantCommandEncoder = new AddParticipantCommandEncoder();
-    private final ListParticipantsCommandEncoder listParticipantsCommandEncoder = new ListParticipantsCommandEncoder();
+    private final ListParticipantsPageCommandEncoder listParticipantsPageCommandEncoder =
+        new ListParticipantsPageCommandEncoder();
+    private final CreateAuctionCommandEncoder createAuctionCommandEncoder = new CreateAuctionCommandEncoder();
+    private final AddAuctionBidCommandEncoder addAuctionBidCommandEncoder = new AddAuctionBidCommandEncoder();
+    private final ListAuctionsPageCommandEncoder listAuctionsPageCommandEncoder =
+        new ListAuctionsPageCommandEncoder();
+    private final CommandBatchEncoder commandBatchEncoder = new CommandBatchEncoder();
+    private final GroupSizeEncodingEncoder groupSizeEncoder = new GroupSizeEncodingEncoder();
+    private CommandBatchEncoder.CommandsEncoder batchCommands;
 
     /**
      * Creates a new agent to interact with the cluster
      * @param adminClusterChannel the channel to send messages to the cluster from the REPL
      * @param idleStrategy the idle strategy to use
+     * @param idleMode the idle mode of the agent, also applied to the agents of the embedded media driver
+     * @param threadingMode the threading mode of the embedded media driver
      * @param runningFlag the flag to indicate if the REPL is still running
      */
     public ClusterInteractionAgent(
         final OneToOneRingBuffer adminClusterChannel,
         final IdleStrategy idleStrategy,
+        final AgentIdleMode idleMode,
+        final ThreadingMode threadingMode,
         final AtomicBoolean runningFlag)
     {
         this.adminClusterComms = adminClusterChannel;
         this.idleStrategy = idleStrategy;
+        this.idleMode = idleMode;
+        this.threadingMode = threadingMode;
         this.runningFlag = runningFlag;
-        this.pendingMessageManager = new PendingMessageManager(SystemEpochClock.INSTANCE);
+        this.pendingMessageManager = new PendingMessageManager(SystemNanoClock.INSTANCE);
     }
 
+    /**
+     * Duty cycle of the agent. Reports the work done, being messages read from the REPL, egress fragments polled and
+     * messages timed out, so that the agent only idles when there is nothing to do.
+     * @return the amount of work done
+     */
     @Override
     public int doWork()
     {
+        int workCount = 0;
+
         //send cluster heartbeat roughly every 250ms
         final long now = SystemEpochClock.INSTANCE.time();
         if (now >= (lastHeartbeatTime + HEARTBEAT_INTERVAL))
@@ -112,19 +163,21 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         }
 
         //poll inbound to this agent messages (from the REPL)
-        adminClusterComms.read(this);
+        workCount += adminClusterComms.read(this);
 
         //poll outbound messages from the cluster
         if (null != aeronCluster && !aeronCluster.isClosed())
         {
-            aeronCluster.pollEgress();
+            workCount += aeronCluster.pollEgress();
         }
 
+        //send the commands batched from the REPL and egress in this duty cycle
+        offerCommandBatch();
+
         //check for timed-out messages
-        pendingMessageManager.doWork();
+        workCount += pendingMessageManager.doWork();
 
-        //always sleep
-        return 0;
+        return workCount;
     }
 
     @Override
@@ -144,8 +197,9 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
             case AddAuctionDecoder.TEMPLATE_ID -> processAddAuction(messageHeaderDecoder, buffer, offset);
             case AddParticipantDecoder.TEMPLATE_ID -> processAddParticipant(messageHeaderDecoder, buffer, offset);
             case AddAuctionBidDecoder.TEMPLATE_ID -> processAddAuctionBid(messageHeaderDecoder, buffer, offset);
-            case ListAuctionsDecoder.TEMPLATE_ID -> processListAuctions();
-            case ListParticipantsDecoder.TEMPLATE_ID -> processListParticipants();
+            case ListAuctionsDecoder.TEMPLATE_ID -> processListAuctions(buffer, offset);
+            case ListParticipantsDecoder.TEMPLATE_ID -> processListParticipants(buffer, offset);
+            case ShowLatencyDecoder.TEMPLATE_ID -> pendingMessageManager.logLatencies();
             default -> log("Unknown message type: " + messageHeaderDecoder.templateId(), AttributedStyle.RED);
         }
     }
@@ -158,6 +212,7 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
      */
     private void processConnectCluster(final MutableDirectBuffer buffer, final int offset)
     {
+        offerCommandBatch();
         connectClusterDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
         connectCluster(connectClusterDecoder.baseport(), connectClusterDecoder.port(),
             connectClusterDecoder.clusterHosts(), connectClusterDecoder.localhostName());
@@ -169,6 +224,7 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
      */
     private void processDisconnectCluster()
     {
+        offerCommandBatch();
         log("Disconnecting from cluster", AttributedStyle.WHITE);
         disconnectCluster();
         connectionState = ConnectionState.NOT_CONNECTED;
@@ -186,8 +242,20 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         final MutableDirectBuffer buffer,
         final int offset)
     {
-        System.out.println("\nprocessAddAuction Your service has been disconnected due to non payment of dues.");
-
+        final long correlationId = ++lastCorrelationId;
+        addAuctionDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        createAuctionCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+
+        pendingMessageManager.addMessage(correlationId, PendingMessageType.ADD_AUCTION);
+        createAuctionCommandEncoder.correlationId(correlationId);
+        createAuctionCommandEncoder.createdByParticipantId(addAuctionDecoder.createdByParticipantId());
+        createAuctionCommandEncoder.startTime(addAuctionDecoder.startTime());
+        createAuctionCommandEncoder.endTime(addAuctionDecoder.endTime());
+        createAuctionCommandEncoder.name(addAuctionDecoder.name());
+        createAuctionCommandEncoder.description(addAuctionDecoder.description());
+
+        batchCommand(MessageHeaderEncoder.ENCODED_LENGTH +
+            createAuctionCommandEncoder.encodedLength());
     }
 
     /**
@@ -201,16 +269,16 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         final MutableDirectBuffer buffer,
         final int offset)
     {
-        final String correlationId = UUID.randomUUID().toString();
+        final long correlationId = ++lastCorrelationId;
         addParticipantDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
         addParticipantCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
 
-        pendingMessageManager.addMessage(correlationId, "add-participant");
+        pendingMessageManager.addMessage(correlationId, PendingMessageType.ADD_PARTICIPANT);
         addParticipantCommandEncoder.participantId(addParticipantDecoder.participantId());
         addParticipantCommandEncoder.correlationId(correlationId);
         addParticipantCommandEncoder.name(addParticipantDecoder.name());
 
-        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+        batchCommand(MessageHeaderEncoder.ENCODED_LENGTH +
             addParticipantCommandEncoder.encodedLength());
     }
 
@@ -225,20 +293,84 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         final MutableDirectBuffer buffer,
         final int offset)
     {
-        System.out.println("\nprocessAddAuctionBid , Your service has been disconnected due to non payment of dues.");
+        final long correlationId = ++lastCorrelationId;
+        addAuctionBidDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        addAuctionBidCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+
+        pendingMessageManager.addMessage(correlationId, PendingMessageType.ADD_BID);
+        addAuctionBidCommandEncoder.correlationId(correlationId);
+        addAuctionBidCommandEncoder.auctionId(addAuctionBidDecoder.auctionId());
+        addAuctionBidCommandEncoder.addedByParticipantId(addAuctionBidDecoder.addedByParticipantId());
+        addAuctionBidCommandEncoder.price(addAuctionBidDecoder.price());
+
+        batchCommand(MessageHeaderEncoder.ENCODED_LENGTH +
+            addAuctionBidCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Marshals the CLI protocol to cluster protocol for Listing all auctions. Auctions are requested a page at a
+     * time, with the egress listener requesting each following page as the previous one arrives.
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
+     */
+    private void processListAuctions(final MutableDirectBuffer buffer, final int offset)
+    {
+        listAuctionsDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        auctionPageSize = listAuctionsDecoder.pageSize();
+        if (null != adminClientEgressListener)
+        {
+            adminClientEgressListener.beginAuctionListing();
+        }
+        requestAuctionPage(ListAuctionsPageCommandEncoder.startAfterIdNullValue());
+    }
+
+    /**
+     * Requests a page of auctions from the cluster
+     * @param startAfterId the auction id to start the page after, or the null value to start from the first
+     */
+    private void requestAuctionPage(final long startAfterId)
+    {
+        final long correlationId = ++lastCorrelationId;
+        listAuctionsPageCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+        listAuctionsPageCommandEncoder.correlationId(correlationId);
+        listAuctionsPageCommandEncoder.startAfterId(startAfterId);
+        listAuctionsPageCommandEncoder.pageSize(auctionPageSize);
+        pendingMessageManager.addMessage(correlationId, PendingMessageType.LIST_AUCTIONS);
+        batchCommand(MessageHeaderEncoder.ENCODED_LENGTH +
+            listAuctionsPageCommandEncoder.encodedLength());
+    }
+
+    /**
+     * Marshals the CLI protocol to cluster protocol for Listing all participants. Participants are requested a page
+     * at a time, with the egress listener requesting each following page as the previous one arrives.
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message
+     */
+    private void processListParticipants(final MutableDirectBuffer buffer, final int offset)
+    {
+        listParticipantsDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+        participantPageSize = listParticipantsDecoder.pageSize();
+        if (null != adminClientEgressListener)
+        {
+            adminClientEgressListener.beginParticipantListing();
+        }
+        requestParticipantPage(ListParticipantsPageCommandEncoder.startAfterIdNullValue());
     }
 
     /**
-     * Marshals the CLI protocol to cluster protocol for Listing all participants
+     * Requests a page of participants from the cluster
+     * @param startAfterId the participant id to start the page after, or the null value to start from the first
      */
-    private void processListParticipants()
+    private void requestParticipantPage(final long startAfterId)
     {
-        final String correlationId = UUID.randomUUID().toString();
-        listParticipantsCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
-        listParticipantsCommandEncoder.correlationId(correlationId);
-        pendingMessageManager.addMessage(correlationId, "list-participants");
-        retryingClusterOffer(sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
-            listParticipantsCommandEncoder.encodedLength());
+        final long correlationId = ++lastCorrelationId;
+        listParticipantsPageCommandEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder);
+        listParticipantsPageCommandEncoder.correlationId(correlationId);
+        listParticipantsPageCommandEncoder.startAfterId(startAfterId);
+        listParticipantsPageCommandEncoder.pageSize(participantPageSize);
+        pendingMessageManager.addMessage(correlationId, PendingMessageType.LIST_PARTICIPANTS);
+        batchCommand(MessageHeaderEncoder.ENCODED_LENGTH +
+            listParticipantsPageCommandEncoder.encodedLength());
     }
 
     /**
@@ -275,13 +407,16 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         final String ingressEndpoints = ClusterConfig.ingressEndpoints(
             hostnames, basePort, ClusterConfig.CLIENT_FACING_PORT_OFFSET);
         final String egressChannel = "aeron:udp?endpoint=" + localHostName + ":" + port;
-        adminClientEgressListener = new AdminClientEgressListener(pendingMessageManager);
+        adminClientEgressListener = new AdminClientEgressListener(
+            pendingMessageManager, this::requestParticipantPage, this::requestAuctionPage);
         adminClientEgressListener.setLineReader(lineReader);
-        mediaDriver = MediaDriver.launch(new MediaDriver.Context()
-            .threadingMode(ThreadingMode.SHARED)
+        final MediaDriver.Context mediaDriverContext = new MediaDriver.Context()
+            .threadingMode(threadingMode)
             .dirDeleteOnStart(true)
             .errorHandler(this::logError)
-            .dirDeleteOnShutdown(true));
+            .dirDeleteOnShutdown(true);
+        idleMode.applyTo(mediaDriverContext);
+        mediaDriver = MediaDriver.launch(mediaDriverContext);
         aeronCluster = AeronCluster.connect(
             new AeronCluster.Context()
                 .egressListener(adminClientEgressListener)
@@ -321,6 +456,61 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         LineReaderHelper.log(lineReader, message, color);
     }
 
+    /**
+     * Adds the command encoded at the start of the send buffer to the batch for this duty cycle, first offering the
+     * batch if the command does not fit within it
+     *
+     * @param length length of the command
+     */
+    private void batchCommand(final int length)
+    {
+        final int entryLength = BATCH_ENTRY_HEADER_LENGTH + length;
+        if (batchCount > 0 && (batchCount == MAX_COMMANDS_PER_BATCH || batchLength + entryLength > MAX_BATCH_LENGTH))
+        {
+            offerCommandBatch();
+        }
+
+        if (BATCH_HEADER_LENGTH + entryLength > MAX_BATCH_LENGTH)
+        {
+            retryingClusterOffer(sendBuffer, 0, length);
+            return;
+        }
+
+        if (0 == batchCount)
+        {
+            batchCommands = commandBatchEncoder.wrapAndApplyHeader(batchBuffer, 0, messageHeaderEncoder)
+                .commandsCount(MAX_COMMANDS_PER_BATCH);
+            batchLength = BATCH_HEADER_LENGTH;
+        }
+
+        batchCommands.next().putCommand(sendBuffer, 0, length);
+        batchCount++;
+        batchLength += entryLength;
+    }
+
+    /**
+     * Offers the commands batched so far to the cluster, as a CommandBatch, or on its own for a single command
+     */
+    private void offerCommandBatch()
+    {
+        if (0 == batchCount)
+        {
+            return;
+        }
+
+        if (1 == batchCount)
+        {
+            final int commandOffset = BATCH_HEADER_LENGTH + BATCH_ENTRY_HEADER_LENGTH;
+            retryingClusterOffer(batchBuffer, commandOffset, batchLength - commandOffset);
+        }
+        else
+        {
+            groupSizeEncoder.wrap(batchBuffer, BATCH_GROUP_HEADER_OFFSET).numInGroup(batchCount);
+            retryingClusterOffer(batchBuffer, 0, batchLength);
+        }
+        batchCount = 0;
+    }
+
     /**
      * sends to cluster with retry as needed, up to the limit
      *
@@ -379,11 +569,6 @@ public class ClusterInteractionAgent implements Agent, MessageHandler
         }
         runningFlag.set(false);
     }
-
-    private void processListAuctions()
-    {
-        System.out.println("\nprocessAddAuctionBid , Your service has been disconnected due to non payment of dues.");
-    }
 }
 
 
@@ -14,86 +14,193 @@
  * limitations under the License.
  */
 
+
 package io.aeron.samples.admin.cluster;
 
-import org.agrona.concurrent.EpochClock;
+import org.HdrHistogram.Histogram;
+import org.agrona.collections.Long2LongHashMap;
+import org.agrona.concurrent.NanoClock;
 import org.jline.reader.LineReader;
 import org.jline.utils.AttributedStyle;
 
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Responsible for keeping track of pending messages and their timeouts
+ * Responsible for keeping track of pending messages and their timeouts.
+ * <p>
+ * Pending messages are held in preallocated arrays, found by correlation id through a primitive map, and linked into
+ * the spoke of a hashed timer wheel for the tick of their deadline. Marking a message as received and adding one are
+ * constant time, and each duty cycle times out every message that is due in the spokes passed since the last one.
+ * The arrays are sized for {@value #INITIAL_CAPACITY} pending messages, and are only grown beyond that, so tracking
+ * messages does not allocate in steady state.
+ * <p>
+ * The round trip latency of each message type is recorded in an HdrHistogram, up to the timeout.
  */
 public class PendingMessageManager
 {
-    private static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(5);
-    private final Deque<PendingMessage> trackedMessages = new LinkedList<>();
-    private final EpochClock current;
+    private static final long TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
+    private static final int INITIAL_CAPACITY = 128 * 1024;
+    private static final int NULL_SLOT = -1;
+    /**
+     * Ticks of 2^24ns, about 16.8ms
+     */
+    private static final int TICK_SHIFT = 24;
+    /**
+     * The wheel spans about 8.6s, more than the timeout, so a spoke only holds messages due in the current rotation
+     */
+    private static final int TICKS_PER_WHEEL = 512;
+    private static final int TICK_MASK = TICKS_PER_WHEEL - 1;
+    private static final int TYPE_COUNT = PendingMessageType.values().length;
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final NanoClock clock;
+    private final Long2LongHashMap slotByCorrelationId =
+        new Long2LongHashMap((int)(INITIAL_CAPACITY / 0.65f), 0.65f, NULL_SLOT);
+    private final int[] spokeHeads = new int[TICKS_PER_WHEEL];
+    private long[] correlationIds = new long[INITIAL_CAPACITY];
+    private long[] sentAtNs = new long[INITIAL_CAPACITY];
+    private long[] deadlineNs = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] nextSlots = new int[INITIAL_CAPACITY];
+    private int[] previousSlots = new int[INITIAL_CAPACITY];
+    private int freeSlot;
+    private long pollTick;
+
+    private final Histogram[] latencyHistograms = new Histogram[TYPE_COUNT];
+    private final long[] maxLatencyNs = new long[TYPE_COUNT];
+    private final long[] receivedCounts = new long[TYPE_COUNT];
+    private final long[] timedOutCounts = new long[TYPE_COUNT];
+    private final long[] pendingCounts = new long[TYPE_COUNT];
     private LineReader lineReader;
 
     /**
      * Constructor
-     * @param current the clock to use for timeouts
+     * @param clock the clock to use for timeouts and latencies
      */
-    public PendingMessageManager(final EpochClock current)
+    public PendingMessageManager(final NanoClock clock)
     {
-        this.current = current;
+        this.clock = clock;
+        Arrays.fill(spokeHeads, NULL_SLOT);
+        linkFreeSlots(0, INITIAL_CAPACITY);
+        pollTick = clock.nanoTime() >> TICK_SHIFT;
+        for (int type = 0; type < TYPE_COUNT; type++)
+        {
+            latencyHistograms[type] = new Histogram(TIMEOUT_NS, SIGNIFICANT_DIGITS);
+        }
     }
 
     /**
-     * Add a message to the list of pending messages
+     * Add a message to the pending messages
      * @param correlationId the correlation id of the message
      * @param messageType  the type of message
      */
-    public void addMessage(final String correlationId, final String messageType)
+    public void addMessage(final long correlationId, final PendingMessageType messageType)
     {
-        final long timeoutAt = current.time() + TIMEOUT_MS;
-        trackedMessages.add(new PendingMessage(timeoutAt, correlationId, messageType));
+        if (NULL_SLOT == freeSlot)
+        {
+            grow();
+        }
+
+        final int slot = freeSlot;
+        freeSlot = nextSlots[slot];
+
+        final long nowNs = clock.nanoTime();
+        correlationIds[slot] = correlationId;
+        sentAtNs[slot] = nowNs;
+        deadlineNs[slot] = nowNs + TIMEOUT_NS;
+        types[slot] = (byte)messageType.ordinal();
+        pendingCounts[messageType.ordinal()]++;
+
+        final int spoke = (int)((nowNs + TIMEOUT_NS) >> TICK_SHIFT) & TICK_MASK;
+        final int head = spokeHeads[spoke];
+        previousSlots[slot] = NULL_SLOT;
+        nextSlots[slot] = head;
+        if (NULL_SLOT != head)
+        {
+            previousSlots[head] = slot;
+        }
+        spokeHeads[spoke] = slot;
+
+        slotByCorrelationId.put(correlationId, slot);
     }
 
     /**
-     * Mark a message as received
+     * Mark a message as received, recording its round trip latency. Messages which have already timed out, or were
+     * not sent by this admin, are ignored.
      * @param correlationId the correlation id of the message
      */
-    public void markMessageAsReceived(final String correlationId)
+    public void markMessageAsReceived(final long correlationId)
     {
-        trackedMessages.removeIf(pendingMessage -> pendingMessage.correlationId().equals(correlationId));
+        final int slot = (int)slotByCorrelationId.remove(correlationId);
+        if (NULL_SLOT == slot)
+        {
+            return;
+        }
+
+        final int type = types[slot];
+        final long latencyNs = clock.nanoTime() - sentAtNs[slot];
+        latencyHistograms[type].recordValue(Math.min(latencyNs, TIMEOUT_NS));
+        receivedCounts[type]++;
+        if (latencyNs > maxLatencyNs[type])
+        {
+            maxLatencyNs[type] = latencyNs;
+        }
+        release(slot);
     }
 
     /**
-     * Duty cycle in which the pending messages are checked for timeout; if a message is found to be timed out,
-     * only a single message per duty cycle is checked.
+     * Duty cycle in which every pending message due in the spokes of the wheel passed since the last duty cycle is
+     * timed out
+     * @return the number of messages timed out
      */
-    public void doWork()
+    public int doWork()
     {
-        final long currentTime = current.time();
-        if (null == trackedMessages.peek())
-        {
-            return;
-        }
+        final long nowNs = clock.nanoTime();
+        final long nowTick = nowNs >> TICK_SHIFT;
+        int timedOut = 0;
 
-        //not yet at timeout
-        if (currentTime < trackedMessages.peek().timeoutAt())
+        if (!slotByCorrelationId.isEmpty())
         {
-            return;
+            for (long tick = Math.max(pollTick, nowTick - TICK_MASK); tick <= nowTick; tick++)
+            {
+                timedOut += expireSpoke((int)tick & TICK_MASK, nowNs);
+            }
         }
 
-        final PendingMessage timedOut = trackedMessages.poll();
+        //the current tick is polled again, as messages due later in it have yet to time out
+        pollTick = nowTick;
+        return timedOut;
+    }
 
-        if (null == timedOut)
+    /**
+     * Logs the number of replies, timeouts and pending messages, along with the round trip latencies, per message type
+     */
+    public void logLatencies()
+    {
+        boolean logged = false;
+        for (int type = 0; type < TYPE_COUNT; type++)
         {
-            return;
+            final long count = receivedCounts[type];
+            if (0 == count && 0 == timedOutCounts[type] && 0 == pendingCounts[type])
+            {
+                continue;
+            }
+
+            final Histogram histogram = latencyHistograms[type];
+            final long maxNs = maxLatencyNs[type];
+            log(PendingMessageType.get(type).displayName() + ": replies " + count +
+                ", timed out " + timedOutCounts[type] + ", pending " + pendingCounts[type] +
+                ", latency us p50 " + micros(Math.min(histogram.getValueAtPercentile(50.0), maxNs)) +
+                " p90 " + micros(Math.min(histogram.getValueAtPercentile(90.0), maxNs)) +
+                " p99 " + micros(Math.min(histogram.getValueAtPercentile(99.0), maxNs)) +
+                " max " + micros(maxNs), AttributedStyle.YELLOW);
+            logged = true;
         }
 
-        //after timeout
-        if (currentTime >= timedOut.timeoutAt())
+        if (!logged)
         {
-            log("Message with correlation id " + timedOut.correlationId() + " and type " +
-                timedOut.messageType() + " timed out.", AttributedStyle.RED);
-            trackedMessages.remove(timedOut);
+            log("No messages have been sent to the cluster.", AttributedStyle.YELLOW);
         }
     }
 
@@ -106,6 +213,79 @@ public class PendingMessageManager
         this.lineReader = lineReader;
     }
 
+    private int expireSpoke(final int spoke, final long nowNs)
+    {
+        int timedOut = 0;
+        int slot = spokeHeads[spoke];
+        while (NULL_SLOT != slot)
+        {
+            final int nextSlot = nextSlots[slot];
+            if (deadlineNs[slot] <= nowNs)
+            {
+                final int type = types[slot];
+                timedOutCounts[type]++;
+                slotByCorrelationId.remove(correlationIds[slot]);
+                log("Message with correlation id " + correlationIds[slot] + " and type " +
+                    PendingMessageType.get(type).displayName() + " timed out.", AttributedStyle.RED);
+                release(slot);
+                timedOut++;
+            }
+            slot = nextSlot;
+        }
+        return timedOut;
+    }
+
+    private void release(final int slot)
+    {
+        final int previousSlot = previousSlots[slot];
+        final int nextSlot = nextSlots[slot];
+        if (NULL_SLOT == previousSlot)
+        {
+            spokeHeads[(int)(deadlineNs[slot] >> TICK_SHIFT) & TICK_MASK] = nextSlot;
+        }
+        else
+        {
+            nextSlots[previousSlot] = nextSlot;
+        }
+
+        if (NULL_SLOT != nextSlot)
+        {
+            previousSlots[nextSlot] = previousSlot;
+        }
+
+        pendingCounts[types[slot]]--;
+        nextSlots[slot] = freeSlot;
+        freeSlot = slot;
+    }
+
+    private void grow()
+    {
+        final int capacity = correlationIds.length;
+        final int newCapacity = capacity * 2;
+        correlationIds = Arrays.copyOf(correlationIds, newCapacity);
+        sentAtNs = Arrays.copyOf(sentAtNs, newCapacity);
+        deadlineNs = Arrays.copyOf(deadlineNs, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        nextSlots = Arrays.copyOf(nextSlots, newCapacity);
+        previousSlots = Arrays.copyOf(previousSlots, newCapacity);
+        linkFreeSlots(capacity, newCapacity);
+    }
+
+    private void linkFreeSlots(final int fromSlot, final int toSlot)
+    {
+        for (int slot = fromSlot; slot < toSlot - 1; slot++)
+        {
+            nextSlots[slot] = slot + 1;
+        }
+        nextSlots[toSlot - 1] = NULL_SLOT;
+        freeSlot = fromSlot;
+    }
+
+    private static long micros(final long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
     /**
      * Logs a message to the terminal if available or to the logger if not
      *
@@ -116,4 +296,4 @@ public class PendingMessageManager
     {
         LineReaderHelper.log(lineReader, message, color);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.admin.cluster;
+
+/**
+ * The types of message sent to the cluster which expect a reply, used to keep latency stats per message type
+ */
+public enum PendingMessageType
+{
+    /**
+     * Add an auction
+     */
+    ADD_AUCTION("add-auction"),
+    /**
+     * Add a participant
+     */
+    ADD_PARTICIPANT("add-participant"),
+    /**
+     * Add a bid to an auction
+     */
+    ADD_BID("add-bid"),
+    /**
+     * List all auctions
+     */
+    LIST_AUCTIONS("list-auctions"),
+    /**
+     * List a page of participants
+     */
+    LIST_PARTICIPANTS("list-participants");
+
+    private static final PendingMessageType[] VALUES = values();
+    private final String displayName;
+
+    PendingMessageType(final String displayName)
+    {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Gets the message type with the given ordinal, without allocating a copy of the values
+     * @param ordinal the ordinal of the message type
+     * @return the message type
+     */
+    public static PendingMessageType get(final int ordinal)
+    {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * The name of the message type as shown in the terminal
+     * @return the display name
+     */
+    public String displayName()
+    {
+        return displayName;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.admin.util;
+
+import io.aeron.driver.MediaDriver;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+import org.agrona.concurrent.YieldingIdleStrategy;
+
+/**
+ * How the cluster interaction agent, and the agents of its embedded media driver, idle when a duty cycle does no work
+ */
+public enum AgentIdleMode
+{
+    /**
+     * Sleeps for a millisecond, with the media driver left on its default idle strategies
+     */
+    SLEEP,
+    /**
+     * Spins, then yields, then parks with an exponential backoff
+     */
+    BACKOFF,
+    /**
+     * Yields the thread
+     */
+    YIELD,
+    /**
+     * Busy spins; every agent thread needs a core of its own
+     */
+    BUSY_SPIN;
+
+    /**
+     * Parses an idle mode, ignoring case and accepting '-' in place of '_', for example busy-spin
+     * @param value the name of the idle mode
+     * @return the idle mode
+     */
+    public static AgentIdleMode parse(final String value)
+    {
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+
+    /**
+     * Creates a new idle strategy for this mode
+     * @return the idle strategy
+     */
+    public IdleStrategy newIdleStrategy()
+    {
+        return switch (this)
+        {
+            case SLEEP -> new SleepingMillisIdleStrategy();
+            case BACKOFF -> new BackoffIdleStrategy();
+            case YIELD -> YieldingIdleStrategy.INSTANCE;
+            case BUSY_SPIN -> BusySpinIdleStrategy.INSTANCE;
+        };
+    }
+
+    /**
+     * Applies this mode to the agents of a media driver, other than {@link #SLEEP} which keeps the driver defaults
+     * @param context the media driver context
+     */
+    public void applyTo(final MediaDriver.Context context)
+    {
+        if (SLEEP != this)
+        {
+            context
+                .conductorIdleStrategy(newIdleStrategy())
+                .senderIdleStrategy(newIdleStrategy())
+                .receiverIdleStrategy(newIdleStrategy())
+                .sharedNetworkIdleStrategy(newIdleStrategy())
+                .sharedIdleStrategy(newIdleStrategy());
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package io.aeron.samples.admin.util;
 
+import io.aeron.driver.ThreadingMode;
+
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
@@ -87,6 +89,40 @@ public final class EnvironmentUtil
         return parseInt(responsePort);
     }
 
+    /**
+     * Tries to get the idle mode of the cluster interaction agent from the environment variable ADMIN_IDLE_STRATEGY.
+     * If that is not set, it will try to get it from the system property admin.idle.strategy. If that is not set, it
+     * will return {@link AgentIdleMode#SLEEP}.
+     *
+     * @return the idle mode, one of sleep, backoff, yield or busy-spin
+     */
+    public static AgentIdleMode tryGetIdleModeFromEnv()
+    {
+        String idleStrategy = System.getenv("ADMIN_IDLE_STRATEGY");
+        if (null == idleStrategy || idleStrategy.isEmpty())
+        {
+            idleStrategy = System.getProperty("admin.idle.strategy", "sleep");
+        }
+        return AgentIdleMode.parse(idleStrategy);
+    }
+
+    /**
+     * Tries to get the threading mode of the embedded media driver from the environment variable
+     * ADMIN_THREADING_MODE. If that is not set, it will try to get it from the system property admin.threading.mode.
+     * If that is not set, it will return {@link ThreadingMode#SHARED}.
+     *
+     * @return the threading mode, one of shared, shared-network or dedicated
+     */
+    public static ThreadingMode tryGetThreadingModeFromEnv()
+    {
+        String threadingMode = System.getenv("ADMIN_THREADING_MODE");
+        if (null == threadingMode || threadingMode.isEmpty())
+        {
+            threadingMode = System.getProperty("admin.threading.mode", "shared");
+        }
+        return ThreadingMode.valueOf(threadingMode.trim().toUpperCase().replace('-', '_'));
+    }
+
     /**
      * Reads DUMB_TERMINAL from the environment variable DUMB_TERMINAL. If that is not set, it will return false
      *
@@ -27,7 +27,11 @@ import java.util.List;
 import java.util.StringJoiner;
 import java.util.concurrent.TimeUnit;
 
+import org.agrona.concurrent.AgentRunner;
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.ShutdownSignalBarrier;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
 import org.agrona.concurrent.SystemEpochClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +39,7 @@ import org.slf4j.LoggerFactory;
 import io.aeron.ChannelUri;
 import io.aeron.CommonContext;
 import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
 import io.aeron.archive.ArchivingMediaDriver;
 import io.aeron.archive.client.AeronArchive;
 import io.aeron.cluster.ClusterBackup;
@@ -42,6 +47,7 @@ import io.aeron.cluster.ClusterBackupEventsListener;
 import io.aeron.cluster.ClusterMember;
 import io.aeron.cluster.RecordingLog;
 import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
 import io.aeron.samples.cluster.ClusterConfig;
 
 /**
@@ -51,6 +57,11 @@ public class ClusterBackupApp
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterBackupApp.class);
     private static final long CLUSTER_BACKUP_INTERVAL_NS = TimeUnit.MINUTES.toNanos(1);
+    private static final int LOW_FOOTPRINT_TERM_LENGTH = 64 * 1024;
+    private static final int LOW_FOOTPRINT_MTU_LENGTH = 1408;
+    private static final int LOW_FOOTPRINT_SEGMENT_FILE_LENGTH = 16 * 1024 * 1024;
+    private static final long LOW_FOOTPRINT_IDLE_SLEEP_MS = 1;
+    private static final long MONITOR_IDLE_SLEEP_MS = 100;
 
     /**
      * The main method.
@@ -66,36 +77,119 @@ public class ClusterBackupApp
         // addresses that the cluster will use to connect back to Cluster Backup.
         final String backupHost = getBackupHost();
 
+        // Trade replication speed for fewer threads and less memory.
+        final boolean lowFootprint = useLowFootprint();
+
+        // Carry on from the recording log and archive of an earlier run, rather than copying everything again.
+        final boolean resume = useResume();
+
         // Context for the local Media Driver
-        final MediaDriver.Context mediaDriverContext = mediaDriverContext();
+        final MediaDriver.Context mediaDriverContext = mediaDriverContext(lowFootprint);
         final String aeronDirectoryName = mediaDriverContext.aeronDirectoryName();
 
         // Context for the local Archive
-        final Archive.Context localArchiveContext = localArchiveContext(aeronDirectoryName, backupHost);
+        final Archive.Context localArchiveContext = localArchiveContext(
+            aeronDirectoryName, backupHost, lowFootprint, getReplicationBytesPerSecond());
+
+        // Publishes the bytes replicated and the lag behind the leader to counters.
+        final ReplicationMonitor replicationMonitor = new ReplicationMonitor(
+            aeronDirectoryName, clusterArchiveClientContext(), localArchiveContext);
 
         // Context for Cluster Backup application.
         final ClusterBackup.Context clusterBackupContext = clusterBackupContext(
             clusterConsensusEndpoints,
-            aeronDirectoryName, backupHost
+            aeronDirectoryName, backupHost, replicationMonitor
         );
+        if (lowFootprint)
+        {
+            clusterBackupContext.idleStrategySupplier(ClusterBackupApp::lowFootprintIdleStrategy);
+        }
+
+        // Restores the backup into an offline clustered service every interval, to show how long a restore would take.
+        final long restoreVerifyIntervalSeconds = getRestoreVerifyIntervalSeconds();
+        final RestoreVerifier restoreVerifier = 0 == restoreVerifyIntervalSeconds ? null : new RestoreVerifier(
+            aeronDirectoryName,
+            localArchiveClientContext(localArchiveContext),
+            new File(clusterBackupContext.clusterDirectoryName()),
+            TimeUnit.SECONDS.toMillis(restoreVerifyIntervalSeconds),
+            lowFootprint ? lowFootprintIdleStrategy() : new BackoffIdleStrategy());
 
         LOGGER.info("Cluster Directory: {} ", clusterBackupContext.clusterDirectoryName());
         LOGGER.info("Archive Directory: {} ", localArchiveContext.archiveDir());
 
+        LOGGER.info("Low footprint: {}", lowFootprint);
+        LOGGER.info("Resume: {}", resume);
+        LOGGER.info("Source type: {}", clusterBackupContext.sourceType());
+        LOGGER.info("Replication budget: {} bytes/s", getReplicationBytesPerSecond());
+        LOGGER.info("Restore verification interval: {}s", restoreVerifyIntervalSeconds);
         LOGGER.info("Connecting to cluster: {}", clusterConsensusEndpoints);
 
         try (
             ArchivingMediaDriver ignored = ArchivingMediaDriver.launch(mediaDriverContext, localArchiveContext);
-            ClusterBackup ignored1 = ClusterBackup.launch(clusterBackupContext))
+            AgentRunner monitorRunner = new AgentRunner(
+                new SleepingMillisIdleStrategy(MONITOR_IDLE_SLEEP_MS), Throwable::printStackTrace, null,
+                replicationMonitor))
         {
-            LOGGER.info("Started Cluster Backup...");
-            barrier.await();
-            LOGGER.info("Exiting");
+            AgentRunner.startOnThread(monitorRunner);
+            clusterBackupContext.deleteDirOnStart(!resume || !canResume(clusterBackupContext, localArchiveContext));
+
+            try (
+                ClusterBackup ignored1 = ClusterBackup.launch(clusterBackupContext);
+                AgentRunner verifierRunner = null == restoreVerifier ? null : new AgentRunner(
+                    new SleepingMillisIdleStrategy(MONITOR_IDLE_SLEEP_MS), Throwable::printStackTrace, null,
+                    restoreVerifier))
+            {
+                if (null != verifierRunner)
+                {
+                    AgentRunner.startOnThread(verifierRunner);
+                }
+                LOGGER.info("Started Cluster Backup...");
+                barrier.await();
+                LOGGER.info("Exiting");
+            }
         }
     }
 
+    /**
+     * Validates the recording log from an earlier run against the local archive. If the backup cannot resume, the
+     * recordings the recording log refers to are purged, as the cluster directory is about to be deleted.
+     *
+     * @param clusterBackupContext context for the cluster backup.
+     * @param localArchiveContext  context for the local archive, which must be running.
+     * @return true if the cluster backup can resume from its existing cluster directory.
+     */
+    private static boolean canResume(
+        final ClusterBackup.Context clusterBackupContext, final Archive.Context localArchiveContext)
+    {
+        final File clusterDir = new File(clusterBackupContext.clusterDirectoryName());
+        try (AeronArchive archive = AeronArchive.connect(localArchiveClientContext(localArchiveContext)))
+        {
+            final RecordingLogValidator validator = new RecordingLogValidator(archive);
+            if (validator.validate(clusterDir))
+            {
+                return true;
+            }
+
+            LOGGER.info("Starting a new backup in {}", clusterDir);
+            validator.purgeRecordings(clusterDir);
+            return false;
+        }
+    }
+
+    private static AeronArchive.Context localArchiveClientContext(final Archive.Context localArchiveContext)
+    {
+        return new AeronArchive.Context()
+            .controlRequestChannel(localArchiveContext.localControlChannel())
+            .controlRequestStreamId(localArchiveContext.localControlStreamId())
+            .controlResponseChannel(localArchiveContext.localControlChannel())
+            .aeronDirectoryName(localArchiveContext.aeronDirectoryName());
+    }
+
     private static ClusterBackup.Context clusterBackupContext(
-        final String clusterConsensusEndpoints, final String aeronDirectoryName, final String backupHost)
+        final String clusterConsensusEndpoints,
+        final String aeronDirectoryName,
+        final String backupHost,
+        final ReplicationMonitor replicationMonitor)
     {
         final ClusterBackup.Context clusterBackupContext = new ClusterBackup.Context();
 
@@ -115,13 +209,12 @@ public class ClusterBackupApp
             .catchupEndpoint(catchupEndpoint)
             .clusterConsensusEndpoints(clusterConsensusEndpoints)
             .consensusChannel(localConsensusChannelUri)
-            .eventsListener(new LoggingBackupListener())
+            .eventsListener(new LoggingBackupListener(replicationMonitor))
             .aeronDirectoryName(aeronDirectoryName)
             .clusterArchiveContext(clusterArchiveClientContext)
             .clusterDirectoryName("backup/cluster")
-            .sourceType(ClusterBackup.SourceType.LEADER) // What kind of node(s) to connect to.
-            .clusterBackupIntervalNs(CLUSTER_BACKUP_INTERVAL_NS) // How frequently to check for snapshots.
-            .deleteDirOnStart(true);
+            .sourceType(getSourceType()) // What kind of node(s) to connect to.
+            .clusterBackupIntervalNs(CLUSTER_BACKUP_INTERVAL_NS); // How frequently to check for snapshots.
 
         return clusterBackupContext;
     }
@@ -141,18 +234,70 @@ public class ClusterBackupApp
             .controlResponseChannel("aeron:udp?endpoint=" + getBackupHost() + ":0");
     }
 
-    private static Archive.Context localArchiveContext(final String aeronDirectoryName, final String backupHost)
+    private static Archive.Context localArchiveContext(
+        final String aeronDirectoryName,
+        final String backupHost,
+        final boolean lowFootprint,
+        final long replicationBytesPerSecond)
     {
-        return new Archive.Context()
+        final Archive.Context archiveContext = new Archive.Context()
             .archiveDir(new File("backup/archive"))
             .controlChannel("aeron:udp?endpoint=" + backupHost + ":0")
             .replicationChannel("aeron:udp?endpoint=localhost:0")
             .aeronDirectoryName(aeronDirectoryName);
+
+        if (lowFootprint)
+        {
+            // A single archive thread, which also invokes the media driver's agents. Recordings still use segments of
+            // at least the term length of the recorded stream.
+            archiveContext
+                .threadingMode(ArchiveThreadingMode.SHARED)
+                .idleStrategySupplier(ClusterBackupApp::lowFootprintIdleStrategy)
+                .segmentFileLength(LOW_FOOTPRINT_SEGMENT_FILE_LENGTH);
+        }
+
+        if (0 != replicationBytesPerSecond)
+        {
+            // Holding replication to the budget sleeps the recorder, which must not stall the thread that runs the
+            // archive conductor and, in low footprint mode, the media driver. So the recorder gets a thread of its own.
+            final IdleStrategy recorderIdleStrategy = new ReplicationBandwidthLimiter(
+                lowFootprint ? lowFootprintIdleStrategy() : new BackoffIdleStrategy(),
+                replicationBytesPerSecond,
+                archiveContext);
+            archiveContext
+                .threadingMode(ArchiveThreadingMode.DEDICATED)
+                .recorderIdleStrategySupplier(() -> recorderIdleStrategy);
+            if (lowFootprint)
+            {
+                archiveContext.replayerIdleStrategySupplier(ClusterBackupApp::lowFootprintIdleStrategy);
+            }
+        }
+
+        return archiveContext;
+    }
+
+    private static MediaDriver.Context mediaDriverContext(final boolean lowFootprint)
+    {
+        final MediaDriver.Context mediaDriverContext = new MediaDriver.Context().dirDeleteOnStart(true);
+
+        if (lowFootprint)
+        {
+            // The media driver has no threads of its own, it is invoked by the archive. Images take the term length
+            // of the cluster's publications, so are mapped sparse rather than pre-faulted.
+            mediaDriverContext
+                .threadingMode(ThreadingMode.INVOKER)
+                .publicationTermBufferLength(LOW_FOOTPRINT_TERM_LENGTH)
+                .ipcTermBufferLength(LOW_FOOTPRINT_TERM_LENGTH)
+                .mtuLength(LOW_FOOTPRINT_MTU_LENGTH)
+                .termBufferSparseFile(true);
+        }
+
+        return mediaDriverContext;
     }
 
-    private static MediaDriver.Context mediaDriverContext()
+    private static IdleStrategy lowFootprintIdleStrategy()
     {
-        return new MediaDriver.Context().dirDeleteOnStart(true);
+        return new SleepingMillisIdleStrategy(LOW_FOOTPRINT_IDLE_SLEEP_MS);
     }
 
     private static String getClusterConsensusEndpoints()
@@ -238,6 +383,84 @@ public class ClusterBackupApp
         }
     }
 
+    /**
+     * Use the low footprint mode, with fewer threads that sleep when idle and smaller buffers
+     *
+     * @return true if low footprint mode should be used
+     */
+    private static boolean useLowFootprint()
+    {
+        String lowFootprint = System.getenv("LOW_FOOTPRINT");
+        if (null == lowFootprint || lowFootprint.isEmpty())
+        {
+            lowFootprint = System.getProperty("low.footprint", "false");
+        }
+        return Boolean.parseBoolean(lowFootprint);
+    }
+
+    /**
+     * Get the bandwidth budget for replicating snapshots and the log from the environment variable
+     * BACKUP_REPLICATION_BYTES_PER_SEC or the system property backup.replication.bytes.per.sec
+     *
+     * @return bytes per second, default 0 for no limit
+     */
+    private static long getReplicationBytesPerSecond()
+    {
+        String bytesPerSecond = System.getenv("BACKUP_REPLICATION_BYTES_PER_SEC");
+        if (null == bytesPerSecond || bytesPerSecond.isEmpty())
+        {
+            bytesPerSecond = System.getProperty("backup.replication.bytes.per.sec", "0");
+        }
+        return Long.parseLong(bytesPerSecond);
+    }
+
+    /**
+     * Get the kind of cluster node to replicate from, from the environment variable BACKUP_SOURCE_TYPE or the system
+     * property backup.source.type
+     *
+     * @return source type, default LEADER
+     */
+    private static ClusterBackup.SourceType getSourceType()
+    {
+        String sourceType = System.getenv("BACKUP_SOURCE_TYPE");
+        if (null == sourceType || sourceType.isEmpty())
+        {
+            sourceType = System.getProperty("backup.source.type", ClusterBackup.SourceType.LEADER.name());
+        }
+        return ClusterBackup.SourceType.valueOf(sourceType.toUpperCase());
+    }
+
+    /**
+     * Get the interval between restores of the backup into an offline clustered service from the environment variable
+     * BACKUP_RESTORE_VERIFY_INTERVAL_SECONDS or the system property backup.restore.verify.interval.seconds
+     *
+     * @return interval in seconds, default 0 for no restores
+     */
+    private static long getRestoreVerifyIntervalSeconds()
+    {
+        String intervalSeconds = System.getenv("BACKUP_RESTORE_VERIFY_INTERVAL_SECONDS");
+        if (null == intervalSeconds || intervalSeconds.isEmpty())
+        {
+            intervalSeconds = System.getProperty("backup.restore.verify.interval.seconds", "0");
+        }
+        return Long.parseLong(intervalSeconds);
+    }
+
+    /**
+     * Resume from the cluster directory and archive of an earlier run, if they are still valid
+     *
+     * @return true if the backup should try to resume
+     */
+    private static boolean useResume()
+    {
+        String resume = System.getenv("BACKUP_RESUME");
+        if (null == resume || resume.isEmpty())
+        {
+            resume = System.getProperty("backup.resume", "false");
+        }
+        return Boolean.parseBoolean(resume);
+    }
+
     /**
      * Apply DNS delay
      *
@@ -272,6 +495,13 @@ public class ClusterBackupApp
 
     private static final class LoggingBackupListener implements ClusterBackupEventsListener
     {
+        private final ReplicationMonitor replicationMonitor;
+
+        LoggingBackupListener(final ReplicationMonitor replicationMonitor)
+        {
+            this.replicationMonitor = replicationMonitor;
+        }
+
         @Override
         public void onBackupQuery()
         {
@@ -293,6 +523,9 @@ public class ClusterBackupApp
             LOGGER.info("Response from Cluster. Log Source Member: {}. Cluster Members: {}. Snapshots to retrieve: {}",
                 logSourceMember.id(), clusterMembersString(clusterMembers), snapshotsString(snapshotsToRetrieve)
             );
+            Arrays.stream(clusterMembers)
+                .filter(ClusterMember::isLeader)
+                .forEach(leader -> replicationMonitor.onLeaderArchiveEndpoint(leader.archiveEndpoint()));
         }
 
         @Override
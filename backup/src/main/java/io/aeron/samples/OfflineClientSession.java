@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples;
+
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import io.aeron.DirectBufferVector;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
+
+/**
+ * A client session restored from a backup, with no response publication. Replies are discarded, as they are on a
+ * follower, so that replaying the log costs what encoding the replies costs.
+ */
+final class OfflineClientSession implements ClientSession
+{
+    private static final int CLAIM_HEADER_LENGTH =
+        DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH;
+    private static final int MAX_CLAIM_LENGTH = 64 * 1024;
+
+    private final UnsafeBuffer claimBuffer;
+    private final long id;
+    private final int responseStreamId;
+    private final String responseChannel;
+    private final byte[] encodedPrincipal;
+    private boolean isClosing;
+
+    /**
+     * Constructor
+     * @param id the cluster session id
+     * @param responseStreamId the stream id the client was sent responses on
+     * @param responseChannel the channel the client was sent responses on
+     * @param encodedPrincipal the principal the client authenticated with
+     * @param claimBuffer the scratch buffer replies are claimed in, shared by all sessions
+     */
+    OfflineClientSession(
+        final long id,
+        final int responseStreamId,
+        final String responseChannel,
+        final byte[] encodedPrincipal,
+        final UnsafeBuffer claimBuffer)
+    {
+        this.id = id;
+        this.responseStreamId = responseStreamId;
+        this.responseChannel = responseChannel;
+        this.encodedPrincipal = encodedPrincipal;
+        this.claimBuffer = claimBuffer;
+    }
+
+    /**
+     * Allocates a scratch buffer large enough for any claim made by a session
+     * @return the buffer
+     */
+    static UnsafeBuffer allocateClaimBuffer()
+    {
+        return new UnsafeBuffer(new byte[CLAIM_HEADER_LENGTH + MAX_CLAIM_LENGTH]);
+    }
+
+    @Override
+    public long id()
+    {
+        return id;
+    }
+
+    @Override
+    public int responseStreamId()
+    {
+        return responseStreamId;
+    }
+
+    @Override
+    public String responseChannel()
+    {
+        return responseChannel;
+    }
+
+    @Override
+    public byte[] encodedPrincipal()
+    {
+        return encodedPrincipal;
+    }
+
+    @Override
+    public void close()
+    {
+        isClosing = true;
+    }
+
+    @Override
+    public boolean isClosing()
+    {
+        return isClosing;
+    }
+
+    @Override
+    public long offer(final DirectBuffer buffer, final int offset, final int length)
+    {
+        return MOCKED_OFFER;
+    }
+
+    @Override
+    public long offer(final DirectBufferVector[] vectors)
+    {
+        return MOCKED_OFFER;
+    }
+
+    @Override
+    public long tryClaim(final int length, final BufferClaim bufferClaim)
+    {
+        bufferClaim.wrap(claimBuffer, 0, CLAIM_HEADER_LENGTH + length);
+        return MOCKED_OFFER;
+    }
+}
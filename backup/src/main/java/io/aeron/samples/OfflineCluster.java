@@ -0,0 +1,342 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.agrona.DirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import io.aeron.Aeron;
+import io.aeron.DirectBufferVector;
+import io.aeron.Image;
+import io.aeron.ImageControlledFragmentAssembler;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.ClusterException;
+import io.aeron.cluster.codecs.ClientSessionDecoder;
+import io.aeron.cluster.codecs.MessageHeaderDecoder;
+import io.aeron.cluster.codecs.NewLeadershipTermEventDecoder;
+import io.aeron.cluster.codecs.SessionCloseEventDecoder;
+import io.aeron.cluster.codecs.SessionMessageHeaderDecoder;
+import io.aeron.cluster.codecs.SessionOpenEventDecoder;
+import io.aeron.cluster.codecs.SnapshotMark;
+import io.aeron.cluster.codecs.SnapshotMarkerDecoder;
+import io.aeron.cluster.codecs.TimerEventDecoder;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusterClock;
+import io.aeron.cluster.service.ClusteredService;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.logbuffer.ControlledFragmentHandler;
+import io.aeron.logbuffer.FragmentHandler;
+import io.aeron.logbuffer.Header;
+
+/**
+ * Stands in for the clustered service container when a service is restored from a backup, outside of any cluster. It
+ * restores the client sessions from the start of a service snapshot, and dispatches the messages of a replayed log to
+ * the service, as a follower would, with replies discarded. Timers are left to the timer events in the log.
+ */
+final class OfflineCluster implements Cluster, FragmentHandler
+{
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final SnapshotMarkerDecoder snapshotMarkerDecoder = new SnapshotMarkerDecoder();
+    private final ClientSessionDecoder clientSessionDecoder = new ClientSessionDecoder();
+    private final SessionMessageHeaderDecoder sessionMessageHeaderDecoder = new SessionMessageHeaderDecoder();
+    private final SessionOpenEventDecoder sessionOpenEventDecoder = new SessionOpenEventDecoder();
+    private final SessionCloseEventDecoder sessionCloseEventDecoder = new SessionCloseEventDecoder();
+    private final TimerEventDecoder timerEventDecoder = new TimerEventDecoder();
+    private final NewLeadershipTermEventDecoder newLeadershipTermEventDecoder = new NewLeadershipTermEventDecoder();
+    private final Long2ObjectHashMap<ClientSession> sessionById = new Long2ObjectHashMap<>();
+    private final UnsafeBuffer claimBuffer = OfflineClientSession.allocateClaimBuffer();
+    private final Aeron aeron;
+    private final IdleStrategy idleStrategy;
+    private final ClusteredService service;
+    private TimeUnit timeUnit = TimeUnit.MILLISECONDS;
+    private long logPosition;
+    private long time;
+    private boolean sessionsLoaded;
+
+    /**
+     * Constructor
+     * @param aeron the Aeron client the service allocates its counters with
+     * @param idleStrategy the idle strategy for the service to use while loading its snapshot
+     * @param service the service to restore
+     */
+    OfflineCluster(final Aeron aeron, final IdleStrategy idleStrategy, final ClusteredService service)
+    {
+        this.aeron = aeron;
+        this.idleStrategy = idleStrategy;
+        this.service = service;
+    }
+
+    /**
+     * Restores the client sessions from the start of a service snapshot, leaving the image at the service's own data
+     * @param snapshotImage the image of the replayed service snapshot
+     * @param logPosition the log position the snapshot was taken at
+     */
+    void loadSessions(final Image snapshotImage, final long logPosition)
+    {
+        this.logPosition = logPosition;
+        final ImageControlledFragmentAssembler assembler =
+            new ImageControlledFragmentAssembler(this::onSnapshotFragment);
+        idleStrategy.reset();
+        while (!sessionsLoaded)
+        {
+            if (snapshotImage.isEndOfStream())
+            {
+                throw new ClusterException("snapshot ended before its client sessions were loaded");
+            }
+            idleStrategy.idle(snapshotImage.controlledPoll(assembler, 1));
+        }
+    }
+
+    @Override
+    public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
+    {
+        logPosition = header.position();
+        headerDecoder.wrap(buffer, offset);
+        if (MessageHeaderDecoder.SCHEMA_ID != headerDecoder.schemaId())
+        {
+            return;
+        }
+
+        switch (headerDecoder.templateId())
+        {
+            case SessionMessageHeaderDecoder.TEMPLATE_ID ->
+            {
+                sessionMessageHeaderDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                time = sessionMessageHeaderDecoder.timestamp();
+                final long clusterSessionId = sessionMessageHeaderDecoder.clusterSessionId();
+                final ClientSession session = sessionById.get(clusterSessionId);
+                service.onSessionMessage(
+                    null == session ? addSession(clusterSessionId, 0, "", new byte[0]) : session,
+                    time,
+                    buffer,
+                    offset + AeronCluster.SESSION_HEADER_LENGTH,
+                    length - AeronCluster.SESSION_HEADER_LENGTH,
+                    header);
+            }
+            case TimerEventDecoder.TEMPLATE_ID ->
+            {
+                timerEventDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                time = timerEventDecoder.timestamp();
+                service.onTimerEvent(timerEventDecoder.correlationId(), time);
+            }
+            case SessionOpenEventDecoder.TEMPLATE_ID ->
+            {
+                sessionOpenEventDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                time = sessionOpenEventDecoder.timestamp();
+                final long clusterSessionId = sessionOpenEventDecoder.clusterSessionId();
+                final int responseStreamId = sessionOpenEventDecoder.responseStreamId();
+                final String responseChannel = sessionOpenEventDecoder.responseChannel();
+                final byte[] encodedPrincipal = new byte[sessionOpenEventDecoder.encodedPrincipalLength()];
+                sessionOpenEventDecoder.getEncodedPrincipal(encodedPrincipal, 0, encodedPrincipal.length);
+                service.onSessionOpen(
+                    addSession(clusterSessionId, responseStreamId, responseChannel, encodedPrincipal), time);
+            }
+            case SessionCloseEventDecoder.TEMPLATE_ID ->
+            {
+                sessionCloseEventDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                time = sessionCloseEventDecoder.timestamp();
+                final ClientSession session = sessionById.remove(sessionCloseEventDecoder.clusterSessionId());
+                if (null != session)
+                {
+                    service.onSessionClose(session, time, sessionCloseEventDecoder.closeReason());
+                }
+            }
+            case NewLeadershipTermEventDecoder.TEMPLATE_ID ->
+            {
+                newLeadershipTermEventDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                time = newLeadershipTermEventDecoder.timestamp();
+                timeUnit = ClusterClock.map(newLeadershipTermEventDecoder.timeUnit());
+            }
+            default ->
+            {
+                // Cluster actions, such as snapshots, and membership changes have no effect on the service's state.
+            }
+        }
+    }
+
+    @Override
+    public int memberId()
+    {
+        return Aeron.NULL_VALUE;
+    }
+
+    @Override
+    public Role role()
+    {
+        return Role.FOLLOWER;
+    }
+
+    @Override
+    public long logPosition()
+    {
+        return logPosition;
+    }
+
+    @Override
+    public Aeron aeron()
+    {
+        return aeron;
+    }
+
+    @Override
+    public ClusteredServiceContainer.Context context()
+    {
+        throw new UnsupportedOperationException("no container context when restoring offline");
+    }
+
+    @Override
+    public ClientSession getClientSession(final long clusterSessionId)
+    {
+        return sessionById.get(clusterSessionId);
+    }
+
+    @Override
+    public Collection<ClientSession> clientSessions()
+    {
+        return sessionById.values();
+    }
+
+    @Override
+    public void forEachClientSession(final Consumer<? super ClientSession> action)
+    {
+        sessionById.values().forEach(action);
+    }
+
+    @Override
+    public boolean closeClientSession(final long clusterSessionId)
+    {
+        // The session is closed by the session close event that follows in the log.
+        final ClientSession session = sessionById.get(clusterSessionId);
+        if (null == session)
+        {
+            return false;
+        }
+        session.close();
+        return true;
+    }
+
+    @Override
+    public long time()
+    {
+        return time;
+    }
+
+    @Override
+    public TimeUnit timeUnit()
+    {
+        return timeUnit;
+    }
+
+    @Override
+    public boolean scheduleTimer(final long correlationId, final long deadline)
+    {
+        return true;
+    }
+
+    @Override
+    public boolean cancelTimer(final long correlationId)
+    {
+        return true;
+    }
+
+    @Override
+    public long offer(final DirectBuffer buffer, final int offset, final int length)
+    {
+        throw new UnsupportedOperationException("no log to offer to when restoring offline");
+    }
+
+    @Override
+    public long offer(final DirectBufferVector[] vectors)
+    {
+        throw new UnsupportedOperationException("no log to offer to when restoring offline");
+    }
+
+    @Override
+    public long tryClaim(final int length, final BufferClaim bufferClaim)
+    {
+        throw new UnsupportedOperationException("no log to claim in when restoring offline");
+    }
+
+    @Override
+    public IdleStrategy idleStrategy()
+    {
+        return idleStrategy;
+    }
+
+    private ControlledFragmentHandler.Action onSnapshotFragment(
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        headerDecoder.wrap(buffer, offset);
+        if (MessageHeaderDecoder.SCHEMA_ID != headerDecoder.schemaId())
+        {
+            throw new ClusterException("expected a snapshot marker or client session, found schema id " +
+                headerDecoder.schemaId());
+        }
+
+        switch (headerDecoder.templateId())
+        {
+            case SnapshotMarkerDecoder.TEMPLATE_ID ->
+            {
+                snapshotMarkerDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                timeUnit = ClusterClock.map(snapshotMarkerDecoder.timeUnit());
+                if (SnapshotMark.END == snapshotMarkerDecoder.mark())
+                {
+                    sessionsLoaded = true;
+                    return ControlledFragmentHandler.Action.BREAK;
+                }
+            }
+            case ClientSessionDecoder.TEMPLATE_ID ->
+            {
+                clientSessionDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                final long clusterSessionId = clientSessionDecoder.clusterSessionId();
+                final int responseStreamId = clientSessionDecoder.responseStreamId();
+                final String responseChannel = clientSessionDecoder.responseChannel();
+                final byte[] encodedPrincipal = new byte[clientSessionDecoder.encodedPrincipalLength()];
+                clientSessionDecoder.getEncodedPrincipal(encodedPrincipal, 0, encodedPrincipal.length);
+                addSession(clusterSessionId, responseStreamId, responseChannel, encodedPrincipal);
+            }
+            default ->
+            {
+            }
+        }
+        return ControlledFragmentHandler.Action.CONTINUE;
+    }
+
+    private ClientSession addSession(
+        final long clusterSessionId,
+        final int responseStreamId,
+        final String responseChannel,
+        final byte[] encodedPrincipal)
+    {
+        final ClientSession session = new OfflineClientSession(
+            clusterSessionId, responseStreamId, responseChannel, encodedPrincipal, claimBuffer);
+        sessionById.put(clusterSessionId, session);
+        return session;
+    }
+}
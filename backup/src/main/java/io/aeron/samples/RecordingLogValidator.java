@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples;
+
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.client.RecordingDescriptorConsumer;
+import io.aeron.cluster.RecordingLog;
+
+/**
+ * Checks that the recording log left in the cluster directory by an earlier run of the backup only refers to
+ * recordings in the local archive, so that the backup can carry on extending the log recording from where it stopped
+ * instead of copying the latest snapshot and the whole log again
+ */
+final class RecordingLogValidator implements RecordingDescriptorConsumer
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordingLogValidator.class);
+    private final AeronArchive archive;
+    private long stopPosition;
+
+    /**
+     * Constructor
+     * @param archive client for the local archive
+     */
+    RecordingLogValidator(final AeronArchive archive)
+    {
+        this.archive = archive;
+    }
+
+    /**
+     * Validates the recording log in the cluster directory against the local archive
+     * @param clusterDir the cluster directory of the backup
+     * @return true if the backup can resume from the recording log, false if it needs to start again
+     */
+    boolean validate(final File clusterDir)
+    {
+        if (!new File(clusterDir, RecordingLog.RECORDING_LOG_FILE_NAME).exists())
+        {
+            LOGGER.info("No recording log in {}, nothing to resume", clusterDir);
+            return false;
+        }
+
+        try (RecordingLog recordingLog = new RecordingLog(clusterDir, false))
+        {
+            if (recordingLog.entries().isEmpty())
+            {
+                LOGGER.info("Recording log in {} is empty, nothing to resume", clusterDir);
+                return false;
+            }
+
+            for (final RecordingLog.Entry entry : recordingLog.entries())
+            {
+                if (entry.isValid && !validate(entry))
+                {
+                    return false;
+                }
+            }
+
+            final RecordingLog.Entry lastTerm = recordingLog.findLastTerm();
+            if (null != lastTerm)
+            {
+                LOGGER.info("Resuming log recording {} of leadership term {} from position {}",
+                    lastTerm.recordingId, lastTerm.leadershipTermId, archive.getStopPosition(lastTerm.recordingId));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Purges the recordings in the local archive referred to by the recording log, so that they do not take up space
+     * once the cluster directory is deleted and the backup starts again
+     * @param clusterDir the cluster directory of the backup
+     */
+    void purgeRecordings(final File clusterDir)
+    {
+        if (!new File(clusterDir, RecordingLog.RECORDING_LOG_FILE_NAME).exists())
+        {
+            return;
+        }
+
+        try (RecordingLog recordingLog = new RecordingLog(clusterDir, false))
+        {
+            recordingLog.entries().stream()
+                .mapToLong(entry -> entry.recordingId)
+                .distinct()
+                .filter(recordingId -> 0 != archive.listRecording(recordingId, this))
+                .forEach(recordingId ->
+                {
+                    archive.purgeRecording(recordingId);
+                    LOGGER.info("Purged recording {}", recordingId);
+                });
+        }
+    }
+
+    @Override
+    public void onRecordingDescriptor(
+        final long controlSessionId,
+        final long correlationId,
+        final long recordingId,
+        final long startTimestamp,
+        final long stopTimestamp,
+        final long startPosition,
+        final long stopPosition,
+        final int initialTermId,
+        final int segmentFileLength,
+        final int termBufferLength,
+        final int mtuLength,
+        final int sessionId,
+        final int streamId,
+        final String strippedChannel,
+        final String originalChannel,
+        final String sourceIdentity)
+    {
+        this.stopPosition = stopPosition;
+    }
+
+    private boolean validate(final RecordingLog.Entry entry)
+    {
+        if (0 == archive.listRecording(entry.recordingId, this))
+        {
+            LOGGER.warn("Recording {} in the recording log is missing from the archive", entry.recordingId);
+            return false;
+        }
+
+        if (RecordingLog.ENTRY_TYPE_SNAPSHOT == entry.type && NULL_POSITION == stopPosition)
+        {
+            LOGGER.warn("Snapshot recording {} at log position {} is incomplete", entry.recordingId, entry.logPosition);
+            return false;
+        }
+
+        if (RecordingLog.ENTRY_TYPE_TERM == entry.type && NULL_POSITION != entry.logPosition &&
+            stopPosition < entry.logPosition)
+        {
+            LOGGER.warn("Log recording {} stops at {}, before leadership term {} which ends at {}",
+                entry.recordingId, stopPosition, entry.leadershipTermId, entry.logPosition);
+            return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.agrona.concurrent.IdleStrategy;
+
+import io.aeron.archive.Archive;
+
+/**
+ * Idle strategy for the archive's dedicated recorder thread, which sleeps once the bytes recorded get ahead of a
+ * budget. The recording images then stop being consumed, so flow control slows the replay from the cluster's archive
+ * to the budget, rather than the backup saturating the archive and network of the node it replicates from.
+ * <p>
+ * The bytes recorded are read from the archive's recorder total write bytes counter, so nothing else the thread does
+ * is counted. Sleeping stalls every agent on the thread, so this must not be used on a shared archive thread, which
+ * also runs the archive conductor and may invoke the media driver.
+ */
+final class ReplicationBandwidthLimiter implements IdleStrategy
+{
+    private static final long BURST_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final IdleStrategy delegate;
+    private final long bytesPerSecond;
+    private final long burstBytes;
+    private final Archive.Context archiveContext;
+    private long lastBytesRecorded;
+    private long availableBytes;
+    private long lastRefillNs;
+
+    /**
+     * Constructor
+     * @param delegate idle strategy to use when there is no work
+     * @param bytesPerSecond the bandwidth budget, which must be greater than 0
+     * @param archiveContext context of the archive whose recorder this is, read once the archive has started
+     */
+    ReplicationBandwidthLimiter(
+        final IdleStrategy delegate, final long bytesPerSecond, final Archive.Context archiveContext)
+    {
+        this.delegate = delegate;
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstBytes = bytesPerSecond * BURST_NS / TimeUnit.SECONDS.toNanos(1);
+        this.archiveContext = archiveContext;
+        this.availableBytes = burstBytes;
+        this.lastRefillNs = System.nanoTime();
+    }
+
+    @Override
+    public void idle(final int workCount)
+    {
+        delegate.idle(workCount);
+        if (workCount <= 0)
+        {
+            return;
+        }
+
+        final long bytesRecorded = archiveContext.totalWriteBytesCounter().get();
+        final long recordedBytes = bytesRecorded - lastBytesRecorded;
+        lastBytesRecorded = bytesRecorded;
+
+        final long nowNs = System.nanoTime();
+        final long elapsedNs = Math.min(nowNs - lastRefillNs, BURST_NS);
+        final long refillBytes = elapsedNs * bytesPerSecond / TimeUnit.SECONDS.toNanos(1);
+        availableBytes = Math.min(burstBytes, availableBytes + refillBytes);
+        lastRefillNs = nowNs;
+        availableBytes -= recordedBytes;
+
+        if (availableBytes < 0)
+        {
+            // Sleeping pays off the overdraft, so the budget restarts from empty when the thread wakes.
+            LockSupport.parkNanos(-availableBytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+            availableBytes = 0;
+            lastRefillNs = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void idle()
+    {
+        delegate.idle();
+    }
+
+    @Override
+    public void reset()
+    {
+        delegate.reset();
+    }
+
+    @Override
+    public String alias()
+    {
+        return "replication-bandwidth-limiter";
+    }
+}
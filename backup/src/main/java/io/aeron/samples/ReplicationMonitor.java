@@ -0,0 +1,214 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples;
+
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.status.CountersReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import io.aeron.archive.Archive;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.archive.client.RecordingDescriptorConsumer;
+import io.aeron.cluster.ClusterBackup;
+import io.aeron.cluster.ConsensusModule;
+
+/**
+ * Publishes the bytes the backup's archive has recorded, and how far its copy of the log is behind the leader, to
+ * counters that can be read with AeronStat. The leader's commit position cannot be read from outside the cluster, so
+ * the lag is measured against the position of the leader's log recording, which is where the commit position will be
+ * once the followers have appended the log.
+ */
+final class ReplicationMonitor implements Agent, RecordingDescriptorConsumer
+{
+    /**
+     * Counter type id for the total bytes recorded by the backup's archive since it started
+     */
+    static final int BYTES_REPLICATED_COUNTER_TYPE_ID = 1020;
+    /**
+     * Counter type id for the bytes the backup's copy of the log is behind the leader's log recording
+     */
+    static final int LOG_LAG_COUNTER_TYPE_ID = 1021;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicationMonitor.class);
+    private static final long UPDATE_INTERVAL_MS = 1000;
+    private static final int LOG_STREAM_ID = ConsensusModule.Configuration.logStreamId();
+
+    private final String aeronDirectoryName;
+    private final AeronArchive.Context leaderArchiveContext;
+    private final Archive.Context localArchiveContext;
+    private Aeron aeron;
+    private Counter bytesReplicatedCounter;
+    private Counter logLagCounter;
+    private volatile String leaderArchiveEndpoint;
+    private String connectedArchiveEndpoint;
+    private AeronArchive leaderArchive;
+    private long leaderLogRecordingId = NULL_POSITION;
+    private long nextUpdateMs;
+
+    /**
+     * Constructor
+     * @param aeronDirectoryName the Aeron directory of the backup's media driver
+     * @param leaderArchiveContext context for connecting to the leader's archive, without the request endpoint
+     * @param localArchiveContext context of the backup's archive, whose recorder counts the bytes recorded
+     */
+    ReplicationMonitor(
+        final String aeronDirectoryName,
+        final AeronArchive.Context leaderArchiveContext,
+        final Archive.Context localArchiveContext)
+    {
+        this.aeronDirectoryName = aeronDirectoryName;
+        this.leaderArchiveContext = leaderArchiveContext;
+        this.localArchiveContext = localArchiveContext;
+    }
+
+    /**
+     * Called from the backup events listener when a backup response names the current leader
+     * @param archiveEndpoint the archive endpoint of the leader
+     */
+    void onLeaderArchiveEndpoint(final String archiveEndpoint)
+    {
+        leaderArchiveEndpoint = archiveEndpoint;
+    }
+
+    @Override
+    public void onStart()
+    {
+        aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(aeronDirectoryName));
+        bytesReplicatedCounter = aeron.addCounter(BYTES_REPLICATED_COUNTER_TYPE_ID, "Backup bytes replicated");
+        logLagCounter = aeron.addCounter(LOG_LAG_COUNTER_TYPE_ID, "Backup log lag behind leader bytes");
+    }
+
+    @Override
+    public int doWork()
+    {
+        final long nowMs = System.currentTimeMillis();
+        if (nowMs < nextUpdateMs)
+        {
+            return 0;
+        }
+        nextUpdateMs = nowMs + UPDATE_INTERVAL_MS;
+
+        bytesReplicatedCounter.setOrdered(localArchiveContext.totalWriteBytesCounter().get());
+        final long leaderPosition = leaderLogPosition();
+        if (NULL_POSITION != leaderPosition)
+        {
+            logLagCounter.setOrdered(Math.max(0, leaderPosition - backupLogPosition()));
+        }
+        return 1;
+    }
+
+    @Override
+    public void onClose()
+    {
+        CloseHelper.closeAll(leaderArchive, bytesReplicatedCounter, logLagCounter, aeron);
+    }
+
+    @Override
+    public String roleName()
+    {
+        return "replication-monitor";
+    }
+
+    @Override
+    public void onRecordingDescriptor(
+        final long controlSessionId,
+        final long correlationId,
+        final long recordingId,
+        final long startTimestamp,
+        final long stopTimestamp,
+        final long startPosition,
+        final long stopPosition,
+        final int initialTermId,
+        final int segmentFileLength,
+        final int termBufferLength,
+        final int mtuLength,
+        final int sessionId,
+        final int streamId,
+        final String strippedChannel,
+        final String originalChannel,
+        final String sourceIdentity)
+    {
+        if (NULL_POSITION == stopPosition)
+        {
+            leaderLogRecordingId = recordingId;
+        }
+    }
+
+    private long leaderLogPosition()
+    {
+        final String archiveEndpoint = leaderArchiveEndpoint;
+        if (null == archiveEndpoint)
+        {
+            return NULL_POSITION;
+        }
+
+        try
+        {
+            if (!archiveEndpoint.equals(connectedArchiveEndpoint))
+            {
+                CloseHelper.quietClose(leaderArchive);
+                leaderArchive = null;
+                leaderLogRecordingId = NULL_POSITION;
+                leaderArchive = AeronArchive.connect(leaderArchiveContext.clone()
+                    .aeron(aeron)
+                    .controlRequestChannel("aeron:udp?endpoint=" + archiveEndpoint));
+                connectedArchiveEndpoint = archiveEndpoint;
+            }
+
+            if (NULL_POSITION == leaderLogRecordingId)
+            {
+                leaderArchive.listRecordingsForUri(0, Integer.MAX_VALUE, "", LOG_STREAM_ID, this);
+            }
+
+            final long position = NULL_POSITION == leaderLogRecordingId ?
+                NULL_POSITION : leaderArchive.getRecordingPosition(leaderLogRecordingId);
+            if (NULL_POSITION == position)
+            {
+                leaderLogRecordingId = NULL_POSITION;
+            }
+            return position;
+        }
+        catch (final RuntimeException ex)
+        {
+            LOGGER.warn("Cannot read the leader's log position from {}: {}", archiveEndpoint, ex.getMessage());
+            CloseHelper.quietClose(leaderArchive);
+            leaderArchive = null;
+            connectedArchiveEndpoint = null;
+            return NULL_POSITION;
+        }
+    }
+
+    private long backupLogPosition()
+    {
+        final CountersReader countersReader = aeron.countersReader();
+        final long[] position = { 0 };
+        countersReader.forEach((counterId, typeId, keyBuffer, label) ->
+        {
+            if (ClusterBackup.LIVE_LOG_POSITION_TYPE_ID == typeId)
+            {
+                position[0] = Math.max(position[0], countersReader.getCounterValue(counterId));
+            }
+        });
+        return position[0];
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples;
+
+import static io.aeron.archive.client.AeronArchive.NULL_POSITION;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.Agent;
+import org.agrona.concurrent.IdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import io.aeron.FragmentAssembler;
+import io.aeron.Image;
+import io.aeron.Subscription;
+import io.aeron.archive.client.AeronArchive;
+import io.aeron.cluster.RecordingLog;
+import io.aeron.cluster.client.ClusterException;
+import io.aeron.samples.domain.auctions.Auction;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participant;
+import io.aeron.samples.infra.AppClusteredService;
+import io.aeron.samples.infra.CommandServiceTimes;
+import io.aeron.samples.infra.SessionEgressQueues;
+
+/**
+ * Periodically restores the latest backed-up snapshot and log into an offline {@link AppClusteredService}, to prove
+ * that the backup can be restored and to measure how long a restore takes. The service snapshot is replayed from the
+ * local archive and loaded by the service's SnapshotManager, then the log from the snapshot's position to the end of
+ * the backup's log recording is replayed through the service. The duration, entity counts and a hash of the restored
+ * state are logged, and the duration and the log position restored to are published to counters.
+ */
+final class RestoreVerifier implements Agent
+{
+    /**
+     * Counter type id for how long the last restore took, in milliseconds
+     */
+    static final int RESTORE_DURATION_COUNTER_TYPE_ID = 1022;
+    /**
+     * Counter type id for the log position the last restore reached
+     */
+    static final int RESTORED_LOG_POSITION_COUNTER_TYPE_ID = 1023;
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestoreVerifier.class);
+    private static final int SERVICE_ID = 0;
+    private static final int SERVICE_COUNT = 1;
+    private static final String REPLAY_CHANNEL = "aeron:ipc?alias=restore-verifier";
+    private static final int REPLAY_STREAM_ID = 1022;
+    private static final int FRAGMENT_LIMIT = 100;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String aeronDirectoryName;
+    private final AeronArchive.Context localArchiveContext;
+    private final File clusterDir;
+    private final long intervalMs;
+    private final IdleStrategy idleStrategy;
+    private Aeron aeron;
+    private Counter restoreDurationCounter;
+    private Counter restoredLogPositionCounter;
+    private long nextVerifyMs;
+
+    /**
+     * Constructor
+     * @param aeronDirectoryName the Aeron directory of the backup's media driver
+     * @param localArchiveContext context for connecting to the backup's archive
+     * @param clusterDir the backup's cluster directory, holding its recording log
+     * @param intervalMs the interval between restores
+     * @param idleStrategy the idle strategy to wait on replays with
+     */
+    RestoreVerifier(
+        final String aeronDirectoryName,
+        final AeronArchive.Context localArchiveContext,
+        final File clusterDir,
+        final long intervalMs,
+        final IdleStrategy idleStrategy)
+    {
+        this.aeronDirectoryName = aeronDirectoryName;
+        this.localArchiveContext = localArchiveContext;
+        this.clusterDir = clusterDir;
+        this.intervalMs = intervalMs;
+        this.idleStrategy = idleStrategy;
+    }
+
+    @Override
+    public void onStart()
+    {
+        aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(aeronDirectoryName));
+        restoreDurationCounter = aeron.addCounter(RESTORE_DURATION_COUNTER_TYPE_ID, "Backup restore duration ms");
+        restoredLogPositionCounter = aeron.addCounter(RESTORED_LOG_POSITION_COUNTER_TYPE_ID,
+            "Backup restored log position");
+        nextVerifyMs = System.currentTimeMillis() + intervalMs;
+    }
+
+    @Override
+    public int doWork()
+    {
+        final long nowMs = System.currentTimeMillis();
+        if (nowMs < nextVerifyMs)
+        {
+            return 0;
+        }
+
+        try
+        {
+            verify();
+        }
+        catch (final RuntimeException ex)
+        {
+            LOGGER.error("Backup restore failed", ex);
+        }
+        nextVerifyMs = System.currentTimeMillis() + intervalMs;
+        return 1;
+    }
+
+    @Override
+    public void onClose()
+    {
+        CloseHelper.closeAll(restoreDurationCounter, restoredLogPositionCounter, aeron);
+    }
+
+    @Override
+    public String roleName()
+    {
+        return "restore-verifier";
+    }
+
+    private void verify()
+    {
+        if (!new File(clusterDir, RecordingLog.RECORDING_LOG_FILE_NAME).exists())
+        {
+            LOGGER.info("No backup to restore yet, {} not found", RecordingLog.RECORDING_LOG_FILE_NAME);
+            return;
+        }
+
+        // A client of its own, so that the counters allocated by the restored service are freed once it is done.
+        try (Aeron restoreAeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(aeronDirectoryName));
+            AeronArchive archive = AeronArchive.connect(localArchiveContext.clone().aeron(restoreAeron));
+            RecordingLog recordingLog = new RecordingLog(clusterDir, false);
+            Subscription subscription = restoreAeron.addSubscription(REPLAY_CHANNEL, REPLAY_STREAM_ID))
+        {
+            final RecordingLog.RecoveryPlan plan =
+                recordingLog.createRecoveryPlan(archive, SERVICE_COUNT, Aeron.NULL_VALUE);
+            if (null == plan.log)
+            {
+                LOGGER.info("No backup to restore yet, the recording log has no log recording");
+                return;
+            }
+
+            final long startNs = System.nanoTime();
+            // Caught up is measured against the wall clock, so is meaningless for a restore replayed offline.
+            final AppClusteredService service = new AppClusteredService(
+                SessionEgressQueues.DEFAULT_QUEUE_BUDGET,
+                SessionEgressQueues.DEFAULT_DRAIN_TIMER_INTERVAL_MS,
+                false,
+                CommandServiceTimes.DEFAULT_STALL_THRESHOLD_NS,
+                false);
+            final OfflineCluster cluster = new OfflineCluster(restoreAeron, idleStrategy, service);
+            final RecordingLog.Snapshot snapshot = serviceSnapshot(plan);
+            final long logStartPosition = null == snapshot ? 0 : snapshot.logPosition;
+            if (logStartPosition < plan.log.startPosition)
+            {
+                throw new ClusterException("log recording " + plan.log.recordingId + " starts at " +
+                    plan.log.startPosition + ", after the restore position " + logStartPosition);
+            }
+
+            if (null == snapshot)
+            {
+                service.onStart(cluster, null);
+            }
+            else
+            {
+                final long snapshotStartPosition = archive.getStartPosition(snapshot.recordingId);
+                final Image snapshotImage = replay(archive, subscription, snapshot.recordingId,
+                    snapshotStartPosition, archive.getStopPosition(snapshot.recordingId) - snapshotStartPosition);
+                cluster.loadSessions(snapshotImage, snapshot.logPosition);
+                service.onStart(cluster, snapshotImage);
+            }
+            final long snapshotLoadedNs = System.nanoTime();
+
+            long logEndPosition = archive.getRecordingPosition(plan.log.recordingId);
+            if (NULL_POSITION == logEndPosition)
+            {
+                logEndPosition = archive.getStopPosition(plan.log.recordingId);
+            }
+            if (logEndPosition > logStartPosition)
+            {
+                final Image logImage = replay(archive, subscription, plan.log.recordingId,
+                    logStartPosition, logEndPosition - logStartPosition);
+                final FragmentAssembler logAssembler = new FragmentAssembler(cluster);
+                idleStrategy.reset();
+                while (!logImage.isEndOfStream())
+                {
+                    idleStrategy.idle(logImage.poll(logAssembler, FRAGMENT_LIMIT));
+                }
+            }
+            final long endNs = System.nanoTime();
+
+            restoreDurationCounter.setOrdered(TimeUnit.NANOSECONDS.toMillis(endNs - startNs));
+            restoredLogPositionCounter.setOrdered(cluster.logPosition());
+            LOGGER.info("Backup restored to log position {} in {}ms: snapshot at log position {} loaded in {}ms, " +
+                "{} bytes of log replayed in {}ms. {} participants, {} auctions, {} bids. State hash {}",
+                cluster.logPosition(), TimeUnit.NANOSECONDS.toMillis(endNs - startNs),
+                null == snapshot ? "none" : snapshot.logPosition,
+                TimeUnit.NANOSECONDS.toMillis(snapshotLoadedNs - startNs),
+                Math.max(0, logEndPosition - logStartPosition), TimeUnit.NANOSECONDS.toMillis(endNs - snapshotLoadedNs),
+                service.participants().participantCount(), service.auctions().auctionCount(),
+                bidCount(service.auctions()), Long.toHexString(stateHash(service)));
+        }
+    }
+
+    private static RecordingLog.Snapshot serviceSnapshot(final RecordingLog.RecoveryPlan plan)
+    {
+        for (final RecordingLog.Snapshot snapshot : plan.snapshots)
+        {
+            if (SERVICE_ID == snapshot.serviceId)
+            {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    private Image replay(
+        final AeronArchive archive,
+        final Subscription subscription,
+        final long recordingId,
+        final long position,
+        final long length)
+    {
+        final int sessionId = (int)archive.startReplay(recordingId, position, length, REPLAY_CHANNEL, REPLAY_STREAM_ID);
+        final long deadlineNs = System.nanoTime() + archive.context().messageTimeoutNs();
+        idleStrategy.reset();
+        Image image;
+        while (null == (image = subscription.imageBySessionId(sessionId)))
+        {
+            if (System.nanoTime() > deadlineNs)
+            {
+                throw new ClusterException("replay of recording " + recordingId + " did not start");
+            }
+            idleStrategy.idle();
+        }
+        return image;
+    }
+
+    private static long bidCount(final Auctions auctions)
+    {
+        long bidCount = 0;
+        for (long auctionId = 1, lastAuctionId = auctions.lastAuctionId(); auctionId <= lastAuctionId; auctionId++)
+        {
+            final Auction auction = auctions.getAuction(auctionId);
+            if (null != auction)
+            {
+                bidCount += auction.bidCount();
+            }
+        }
+        return bidCount;
+    }
+
+    /**
+     * An FNV-1a style hash, over 64 bit values, of the participants and the auctions, each in id order. Restores to
+     * the same log position always hash the same, so the hash can be compared between restores.
+     * @param service the restored service
+     * @return the hash
+     */
+    private static long stateHash(final AppClusteredService service)
+    {
+        final long[] hash = { FNV_OFFSET_BASIS };
+        service.participants().forEachParticipant((final Participant participant) ->
+        {
+            hash[0] = hash(hash[0], participant.participantId());
+            for (int i = 0, nameLength = participant.nameLength(); i < nameLength; i++)
+            {
+                hash[0] = hash(hash[0], participant.buffer().getByte(participant.nameOffset() + i));
+            }
+        });
+
+        final Auctions auctions = service.auctions();
+        for (long auctionId = 1, lastAuctionId = auctions.lastAuctionId(); auctionId <= lastAuctionId; auctionId++)
+        {
+            final Auction auction = auctions.getAuction(auctionId);
+            if (null != auction)
+            {
+                hash[0] = hash(hash[0], auction.auctionId());
+                hash[0] = hash(hash[0], auction.createdByParticipantId());
+                hash[0] = hash(hash[0], auction.startTime());
+                hash[0] = hash(hash[0], auction.endTime());
+                hash[0] = hash(hash[0], auction.name().hashCode());
+                hash[0] = hash(hash[0], auction.description().hashCode());
+                hash[0] = hash(hash[0], auction.status().ordinal());
+                hash[0] = hash(hash[0], auction.bidCount());
+                hash[0] = hash(hash[0], auction.currentPrice());
+                hash[0] = hash(hash[0], auction.winningParticipantId());
+            }
+        }
+        return hash[0];
+    }
+
+    private static long hash(final long hash, final long value)
+    {
+        return (hash ^ value) * FNV_PRIME;
+    }
+}
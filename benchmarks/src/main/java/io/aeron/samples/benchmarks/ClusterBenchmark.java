@@ -0,0 +1,229 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.logbuffer.Header;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandResultDecoder;
+import io.aeron.samples.cluster.protocol.AddAuctionBidResult;
+import io.aeron.samples.cluster.protocol.AddAuctionResult;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandEncoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandResultDecoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends bids through a cluster launched in process by {@link EmbeddedCluster}, over the full path from ingress,
+ * through the replicated log and the clustered service, to the reply on the egress. A bid is only applied, and
+ * replied to, once the log entry holding it is committed by a majority of the nodes.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/sun.nio.ch=ALL-UNNAMED")
+@State(Scope.Benchmark)
+public class ClusterBenchmark implements EgressListener
+{
+    private static final int PORT_BASE = 19500;
+    private static final int BURST_SIZE = 64;
+    private static final long SELLER_PARTICIPANT_ID = 500;
+    private static final long BIDDER_PARTICIPANT_ID = 501;
+
+    /**
+     * The number of nodes in the cluster
+     */
+    @Param({"1", "3"})
+    public int clusterSize;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final AddAuctionBidCommandEncoder addAuctionBidEncoder = new AddAuctionBidCommandEncoder();
+    private final AddAuctionBidCommandResultDecoder addAuctionBidResultDecoder =
+        new AddAuctionBidCommandResultDecoder();
+    private final CreateAuctionCommandResultDecoder createAuctionResultDecoder =
+        new CreateAuctionCommandResultDecoder();
+    private final UnsafeBuffer sendBuffer = new UnsafeBuffer(new byte[256]);
+    private EmbeddedCluster cluster;
+    private AeronCluster aeronCluster;
+    private int addAuctionBidLength;
+    private long auctionId = -1;
+    private long correlationId;
+    private long lastReplyCorrelationId;
+    private long rejectedBidCount;
+    private long price;
+
+    /**
+     * Launches the cluster, connects a client to it and creates the auction that is bid on
+     */
+    @Setup
+    public void setup()
+    {
+        cluster = EmbeddedCluster.launch(clusterSize, PORT_BASE);
+        aeronCluster = cluster.connectClient(this);
+
+        final CreateAuctionCommandEncoder createAuctionEncoder = new CreateAuctionCommandEncoder();
+        final long nowMs = System.currentTimeMillis();
+        createAuctionEncoder.wrapAndApplyHeader(sendBuffer, 0, headerEncoder)
+            .correlationId(++correlationId)
+            .createdByParticipantId(SELLER_PARTICIPANT_ID)
+            .startTime(nowMs)
+            .endTime(nowMs + TimeUnit.DAYS.toMillis(1))
+            .name("benchmark auction")
+            .description("auction bid on by the benchmark");
+        send(MessageHeaderEncoder.ENCODED_LENGTH + createAuctionEncoder.encodedLength());
+        while (-1 == auctionId)
+        {
+            poll();
+        }
+
+        addAuctionBidEncoder.wrapAndApplyHeader(sendBuffer, 0, headerEncoder)
+            .correlationId(0)
+            .auctionId(auctionId)
+            .addedByParticipantId(BIDDER_PARTICIPANT_ID)
+            .price(0);
+        addAuctionBidLength = MessageHeaderEncoder.ENCODED_LENGTH + addAuctionBidEncoder.encodedLength();
+    }
+
+    /**
+     * Closes the client and the cluster
+     */
+    @TearDown
+    public void tearDown()
+    {
+        if (rejectedBidCount > 0)
+        {
+            throw new IllegalStateException(rejectedBidCount + " bids were rejected");
+        }
+        cluster.close();
+    }
+
+    /**
+     * Sends a bid and waits for the reply, so only one bid is in flight at a time
+     * @return the correlation id of the reply
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long roundTrip()
+    {
+        sendBid();
+        while (lastReplyCorrelationId != correlationId)
+        {
+            poll();
+        }
+        return lastReplyCorrelationId;
+    }
+
+    /**
+     * Sends a burst of bids, then waits for the replies to all of them
+     * @return the correlation id of the last reply
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BURST_SIZE)
+    public long committedCommands()
+    {
+        for (int i = 0; i < BURST_SIZE; i++)
+        {
+            sendBid();
+        }
+        while (lastReplyCorrelationId != correlationId)
+        {
+            poll();
+        }
+        return lastReplyCorrelationId;
+    }
+
+    @Override
+    public void onMessage(
+        final long clusterSessionId,
+        final long timestamp,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        headerDecoder.wrap(buffer, offset);
+        switch (headerDecoder.templateId())
+        {
+            case AddAuctionBidCommandResultDecoder.TEMPLATE_ID ->
+            {
+                addAuctionBidResultDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                lastReplyCorrelationId = addAuctionBidResultDecoder.correlationId();
+                if (AddAuctionBidResult.SUCCESS != addAuctionBidResultDecoder.result())
+                {
+                    rejectedBidCount++;
+                }
+            }
+            case CreateAuctionCommandResultDecoder.TEMPLATE_ID ->
+            {
+                createAuctionResultDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                if (AddAuctionResult.SUCCESS != createAuctionResultDecoder.result())
+                {
+                    throw new IllegalStateException("auction rejected: " + createAuctionResultDecoder.result());
+                }
+                auctionId = createAuctionResultDecoder.auctionId();
+            }
+            default ->
+            {
+                // auction updates broadcast for each bid are not replies
+            }
+        }
+    }
+
+    private void sendBid()
+    {
+        addAuctionBidEncoder.correlationId(++correlationId).price(++price);
+        send(addAuctionBidLength);
+    }
+
+    private void send(final int length)
+    {
+        while (aeronCluster.offer(sendBuffer, 0, length) < 0)
+        {
+            poll();
+        }
+    }
+
+    private void poll()
+    {
+        if (0 == aeronCluster.pollEgress())
+        {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.samples.domain.auctions.AuctionScheduler;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
+import io.aeron.samples.infra.ClientSessions;
+import io.aeron.samples.infra.ClusterClientResponderImpl;
+import io.aeron.samples.infra.CommandServiceTimes;
+import io.aeron.samples.infra.ParticipantSnapshotImage;
+import io.aeron.samples.infra.SbeDemuxer;
+import io.aeron.samples.infra.SessionEgressQueues;
+import io.aeron.samples.infra.SessionMessageContextImpl;
+import io.aeron.samples.infra.SnapshotManager;
+import io.aeron.samples.infra.Version1ProtocolAdapter;
+import org.agrona.concurrent.UnsafeBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The clustered service's hot path objects, wired together as AppClusteredService wires them, with a stub cluster and
+ * a single stub client session in place of the clustered service container
+ */
+public class ClusterServiceFixture
+{
+    /**
+     * The id of the first participant added by {@link #populate(int, int)}
+     */
+    public static final long FIRST_PARTICIPANT_ID = 1_000;
+    /**
+     * The cluster time the fixture starts at
+     */
+    public static final long START_TIME_MS = TimeUnit.DAYS.toMillis(365 * 50);
+
+    private final StubCluster cluster = new StubCluster();
+    private final StubClientSession session = new StubClientSession(1);
+    private final ClientSessions clientSessions = new ClientSessions();
+    private final SessionEgressQueues egressQueues = new SessionEgressQueues(SessionEgressQueues.DEFAULT_QUEUE_BUDGET);
+    private final SessionMessageContextImpl context;
+    private final ClusterClientResponderImpl responder;
+    private final ParticipantSnapshotImage participantImage;
+    private final Participants participants;
+    private final AuctionScheduler auctionScheduler;
+    private final Auctions auctions;
+    private final SbeDemuxer demuxer;
+    private final SnapshotManager snapshotManager;
+
+    /**
+     * Constructor
+     * @param preEncodedSnapshot true to keep a pre-encoded image of the participants for snapshots
+     */
+    public ClusterServiceFixture(final boolean preEncodedSnapshot)
+    {
+        final Version1ProtocolAdapter version1Adapter = new Version1ProtocolAdapter();
+        context = new SessionMessageContextImpl(clientSessions, egressQueues, version1Adapter);
+        responder = new ClusterClientResponderImpl(context);
+        participantImage = preEncodedSnapshot ? new ParticipantSnapshotImage() : null;
+        participants = null == participantImage ?
+            new Participants(responder) : new Participants(responder, participantImage);
+        auctionScheduler = new AuctionScheduler(context);
+        auctions = new Auctions(context, participants, responder, auctionScheduler);
+        demuxer = new SbeDemuxer(participants, auctions, responder, context,
+            new CommandServiceTimes(CommandServiceTimes.DEFAULT_STALL_THRESHOLD_NS), version1Adapter);
+        snapshotManager = new SnapshotManager(participants, auctions, auctionScheduler, participantImage, context);
+
+        context.setCluster(cluster);
+        egressQueues.setCluster(cluster);
+        clientSessions.addSession(session);
+        time(START_TIME_MS);
+    }
+
+    /**
+     * Adds participants, with ids from {@link #FIRST_PARTICIPANT_ID}, and open auctions created by them
+     * @param participantCount the number of participants to add
+     * @param auctionCount the number of auctions to add
+     */
+    public void populate(final int participantCount, final int auctionCount)
+    {
+        final UnsafeBuffer nameBuffer = new UnsafeBuffer(new byte[32]);
+        for (int i = 0; i < participantCount; i++)
+        {
+            final int nameLength = nameBuffer.putStringWithoutLengthUtf8(0, "participant-" + i);
+            participants.restoreParticipant(FIRST_PARTICIPANT_ID + i, nameBuffer, 0, nameLength);
+        }
+
+        final long endTime = START_TIME_MS + TimeUnit.DAYS.toMillis(1);
+        for (int i = 0; i < auctionCount; i++)
+        {
+            auctions.addAuction(FIRST_PARTICIPANT_ID + (i % participantCount), START_TIME_MS, endTime,
+                "auction-" + i, "auction added by the benchmark", -1);
+        }
+    }
+
+    /**
+     * Sets the cluster time seen by the domain
+     * @param time the cluster time in milliseconds
+     */
+    public void time(final long time)
+    {
+        cluster.time(time);
+        context.setSessionContext(session, time);
+    }
+
+    /**
+     * The stub session replies are sent to
+     * @return the session
+     */
+    public StubClientSession session()
+    {
+        return session;
+    }
+
+    /**
+     * The responder encoding replies
+     * @return the responder
+     */
+    public ClusterClientResponderImpl responder()
+    {
+        return responder;
+    }
+
+    /**
+     * The participants domain model
+     * @return the participants
+     */
+    public Participants participants()
+    {
+        return participants;
+    }
+
+    /**
+     * The auctions domain model
+     * @return the auctions
+     */
+    public Auctions auctions()
+    {
+        return auctions;
+    }
+
+    /**
+     * The demuxer dispatching ingress messages
+     * @return the demuxer
+     */
+    public SbeDemuxer demuxer()
+    {
+        return demuxer;
+    }
+
+    /**
+     * The snapshot manager taking and loading snapshots of the domain
+     * @return the snapshot manager
+     */
+    public SnapshotManager snapshotManager()
+    {
+        return snapshotManager;
+    }
+
+    /**
+     * The pre-encoded participant image, if any
+     * @return the image, or null when participants are encoded as the snapshot is taken
+     */
+    public ParticipantSnapshotImage participantImage()
+    {
+        return participantImage;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.CommonContext;
+import io.aeron.cluster.ClusteredMediaDriver;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.exceptions.TimeoutException;
+import io.aeron.samples.cluster.ClusterConfig;
+import io.aeron.samples.infra.AppClusteredService;
+import org.agrona.CloseHelper;
+import org.agrona.IoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Launches a cluster of 1 or more nodes running {@link AppClusteredService} within this process, on localhost, for
+ * end-to-end tests and benchmarks that would otherwise need a node process per member.
+ * <p>
+ * Each node gets its own media driver, archive, consensus module and service container, with its cluster and archive
+ * directories in a temporary directory deleted on close. Members talk to each other and to clients over UDP on the
+ * loopback interface, on ports from the given base port as {@link ClusterConfig} assigns them.
+ */
+public final class EmbeddedCluster implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedCluster.class);
+    private static final String HOST = "localhost";
+    private static final long CONNECT_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(30);
+
+    private final List<String> hostnames;
+    private final int portBase;
+    private final File baseDir;
+    private final List<ClusteredMediaDriver> drivers = new ArrayList<>();
+    private final List<ClusteredServiceContainer> containers = new ArrayList<>();
+    private final List<AutoCloseable> clients = new ArrayList<>();
+
+    private EmbeddedCluster(final int nodeCount, final int portBase, final File baseDir)
+    {
+        this.hostnames = Collections.nCopies(nodeCount, HOST);
+        this.portBase = portBase;
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Launches the nodes of a cluster, which elect a leader once all are started
+     * @param nodeCount the number of nodes in the cluster
+     * @param portBase the base port of the cluster
+     * @return the running cluster, to be closed once finished with
+     */
+    public static EmbeddedCluster launch(final int nodeCount, final int portBase)
+    {
+        final File baseDir;
+        try
+        {
+            baseDir = Files.createTempDirectory("aeron-embedded-cluster-").toFile();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        final EmbeddedCluster cluster = new EmbeddedCluster(nodeCount, portBase, baseDir);
+        try
+        {
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++)
+            {
+                cluster.launchNode(nodeId);
+            }
+        }
+        catch (final RuntimeException e)
+        {
+            cluster.close();
+            throw e;
+        }
+        LOGGER.info("Launched {} node cluster in {}", nodeCount, baseDir);
+        return cluster;
+    }
+
+    /**
+     * Connects a client to the cluster leader, over its own media driver, waiting for a leader to be elected
+     * @param egressListener the listener for the egress of the client
+     * @return the connected client, which is closed along with the cluster
+     */
+    public AeronCluster connectClient(final EgressListener egressListener)
+    {
+        final MediaDriver clientDriver = MediaDriver.launch(new MediaDriver.Context()
+            .aeronDirectoryName(CommonContext.generateRandomDirName())
+            .threadingMode(ThreadingMode.SHARED)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true));
+        clients.add(clientDriver);
+
+        final String ingressEndpoints = ClusterConfig.ingressEndpoints(
+            hostnames, portBase, ClusterConfig.CLIENT_FACING_PORT_OFFSET);
+        final long deadlineNs = System.nanoTime() + CONNECT_TIMEOUT_NS;
+        while (true)
+        {
+            try
+            {
+                final AeronCluster aeronCluster = AeronCluster.connect(new AeronCluster.Context()
+                    .egressListener(egressListener)
+                    .egressChannel("aeron:udp?endpoint=" + HOST + ":0")
+                    .ingressChannel("aeron:udp")
+                    .ingressEndpoints(ingressEndpoints)
+                    .aeronDirectoryName(clientDriver.aeronDirectoryName()));
+                clients.add(clients.size() - 1, aeronCluster);
+                return aeronCluster;
+            }
+            catch (final TimeoutException e)
+            {
+                if (System.nanoTime() > deadlineNs)
+                {
+                    throw e;
+                }
+                LOGGER.info("Awaiting cluster leader: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The number of nodes in the cluster
+     * @return the node count
+     */
+    public int nodeCount()
+    {
+        return hostnames.size();
+    }
+
+    /**
+     * Closes the clients, then the nodes, and deletes the cluster directories
+     */
+    @Override
+    public void close()
+    {
+        CloseHelper.closeAll(clients);
+        CloseHelper.closeAll(containers);
+        CloseHelper.closeAll(drivers);
+        IoUtil.delete(baseDir, true);
+    }
+
+    private void launchNode(final int nodeId)
+    {
+        final ClusterConfig clusterConfig = ClusterConfig.create(
+            nodeId, hostnames, hostnames, portBase, new AppClusteredService());
+        clusterConfig.consensusModuleContext().ingressChannel("aeron:udp");
+        clusterConfig.consensusModuleContext().leaderHeartbeatTimeoutNs(TimeUnit.SECONDS.toNanos(3));
+        clusterConfig.baseDir(new File(baseDir, "node" + nodeId));
+        clusterConfig.aeronDirectoryName(CommonContext.generateRandomDirName());
+        clusterConfig.mediaDriverContext()
+            .threadingMode(ThreadingMode.SHARED)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+
+        drivers.add(ClusteredMediaDriver.launch(
+            clusterConfig.mediaDriverContext(),
+            clusterConfig.archiveContext(),
+            clusterConfig.consensusModuleContext()));
+        containers.add(ClusteredServiceContainer.launch(clusterConfig.clusteredServiceContext()));
+    }
+}
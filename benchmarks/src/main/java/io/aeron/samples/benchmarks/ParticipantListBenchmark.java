@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.samples.domain.participants.Participants;
+import io.aeron.samples.infra.ClusterClientResponderImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes participant listings with {@link ClusterClientResponderImpl}, replying to a stub client session
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParticipantListBenchmark
+{
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * The number of participants held by the cluster
+     */
+    @Param({"100", "1000", "10000"})
+    public int participantCount;
+
+    private ClusterServiceFixture fixture;
+    private ClusterClientResponderImpl responder;
+    private Participants participants;
+    private long correlationId;
+
+    /**
+     * Populates the cluster
+     */
+    @Setup
+    public void setup()
+    {
+        fixture = new ClusterServiceFixture(false);
+        fixture.populate(participantCount, 0);
+        responder = fixture.responder();
+        participants = fixture.participants();
+    }
+
+    /**
+     * Lists all participants in a single message, truncated to fit the message length
+     * @return the position of the stub session, so the reply is not eliminated
+     */
+    @Benchmark
+    public long returnParticipantList()
+    {
+        responder.returnParticipantList(participants, ++correlationId);
+        return fixture.session().position();
+    }
+
+    /**
+     * Lists the first page of participants
+     * @return the position of the stub session, so the reply is not eliminated
+     */
+    @Benchmark
+    public long returnParticipantPage()
+    {
+        responder.returnParticipantPage(participants, Participants.FROM_FIRST_PARTICIPANT, PAGE_SIZE, ++correlationId);
+        return fixture.session().position();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.samples.domain.participants.Participant;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds and looks up participants in {@link Participants}, replying to a stub client session
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParticipantsBenchmark
+{
+    /**
+     * The number of participants held by the cluster
+     */
+    @Param({"1000", "100000", "1000000"})
+    public int participantCount;
+
+    private final UnsafeBuffer nameBuffer = new UnsafeBuffer("benchmark participant".getBytes(StandardCharsets.UTF_8));
+    private ClusterServiceFixture fixture;
+    private Participants participants;
+    private long correlationId;
+
+    /**
+     * Populates the cluster
+     */
+    @Setup
+    public void setup()
+    {
+        fixture = new ClusterServiceFixture(false);
+        fixture.populate(participantCount, 0);
+        participants = fixture.participants();
+    }
+
+    /**
+     * Adds a participant with the id of an existing participant, replacing its name
+     * @return the position of the stub session, so the reply is not eliminated
+     */
+    @Benchmark
+    public long addParticipant()
+    {
+        final long id = ++correlationId;
+        participants.addParticipant(ClusterServiceFixture.FIRST_PARTICIPANT_ID + (id % participantCount), id,
+            nameBuffer, 0, nameBuffer.capacity());
+        return fixture.session().position();
+    }
+
+    /**
+     * Looks up an existing participant by id
+     * @return the participant
+     */
+    @Benchmark
+    public Participant getParticipant()
+    {
+        return participants.getParticipant(ClusterServiceFixture.FIRST_PARTICIPANT_ID +
+            (++correlationId % participantCount));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.AddParticipantCommandEncoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsCommandEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.infra.SbeDemuxer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches single ingress commands through {@link SbeDemuxer#dispatch}, from decoding to the reply being written to
+ * a stub client session
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SbeDemuxerBenchmark
+{
+    private static final int AUCTION_COUNT = 100;
+    private static final String PARTICIPANT_NAME = "benchmark participant";
+
+    /**
+     * The number of participants held by the cluster
+     */
+    @Param({"1000", "100000"})
+    public int participantCount;
+
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final AddParticipantCommandEncoder addParticipantEncoder = new AddParticipantCommandEncoder();
+    private final AddAuctionBidCommandEncoder addAuctionBidEncoder = new AddAuctionBidCommandEncoder();
+    private final ListAuctionsCommandEncoder listAuctionsEncoder = new ListAuctionsCommandEncoder();
+    private final UnsafeBuffer addParticipantBuffer = new UnsafeBuffer(new byte[256]);
+    private final UnsafeBuffer addAuctionBidBuffer = new UnsafeBuffer(new byte[256]);
+    private final UnsafeBuffer listAuctionsBuffer = new UnsafeBuffer(new byte[256]);
+    private ClusterServiceFixture fixture;
+    private SbeDemuxer demuxer;
+    private int addParticipantLength;
+    private int addAuctionBidLength;
+    private int listAuctionsLength;
+    private long correlationId;
+    private long price;
+
+    /**
+     * Populates the cluster and encodes the commands that are dispatched
+     */
+    @Setup
+    public void setup()
+    {
+        fixture = new ClusterServiceFixture(false);
+        fixture.populate(participantCount, AUCTION_COUNT);
+        demuxer = fixture.demuxer();
+
+        addParticipantEncoder.wrapAndApplyHeader(addParticipantBuffer, 0, headerEncoder)
+            .participantId(ClusterServiceFixture.FIRST_PARTICIPANT_ID)
+            .correlationId(0)
+            .name(PARTICIPANT_NAME);
+        addParticipantLength = MessageHeaderEncoder.ENCODED_LENGTH + addParticipantEncoder.encodedLength();
+
+        addAuctionBidEncoder.wrapAndApplyHeader(addAuctionBidBuffer, 0, headerEncoder)
+            .correlationId(0)
+            .auctionId(fixture.auctions().lastAuctionId())
+            .addedByParticipantId(ClusterServiceFixture.FIRST_PARTICIPANT_ID + participantCount - 1)
+            .price(0);
+        addAuctionBidLength = MessageHeaderEncoder.ENCODED_LENGTH + addAuctionBidEncoder.encodedLength();
+
+        listAuctionsEncoder.wrapAndApplyHeader(listAuctionsBuffer, 0, headerEncoder).correlationId(0);
+        listAuctionsLength = MessageHeaderEncoder.ENCODED_LENGTH + listAuctionsEncoder.encodedLength();
+    }
+
+    /**
+     * Adds a participant, replacing one of the existing participants
+     * @return the position of the stub session, so the reply is not eliminated
+     */
+    @Benchmark
+    public long addParticipant()
+    {
+        final long id = ++correlationId;
+        addParticipantEncoder
+            .participantId(ClusterServiceFixture.FIRST_PARTICIPANT_ID + (id % participantCount))
+            .correlationId(id);
+        demuxer.dispatch(addParticipantBuffer, 0, addParticipantLength);
+        return fixture.session().position();
+    }
+
+    /**
+     * Adds a bid, above the current price, to an open auction
+     * @return the position of the stub session, so the reply is not eliminated
+     */
+    @Benchmark
+    public long addAuctionBid()
+    {
+        addAuctionBidEncoder.correlationId(++correlationId).price(++price);
+        demuxer.dispatch(addAuctionBidBuffer, 0, addAuctionBidLength);
+        return fixture.session().position();
+    }
+
+    /**
+     * Lists the auctions
+     * @return the position of the stub session, so the reply is not eliminated
+     */
+    @Benchmark
+    public long listAuctions()
+    {
+        listAuctionsEncoder.correlationId(++correlationId);
+        demuxer.dispatch(listAuctionsBuffer, 0, listAuctionsLength);
+        return fixture.session().position();
+    }
+}
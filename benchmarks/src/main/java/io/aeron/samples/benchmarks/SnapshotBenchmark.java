@@ -0,0 +1,185 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.Aeron;
+import io.aeron.CommonContext;
+import io.aeron.ExclusivePublication;
+import io.aeron.ImageFragmentAssembler;
+import io.aeron.Subscription;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.samples.infra.SnapshotManager;
+import org.agrona.CloseHelper;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.collections.IntArrayList;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Takes and loads snapshots with {@link SnapshotManager}.
+ * <p>
+ * A snapshot is taken to an IPC publication on an embedded media driver, as a snapshot publication is a concrete
+ * class that cannot be stubbed, with a background thread consuming it. Loading replays the fragments of a snapshot
+ * captured during setup into a new, empty, domain, as a node does when it starts from a snapshot.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/sun.nio.ch=ALL-UNNAMED")
+@State(Scope.Benchmark)
+public class SnapshotBenchmark
+{
+    private static final int AUCTION_COUNT = 1000;
+    private static final int STREAM_ID = 1;
+    private static final String SNAPSHOT_CHANNEL = "aeron:ipc?term-length=64m";
+
+    /**
+     * The number of participants held by the cluster
+     */
+    @Param({"10000", "100000"})
+    public int participantCount;
+
+    /**
+     * True to offer a pre-encoded image of the participants, false to encode them as the snapshot is taken
+     */
+    @Param({"false", "true"})
+    public boolean preEncoded;
+
+    private final ExpandableArrayBuffer capturedSnapshot = new ExpandableArrayBuffer(1024 * 1024);
+    private final IntArrayList capturedFragments = new IntArrayList();
+    private int capturedLength;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private ClusterServiceFixture fixture;
+    private MediaDriver mediaDriver;
+    private Aeron aeron;
+    private ExclusivePublication publication;
+    private Subscription subscription;
+    private Thread consumer;
+
+    /**
+     * Populates the cluster, captures a snapshot of it to load, and starts consuming the snapshot publication
+     */
+    @Setup
+    public void setup()
+    {
+        fixture = new ClusterServiceFixture(preEncoded);
+        fixture.populate(participantCount, AUCTION_COUNT);
+        fixture.snapshotManager().setIdleStrategy(new YieldingIdleStrategy());
+
+        mediaDriver = MediaDriver.launch(new MediaDriver.Context()
+            .aeronDirectoryName(CommonContext.generateRandomDirName())
+            .threadingMode(ThreadingMode.SHARED)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true));
+        aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName()));
+        publication = aeron.addExclusivePublication(SNAPSHOT_CHANNEL, STREAM_ID);
+        subscription = aeron.addSubscription(SNAPSHOT_CHANNEL, STREAM_ID);
+        while (!publication.isConnected())
+        {
+            Thread.yield();
+        }
+
+        captureSnapshot();
+        consumer = new Thread(this::consumeSnapshots, "snapshot-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Stops consuming the snapshot publication and closes the media driver
+     * @throws InterruptedException if interrupted while waiting for the consumer to stop
+     */
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        running.set(false);
+        consumer.join();
+        CloseHelper.closeAll(subscription, publication, aeron, mediaDriver);
+    }
+
+    /**
+     * Takes a snapshot of the participants, auctions and auction deadlines
+     * @return the position of the snapshot publication, so the snapshot is not eliminated
+     */
+    @Benchmark
+    public long takeSnapshot()
+    {
+        fixture.snapshotManager().takeSnapshot(publication);
+        return publication.position();
+    }
+
+    /**
+     * Loads the captured snapshot into a new domain
+     * @return the number of participants restored
+     */
+    @Benchmark
+    public int loadSnapshot()
+    {
+        final ClusterServiceFixture restored = new ClusterServiceFixture(preEncoded);
+        final SnapshotManager snapshotManager = restored.snapshotManager();
+        int offset = 0;
+        for (int i = 0; i < capturedFragments.size(); i++)
+        {
+            final int length = capturedFragments.getInt(i);
+            snapshotManager.onFragment(capturedSnapshot, offset, length, null);
+            offset += length;
+        }
+        return restored.participants().participantCount();
+    }
+
+    private void captureSnapshot()
+    {
+        fixture.snapshotManager().takeSnapshot(publication);
+        final long snapshotPosition = publication.position();
+        final ImageFragmentAssembler assembler = new ImageFragmentAssembler((buffer, offset, length, header) ->
+        {
+            capturedSnapshot.putBytes(capturedLength, buffer, offset, length);
+            capturedFragments.addInt(length);
+            capturedLength += length;
+        });
+        while (subscription.imageAtIndex(0).position() < snapshotPosition)
+        {
+            subscription.poll(assembler, Integer.MAX_VALUE);
+        }
+    }
+
+    private void consumeSnapshots()
+    {
+        final YieldingIdleStrategy idleStrategy = new YieldingIdleStrategy();
+        while (running.get())
+        {
+            idleStrategy.idle(subscription.poll((buffer, offset, length, header) -> {}, Integer.MAX_VALUE));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.DirectBufferVector;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.protocol.DataHeaderFlyweight;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * A client session that accepts every message, copying it into a scratch buffer in place of an egress publication,
+ * so that replies cost what encoding them costs, without a media driver
+ */
+public class StubClientSession implements ClientSession
+{
+    private static final int MAX_MESSAGE_LENGTH = 64 * 1024;
+    private static final int CLAIM_HEADER_LENGTH =
+        DataHeaderFlyweight.HEADER_LENGTH + AeronCluster.SESSION_HEADER_LENGTH;
+    private final UnsafeBuffer egressBuffer = new UnsafeBuffer(new byte[CLAIM_HEADER_LENGTH + MAX_MESSAGE_LENGTH]);
+    private final long id;
+    private long position;
+
+    /**
+     * Constructor
+     * @param id the cluster session id
+     */
+    public StubClientSession(final long id)
+    {
+        this.id = id;
+    }
+
+    /**
+     * The total bytes offered and claimed, standing in for the publication position
+     * @return the position
+     */
+    public long position()
+    {
+        return position;
+    }
+
+    @Override
+    public long id()
+    {
+        return id;
+    }
+
+    @Override
+    public int responseStreamId()
+    {
+        return 0;
+    }
+
+    @Override
+    public String responseChannel()
+    {
+        return "aeron:ipc";
+    }
+
+    @Override
+    public byte[] encodedPrincipal()
+    {
+        return new byte[0];
+    }
+
+    @Override
+    public void close()
+    {
+    }
+
+    @Override
+    public boolean isClosing()
+    {
+        return false;
+    }
+
+    @Override
+    public long offer(final DirectBuffer buffer, final int offset, final int length)
+    {
+        egressBuffer.putBytes(AeronCluster.SESSION_HEADER_LENGTH, buffer, offset, length);
+        position += length;
+        return position;
+    }
+
+    @Override
+    public long offer(final DirectBufferVector[] vectors)
+    {
+        int offset = 0;
+        for (final DirectBufferVector vector : vectors)
+        {
+            egressBuffer.putBytes(offset, vector.buffer(), vector.offset(), vector.length());
+            offset += vector.length();
+        }
+        position += offset;
+        return position;
+    }
+
+    @Override
+    public long tryClaim(final int length, final BufferClaim bufferClaim)
+    {
+        bufferClaim.wrap(egressBuffer, 0, CLAIM_HEADER_LENGTH + length);
+        position += length;
+        return position;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.benchmarks;
+
+import io.aeron.Aeron;
+import io.aeron.DirectBufferVector;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.logbuffer.BufferClaim;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.NoOpIdleStrategy;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A cluster that accepts every timer and holds a settable time, for driving the domain outside a clustered service
+ * container. Anything that needs a running cluster is unsupported.
+ */
+public class StubCluster implements Cluster
+{
+    private long time;
+    private long scheduledTimerCount;
+
+    /**
+     * Sets the cluster time
+     * @param time the cluster time in milliseconds
+     */
+    public void time(final long time)
+    {
+        this.time = time;
+    }
+
+    /**
+     * The number of timers scheduled
+     * @return the scheduled timer count
+     */
+    public long scheduledTimerCount()
+    {
+        return scheduledTimerCount;
+    }
+
+    @Override
+    public int memberId()
+    {
+        return 0;
+    }
+
+    @Override
+    public Role role()
+    {
+        return Role.LEADER;
+    }
+
+    @Override
+    public long logPosition()
+    {
+        return 0;
+    }
+
+    @Override
+    public Aeron aeron()
+    {
+        throw new UnsupportedOperationException("no aeron client in a stub cluster");
+    }
+
+    @Override
+    public ClusteredServiceContainer.Context context()
+    {
+        throw new UnsupportedOperationException("no container context in a stub cluster");
+    }
+
+    @Override
+    public ClientSession getClientSession(final long clusterSessionId)
+    {
+        return null;
+    }
+
+    @Override
+    public Collection<ClientSession> clientSessions()
+    {
+        return List.of();
+    }
+
+    @Override
+    public void forEachClientSession(final Consumer<? super ClientSession> action)
+    {
+    }
+
+    @Override
+    public boolean closeClientSession(final long clusterSessionId)
+    {
+        return false;
+    }
+
+    @Override
+    public long time()
+    {
+        return time;
+    }
+
+    @Override
+    public TimeUnit timeUnit()
+    {
+        return TimeUnit.MILLISECONDS;
+    }
+
+    @Override
+    public boolean scheduleTimer(final long correlationId, final long deadline)
+    {
+        scheduledTimerCount++;
+        return true;
+    }
+
+    @Override
+    public boolean cancelTimer(final long correlationId)
+    {
+        return true;
+    }
+
+    @Override
+    public long offer(final DirectBuffer buffer, final int offset, final int length)
+    {
+        throw new UnsupportedOperationException("a stub cluster has no log to offer to");
+    }
+
+    @Override
+    public long offer(final DirectBufferVector[] vectors)
+    {
+        throw new UnsupportedOperationException("a stub cluster has no log to offer to");
+    }
+
+    @Override
+    public long tryClaim(final int length, final BufferClaim bufferClaim)
+    {
+        throw new UnsupportedOperationException("a stub cluster has no log to claim in");
+    }
+
+    @Override
+    public IdleStrategy idleStrategy()
+    {
+        return NoOpIdleStrategy.INSTANCE;
+    }
+}
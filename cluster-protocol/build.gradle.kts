@@ -20,16 +20,21 @@ plugins {
 
 @Suppress("DEPRECATION")
 val generatedDir = file("${buildDir}/generated/src/main/java")
+@Suppress("DEPRECATION")
+val generatedDispatcherDir = file("${buildDir}/generated/dispatcher/src/main/java")
 val codecGeneration = configurations.create("codecGeneration")
+val generator: SourceSet = sourceSets.create("generator")
 
 dependencies {
     "codecGeneration"(libs.sbe)
+    "generatorImplementation"(libs.sbe)
     implementation(libs.agrona)
 }
 
 sourceSets {
     main {
         java.srcDir(generatedDir)
+        java.srcDir(generatedDispatcherDir)
     }
 }
 
@@ -37,12 +42,13 @@ tasks {
     task("generateCodecs", JavaExec::class) {
         group = "sbe"
         val codecsFile = "src/main/resources/protocol/protocol-codecs.xml"
+        val codecsV1File = "src/main/resources/protocol/protocol-codecs-v1.xml"
         val sbeFile = "src/main/resources/protocol/fpl/sbe.xsd"
-        inputs.files(codecsFile, sbeFile)
+        inputs.files(codecsFile, codecsV1File, sbeFile)
         outputs.dir(generatedDir)
         classpath = codecGeneration
         mainClass.set("uk.co.real_logic.sbe.SbeTool")
-        args = listOf(codecsFile)
+        args = listOf(codecsFile, codecsV1File)
         systemProperties["sbe.output.dir"] = generatedDir
         systemProperties["sbe.target.language"] = "Java"
         systemProperties["sbe.validation.xsd"] = sbeFile
@@ -50,7 +56,23 @@ tasks {
         outputs.dir(generatedDir)
     }
 
+    task("generateDispatcher", JavaExec::class) {
+        group = "sbe"
+        val codecsFile = "src/main/resources/protocol/protocol-codecs.xml"
+        val sbeFile = "src/main/resources/protocol/fpl/sbe.xsd"
+        inputs.files(codecsFile, sbeFile)
+        outputs.dir(generatedDispatcherDir)
+        classpath = generator.runtimeClasspath
+        mainClass.set("uk.co.real_logic.sbe.SbeTool")
+        args = listOf(codecsFile)
+        systemProperties["sbe.output.dir"] = generatedDispatcherDir
+        systemProperties["sbe.target.language"] =
+            "io.aeron.samples.cluster.protocol.generator.CommandDispatcherGenerator"
+        systemProperties["sbe.validation.xsd"] = sbeFile
+        systemProperties["sbe.validation.stop.on.error"] = "true"
+    }
+
     compileJava {
-        dependsOn("generateCodecs")
+        dependsOn("generateCodecs", "generateDispatcher")
     }
 }
\ No newline at end of file
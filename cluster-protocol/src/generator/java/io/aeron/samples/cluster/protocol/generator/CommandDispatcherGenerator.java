@@ -0,0 +1,266 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.cluster.protocol.generator;
+
+import uk.co.real_logic.sbe.generation.CodeGenerator;
+import uk.co.real_logic.sbe.generation.TargetCodeGenerator;
+import uk.co.real_logic.sbe.generation.java.JavaOutputManager;
+import uk.co.real_logic.sbe.ir.Ir;
+import uk.co.real_logic.sbe.ir.Token;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * SBE target code generator for the command dispatcher of the cluster protocol, run by the SBE tool with
+ * {@code sbe.target.language} set to this class name.
+ * <p>
+ * Every message in the schema whose name ends in {@value #COMMAND_SUFFIX} is treated as a command. Two Java sources
+ * are generated into the schema package:
+ * <ul>
+ *     <li>{@code CommandHandler}, an interface with a method per command, taking the decoder for the command</li>
+ *     <li>{@code CommandDispatcher}, which holds a decoder per command and dispatches each message to the handler
+ *     through a table indexed by template id, rejecting messages of other schemas. It also names the command for
+ *     each template id.</li>
+ * </ul>
+ */
+public class CommandDispatcherGenerator implements TargetCodeGenerator
+{
+    /**
+     * Suffix of the names of the messages which are dispatched as commands
+     */
+    public static final String COMMAND_SUFFIX = "Command";
+    private static final String HANDLER_NAME = "CommandHandler";
+    private static final String DISPATCHER_NAME = "CommandDispatcher";
+    private static final String GENERATED_HEADER =
+        "/* Generated by CommandDispatcherGenerator from the SBE schema. Do not edit. */\n";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CodeGenerator newInstance(final Ir ir, final String outputDir)
+    {
+        return () -> generate(ir, new JavaOutputManager(outputDir, ir.applicableNamespace()));
+    }
+
+    private static void generate(final Ir ir, final JavaOutputManager outputManager) throws IOException
+    {
+        final List<Token> commands = new ArrayList<>();
+        for (final List<Token> messageTokens : ir.messages())
+        {
+            final Token message = messageTokens.get(0);
+            if (message.name().endsWith(COMMAND_SUFFIX))
+            {
+                commands.add(message);
+            }
+        }
+        commands.sort(Comparator.comparingInt(Token::id));
+        if (commands.isEmpty())
+        {
+            throw new IllegalStateException("no messages named *" + COMMAND_SUFFIX + " in schema " + ir.id());
+        }
+
+        try (Writer out = outputManager.createOutput(HANDLER_NAME))
+        {
+            out.append(generateHandler(ir, commands));
+        }
+
+        try (Writer out = outputManager.createOutput(DISPATCHER_NAME))
+        {
+            out.append(generateDispatcher(ir, commands));
+        }
+    }
+
+    private static CharSequence generateHandler(final Ir ir, final List<Token> commands)
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(GENERATED_HEADER)
+            .append("package ").append(ir.applicableNamespace()).append(";\n\n")
+            .append("/**\n")
+            .append(" * Handles the commands of schema ").append(ir.id()).append(", as dispatched by {@link ")
+            .append(DISPATCHER_NAME).append("}.\n")
+            .append(" */\n")
+            .append("public interface ").append(HANDLER_NAME).append("\n")
+            .append("{\n");
+
+        for (int i = 0; i < commands.size(); i++)
+        {
+            final Token command = commands.get(i);
+            if (i > 0)
+            {
+                sb.append("\n");
+            }
+            sb.append("    /**\n")
+                .append("     * Handles a ").append(command.name()).append(" message.\n")
+                .append("     *\n")
+                .append("     * @param decoder wrapping the message, valid until the handler returns.\n")
+                .append("     */\n")
+                .append("    void on").append(command.name()).append("(").append(decoderName(command))
+                .append(" decoder);\n");
+        }
+
+        sb.append("}\n");
+        return sb;
+    }
+
+    private static CharSequence generateDispatcher(final Ir ir, final List<Token> commands)
+    {
+        final int maxTemplateId = commands.get(commands.size() - 1).id();
+        final StringBuilder sb = new StringBuilder();
+        sb.append(GENERATED_HEADER)
+            .append("package ").append(ir.applicableNamespace()).append(";\n\n")
+            .append("import org.agrona.DirectBuffer;\n\n")
+            .append("/**\n")
+            .append(" * Dispatches the commands of schema ").append(ir.id()).append(" to a {@link ")
+            .append(HANDLER_NAME).append("}.\n")
+            .append(" * <p>\n")
+            .append(" * The template id of each message indexes a table of dense slots, which the dispatch switches\n")
+            .append(" * on, so the cost of a dispatch does not grow with the number of commands. Each slot wraps the\n")
+            .append(" * decoder held for its command and calls the handler method for it directly.\n")
+            .append(" */\n")
+            .append("@SuppressWarnings(\"all\")\n")
+            .append("public final class ").append(DISPATCHER_NAME).append("\n")
+            .append("{\n")
+            .append("    /** The message was dispatched to the handler. */\n")
+            .append("    public static final int DISPATCHED = 0;\n")
+            .append("    /** The message was too short to hold a message header and was not dispatched. */\n")
+            .append("    public static final int MESSAGE_TOO_SHORT = 1;\n")
+            .append("    /** The message is from another schema and was not dispatched. */\n")
+            .append("    public static final int FOREIGN_SCHEMA = 2;\n")
+            .append("    /** The message is not a known command and was not dispatched. */\n")
+            .append("    public static final int UNKNOWN_TEMPLATE = 3;\n")
+            .append("    /** The highest template id of the commands. */\n")
+            .append("    public static final int MAX_TEMPLATE_ID = ").append(maxTemplateId).append(";\n\n")
+            .append("    private static final int NO_SLOT = 0;\n")
+            .append("    private static final int[] SLOTS = new int[MAX_TEMPLATE_ID + 1];\n")
+            .append("    private static final String[] COMMAND_NAMES = new String[MAX_TEMPLATE_ID + 1];\n\n")
+            .append("    static\n")
+            .append("    {\n");
+
+        for (int i = 0; i < commands.size(); i++)
+        {
+            final Token command = commands.get(i);
+            sb.append("        SLOTS[").append(decoderName(command)).append(".TEMPLATE_ID] = ")
+                .append(i + 1).append(";\n")
+                .append("        COMMAND_NAMES[").append(decoderName(command)).append(".TEMPLATE_ID] = \"")
+                .append(command.name()).append("\";\n");
+        }
+
+        sb.append("    }\n\n")
+            .append("    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();\n");
+        for (final Token command : commands)
+        {
+            sb.append("    private final ").append(decoderName(command)).append(" ").append(decoderField(command))
+                .append(" = new ").append(decoderName(command)).append("();\n");
+        }
+
+        sb.append("    private final ").append(HANDLER_NAME).append(" handler;\n\n")
+            .append("    /**\n")
+            .append("     * Constructs a dispatcher to the given handler.\n")
+            .append("     *\n")
+            .append("     * @param handler to which commands are dispatched.\n")
+            .append("     */\n")
+            .append("    public ").append(DISPATCHER_NAME).append("(final ").append(HANDLER_NAME)
+            .append(" handler)\n")
+            .append("    {\n")
+            .append("        this.handler = handler;\n")
+            .append("    }\n\n")
+            .append("    /**\n")
+            .append("     * The name of the command with the given template id.\n")
+            .append("     *\n")
+            .append("     * @param templateId of the message.\n")
+            .append("     * @return the name of the command, or null if the template id is not a command.\n")
+            .append("     */\n")
+            .append("    public static String commandName(final int templateId)\n")
+            .append("    {\n")
+            .append("        return templateId >= 0 && templateId <= MAX_TEMPLATE_ID ?\n")
+            .append("            COMMAND_NAMES[templateId] : null;\n")
+            .append("    }\n\n")
+            .append("    /**\n")
+            .append("     * The header of the last message, to inspect a message which was not dispatched.\n")
+            .append("     *\n")
+            .append("     * @return the header decoder wrapping the last message.\n")
+            .append("     */\n")
+            .append("    public MessageHeaderDecoder headerDecoder()\n")
+            .append("    {\n")
+            .append("        return headerDecoder;\n")
+            .append("    }\n\n");
+        appendDispatch(sb, commands);
+        sb.append("}\n");
+        return sb;
+    }
+
+    private static void appendDispatch(final StringBuilder sb, final List<Token> commands)
+    {
+        sb.append("    /**\n")
+            .append("     * Dispatches a message to the handler method for its command.\n")
+            .append("     *\n")
+            .append("     * @param buffer containing the message, including the message header.\n")
+            .append("     * @param offset at which the message begins.\n")
+            .append("     * @param length of the message in bytes.\n")
+            .append("     * @return {@link #DISPATCHED}, or the reason the message was not dispatched.\n")
+            .append("     */\n")
+            .append("    public int dispatch(final DirectBuffer buffer, final int offset, final int length)\n")
+            .append("    {\n")
+            .append("        if (length < MessageHeaderDecoder.ENCODED_LENGTH)\n")
+            .append("        {\n")
+            .append("            return MESSAGE_TOO_SHORT;\n")
+            .append("        }\n\n")
+            .append("        headerDecoder.wrap(buffer, offset);\n")
+            .append("        if (MessageHeaderDecoder.SCHEMA_ID != headerDecoder.schemaId())\n")
+            .append("        {\n")
+            .append("            return FOREIGN_SCHEMA;\n")
+            .append("        }\n\n")
+            .append("        final int templateId = headerDecoder.templateId();\n")
+            .append("        final int bodyOffset = offset + MessageHeaderDecoder.ENCODED_LENGTH;\n")
+            .append("        final int blockLength = headerDecoder.blockLength();\n")
+            .append("        final int version = headerDecoder.version();\n")
+            .append("        switch (templateId < SLOTS.length ? SLOTS[templateId] : NO_SLOT)\n")
+            .append("        {\n");
+
+        for (int i = 0; i < commands.size(); i++)
+        {
+            final Token command = commands.get(i);
+            final String field = decoderField(command);
+            sb.append("            case ").append(i + 1).append(":\n")
+                .append("                ").append(field)
+                .append(".wrap(buffer, bodyOffset, blockLength, version);\n")
+                .append("                handler.on").append(command.name()).append("(").append(field).append(");\n")
+                .append("                return DISPATCHED;\n\n");
+        }
+
+        sb.append("            default:\n")
+            .append("                return UNKNOWN_TEMPLATE;\n")
+            .append("        }\n")
+            .append("    }\n");
+    }
+
+    private static String decoderName(final Token message)
+    {
+        return message.name() + "Decoder";
+    }
+
+    private static String decoderField(final Token message)
+    {
+        return Character.toLowerCase(message.name().charAt(0)) + message.name().substring(1) + "Decoder";
+    }
+}
@@ -33,6 +33,8 @@ import io.aeron.cluster.ClusteredMediaDriver;
 import io.aeron.cluster.service.ClusteredServiceContainer;
 import io.aeron.samples.cluster.ClusterConfig;
 import io.aeron.samples.infra.AppClusteredService;
+import io.aeron.samples.infra.CommandServiceTimes;
+import io.aeron.samples.infra.SessionEgressQueues;
 
 /**
  * Sample cluster application
@@ -51,16 +53,24 @@ public class ClusterApp
         final int portBase = getBasePort();
         final int nodeId = getClusterNode();
         final String hosts = getClusterAddresses();
+        final int egressQueueBudget = getEgressQueueBudget();
+        final long egressDrainIntervalMs = getEgressDrainIntervalMs();
+        final boolean preEncodedSnapshot = usePreEncodedSnapshot();
+        final long stallThresholdNs = getCommandStallThresholdNs();
+        final ClusterProfile profile = getClusterProfile();
 
         final List<String> hostAddresses = List.of(hosts.split(","));
         final ClusterConfig clusterConfig = ClusterConfig.create(nodeId, hostAddresses, hostAddresses, portBase,
-            new AppClusteredService());
+            new AppClusteredService(egressQueueBudget, egressDrainIntervalMs, preEncodedSnapshot, stallThresholdNs));
         clusterConfig.consensusModuleContext().ingressChannel("aeron:udp");
         clusterConfig.baseDir(getBaseDir(nodeId));
 
         //this may need tuning for your environment.
         clusterConfig.consensusModuleContext().leaderHeartbeatTimeoutNs(TimeUnit.SECONDS.toNanos(3));
 
+        profile.applyTo(clusterConfig);
+        LOGGER.info("Cluster profile: {}", profile.describe(clusterConfig));
+
         //await DNS resolution of all the hostnames
         hostAddresses.forEach(ClusterApp::awaitDnsResolution);
 
@@ -137,6 +147,80 @@ public class ClusterApp
         return parseInt(portBaseString);
     }
 
+    /**
+     * Get the maximum bytes that may be queued for a back pressured client session before it is disconnected
+     * @return egress queue budget, default 256KB
+     */
+    private static int getEgressQueueBudget()
+    {
+        String budgetString = System.getenv("EGRESS_QUEUE_BUDGET");
+        if (null == budgetString || budgetString.isEmpty())
+        {
+            budgetString = System.getProperty("egress.queue.budget",
+                Integer.toString(SessionEgressQueues.DEFAULT_QUEUE_BUDGET));
+        }
+        return parseInt(budgetString);
+    }
+
+    /**
+     * Get the interval of the timer that drains egress queues on an otherwise idle cluster, which must be the same on
+     * every member
+     * @return drain interval in milliseconds, 0 for no drain timer, default 1000
+     */
+    private static long getEgressDrainIntervalMs()
+    {
+        String intervalString = System.getenv("EGRESS_DRAIN_INTERVAL_MS");
+        if (null == intervalString || intervalString.isEmpty())
+        {
+            intervalString = System.getProperty("egress.drain.interval.ms",
+                Long.toString(SessionEgressQueues.DEFAULT_DRAIN_TIMER_INTERVAL_MS));
+        }
+        return Long.parseLong(intervalString);
+    }
+
+    /**
+     * Get the service time above which a command is logged as a stall
+     * @return stall threshold in nanoseconds, default 1ms
+     */
+    private static long getCommandStallThresholdNs()
+    {
+        String thresholdString = System.getenv("COMMAND_STALL_THRESHOLD_US");
+        if (null == thresholdString || thresholdString.isEmpty())
+        {
+            thresholdString = System.getProperty("command.stall.threshold.us",
+                Long.toString(TimeUnit.NANOSECONDS.toMicros(CommandServiceTimes.DEFAULT_STALL_THRESHOLD_NS)));
+        }
+        return TimeUnit.MICROSECONDS.toNanos(Long.parseLong(thresholdString));
+    }
+
+    /**
+     * Get the performance profile from the environment variable CLUSTER_PROFILE or the system property cluster.profile
+     * @return cluster profile, default balanced
+     */
+    private static ClusterProfile getClusterProfile()
+    {
+        String profileName = System.getenv("CLUSTER_PROFILE");
+        if (null == profileName || profileName.isEmpty())
+        {
+            profileName = System.getProperty("cluster.profile", ClusterProfile.BALANCED.displayName());
+        }
+        return ClusterProfile.get(profileName);
+    }
+
+    /**
+     * Use a pre-encoded participant image, kept up to date as participants are stored, when taking snapshots
+     * @return true if the pre-encoded snapshot mode should be used
+     */
+    private static boolean usePreEncodedSnapshot()
+    {
+        final String preEncodedSnapshot = System.getenv("PRE_ENCODED_SNAPSHOT");
+        if (null == preEncodedSnapshot || preEncodedSnapshot.isEmpty())
+        {
+            return false;
+        }
+        return Boolean.parseBoolean(preEncodedSnapshot);
+    }
+
     /**
      * Await DNS resolution of the given host. Under Kubernetes, this can take a while.
      * @param host of the node to resolve
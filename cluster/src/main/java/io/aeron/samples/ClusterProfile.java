@@ -0,0 +1,256 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples;
+
+import java.util.function.Supplier;
+
+import org.agrona.concurrent.BackoffIdleStrategy;
+import org.agrona.concurrent.BusySpinIdleStrategy;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
+
+import io.aeron.ChannelUri;
+import io.aeron.CommonContext;
+import io.aeron.archive.Archive;
+import io.aeron.archive.ArchiveThreadingMode;
+import io.aeron.cluster.ConsensusModule;
+import io.aeron.cluster.service.ClusteredServiceContainer;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.samples.cluster.ClusterConfig;
+
+/**
+ * Named sets of media driver, archive and cluster settings, applied to every context of a {@link ClusterConfig}, so
+ * that the same node can be run for low latency or for a low footprint
+ */
+public enum ClusterProfile
+{
+    /**
+     * Dedicated, busy spinning, threads for the media driver, archive, consensus module and service, with log buffers
+     * pre-faulted rather than sparse. Only worthwhile with a free core for every spinning thread, eight per node. The
+     * MTU is kept within an Ethernet frame, so no datagram is fragmented by IP, and the archive never syncs to disk.
+     */
+    LOW_LATENCY(
+        "low-latency",
+        ThreadingMode.DEDICATED,
+        ArchiveThreadingMode.DEDICATED,
+        BusySpinIdleStrategy::new,
+        BusySpinIdleStrategy::new,
+        BusySpinIdleStrategy::new,
+        16 * 1024 * 1024,
+        64 * 1024 * 1024,
+        1408,
+        false,
+        128 * 1024 * 1024,
+        0,
+        0),
+
+    /**
+     * Leaves every setting as {@link ClusterConfig#create} and the Aeron defaults have it, so any aeron.* system
+     * properties still apply: a shared media driver thread and a shared archive thread, sparse term buffers, and
+     * default idle strategies and buffer sizes. These are the settings nodes ran with before profiles were added.
+     */
+    BALANCED("balanced"),
+
+    /**
+     * Shared media driver and archive threads that sleep when idle, with small term buffers and archive segments, for
+     * environments where memory and cores cost more than latency. The MTU is kept within an Ethernet frame, and only
+     * the archive catalog, which is written as recordings start and stop, is synced to disk.
+     */
+    LOW_FOOTPRINT(
+        "low-footprint",
+        ThreadingMode.SHARED,
+        ArchiveThreadingMode.SHARED,
+        ClusterProfile::sleepingIdleStrategy,
+        ClusterProfile::sleepingIdleStrategy,
+        BackoffIdleStrategy::new,
+        1024 * 1024,
+        4 * 1024 * 1024,
+        1408,
+        true,
+        16 * 1024 * 1024,
+        0,
+        1);
+
+    private static final ClusterProfile[] VALUES = values();
+    private final String displayName;
+    private final ThreadingMode driverThreadingMode;
+    private final ArchiveThreadingMode archiveThreadingMode;
+    private final Supplier<IdleStrategy> driverIdleStrategy;
+    private final Supplier<IdleStrategy> archiveIdleStrategy;
+    private final Supplier<IdleStrategy> clusterIdleStrategy;
+    private final int publicationTermLength;
+    private final int ipcTermLength;
+    private final int mtuLength;
+    private final boolean sparseTerms;
+    private final int segmentFileLength;
+    private final int fileSyncLevel;
+    private final int catalogFileSyncLevel;
+
+    ClusterProfile(final String displayName)
+    {
+        this(displayName, null, null, null, null, null, 0, 0, 0, false, 0, 0, 0);
+    }
+
+    ClusterProfile(
+        final String displayName,
+        final ThreadingMode driverThreadingMode,
+        final ArchiveThreadingMode archiveThreadingMode,
+        final Supplier<IdleStrategy> driverIdleStrategy,
+        final Supplier<IdleStrategy> archiveIdleStrategy,
+        final Supplier<IdleStrategy> clusterIdleStrategy,
+        final int publicationTermLength,
+        final int ipcTermLength,
+        final int mtuLength,
+        final boolean sparseTerms,
+        final int segmentFileLength,
+        final int fileSyncLevel,
+        final int catalogFileSyncLevel)
+    {
+        this.displayName = displayName;
+        this.driverThreadingMode = driverThreadingMode;
+        this.archiveThreadingMode = archiveThreadingMode;
+        this.driverIdleStrategy = driverIdleStrategy;
+        this.archiveIdleStrategy = archiveIdleStrategy;
+        this.clusterIdleStrategy = clusterIdleStrategy;
+        this.publicationTermLength = publicationTermLength;
+        this.ipcTermLength = ipcTermLength;
+        this.mtuLength = mtuLength;
+        this.sparseTerms = sparseTerms;
+        this.segmentFileLength = segmentFileLength;
+        this.fileSyncLevel = fileSyncLevel;
+        this.catalogFileSyncLevel = catalogFileSyncLevel;
+    }
+
+    /**
+     * Gets the profile with the given name, for example low-latency
+     * @param displayName the name of the profile
+     * @return the profile
+     */
+    public static ClusterProfile get(final String displayName)
+    {
+        for (final ClusterProfile profile : VALUES)
+        {
+            if (profile.displayName.equals(displayName.trim()))
+            {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("unknown cluster profile: " + displayName);
+    }
+
+    private static IdleStrategy sleepingIdleStrategy()
+    {
+        return new SleepingMillisIdleStrategy(1);
+    }
+
+    /**
+     * The name of the profile, as set in CLUSTER_PROFILE
+     * @return the display name
+     */
+    public String displayName()
+    {
+        return displayName;
+    }
+
+    /**
+     * Applies the profile to the media driver, archive, consensus module and clustered service contexts
+     * @param clusterConfig the cluster configuration to apply the profile to
+     */
+    public void applyTo(final ClusterConfig clusterConfig)
+    {
+        if (!overridesSettings())
+        {
+            return;
+        }
+
+        clusterConfig.mediaDriverContext()
+            .threadingMode(driverThreadingMode)
+            .sharedIdleStrategy(driverIdleStrategy.get())
+            .sharedNetworkIdleStrategy(driverIdleStrategy.get())
+            .conductorIdleStrategy(driverIdleStrategy.get())
+            .senderIdleStrategy(driverIdleStrategy.get())
+            .receiverIdleStrategy(driverIdleStrategy.get())
+            .publicationTermBufferLength(publicationTermLength)
+            .ipcTermBufferLength(ipcTermLength)
+            .mtuLength(mtuLength)
+            .termBufferSparseFile(sparseTerms);
+
+        clusterConfig.archiveContext()
+            .threadingMode(archiveThreadingMode)
+            .idleStrategySupplier(archiveIdleStrategy)
+            .recorderIdleStrategySupplier(archiveIdleStrategy)
+            .replayerIdleStrategySupplier(archiveIdleStrategy)
+            .segmentFileLength(segmentFileLength)
+            .fileSyncLevel(fileSyncLevel)
+            .catalogFileSyncLevel(catalogFileSyncLevel);
+
+        // The log term length is left as it is in every profile. All members must agree on it, and the archive cannot
+        // extend a node's existing log recording with a different one, so it must not change with the profile.
+        final ConsensusModule.Context consensusModuleContext = clusterConfig.consensusModuleContext();
+        final ChannelUri logChannel = ChannelUri.parse(consensusModuleContext.logChannel());
+        logChannel.put(CommonContext.SPARSE_PARAM_NAME, Boolean.toString(sparseTerms));
+        consensusModuleContext
+            .logChannel(logChannel.toString())
+            .idleStrategySupplier(clusterIdleStrategy);
+
+        for (final ClusteredServiceContainer.Context serviceContext : clusterConfig.clusteredServiceContexts())
+        {
+            serviceContext.idleStrategySupplier(clusterIdleStrategy);
+        }
+    }
+
+    private boolean overridesSettings()
+    {
+        return null != driverThreadingMode;
+    }
+
+    private static String alias(final Supplier<IdleStrategy> idleStrategy)
+    {
+        return null == idleStrategy ? "default" : idleStrategy.get().alias();
+    }
+
+    /**
+     * Describes the settings in effect once the profile is applied, for logging at startup
+     * @param clusterConfig the cluster configuration the profile has been applied to
+     * @return the description of the settings
+     */
+    public String describe(final ClusterConfig clusterConfig)
+    {
+        final MediaDriver.Context mediaDriverContext = clusterConfig.mediaDriverContext();
+        final ConsensusModule.Context consensusModuleContext = clusterConfig.consensusModuleContext();
+        return "profile=" + displayName +
+            " driverThreading=" + mediaDriverContext.threadingMode() +
+            " driverIdle=" + alias(driverIdleStrategy) +
+            " publicationTermLength=" + mediaDriverContext.publicationTermBufferLength() +
+            " ipcTermLength=" + mediaDriverContext.ipcTermBufferLength() +
+            " mtu=" + mediaDriverContext.mtuLength() +
+            " sparseTerms=" + mediaDriverContext.termBufferSparseFile() +
+            " archiveThreading=" + clusterConfig.archiveContext().threadingMode() +
+            " archiveIdle=" + alias(archiveIdleStrategy) +
+            " segmentFileLength=" +
+            (overridesSettings() ? segmentFileLength : Archive.Configuration.segmentFileLength()) +
+            " fileSyncLevel=" + (overridesSettings() ? fileSyncLevel : Archive.Configuration.fileSyncLevel()) +
+            " catalogFileSyncLevel=" +
+            (overridesSettings() ? catalogFileSyncLevel : Archive.Configuration.catalogFileSyncLevel()) +
+            " clusterIdle=" + alias(clusterIdleStrategy) +
+            " logChannel=" + consensusModuleContext.logChannel() +
+            " ingressChannel=" + consensusModuleContext.ingressChannel() +
+            " leaderHeartbeatTimeoutNs=" + consensusModuleContext.leaderHeartbeatTimeoutNs();
+    }
+}
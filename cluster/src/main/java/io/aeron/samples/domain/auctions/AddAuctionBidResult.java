@@ -0,0 +1,31 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+/**
+ * The outcome of an attempt to add a bid to an auction
+ */
+public enum AddAuctionBidResult
+{
+    SUCCESS,
+    PRICE_BELOW_CURRENT_WINNING_BID,
+    INVALID_PRICE,
+    UNKNOWN_AUCTION,
+    UNKNOWN_PARTICIPANT,
+    CANNOT_SELF_BID,
+    AUCTION_NOT_OPEN
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+/**
+ * The outcome of an attempt to add an auction
+ */
+public enum AddAuctionResult
+{
+    SUCCESS,
+    UNKNOWN_PARTICIPANT,
+    INVALID_START_TIME,
+    INVALID_END_TIME,
+    INVALID_NAME,
+    INVALID_DESCRIPTION,
+    INVALID_DURATION
+}
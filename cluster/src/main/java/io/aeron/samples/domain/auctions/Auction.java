@@ -0,0 +1,319 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An auction held in the cluster. The most recent bids are retained in preallocated, price ordered arrays so
+ * that accepting a bid never allocates.
+ */
+public class Auction
+{
+    /**
+     * The number of most recent bids retained per auction; older bids are counted but their details are dropped
+     */
+    public static final int RETAINED_BID_CAPACITY = 32;
+
+    /**
+     * Value used for the winning participant id when an auction has no bids
+     */
+    public static final long NO_WINNING_PARTICIPANT = -1;
+
+    private static final int RETAINED_BID_MASK = RETAINED_BID_CAPACITY - 1;
+
+    private final long auctionId;
+    private final long createdByParticipantId;
+    private final long startTime;
+    private final long endTime;
+    private final String name;
+    private final byte[] nameBytes;
+    private final String description;
+    private final long[] bidParticipantIds = new long[RETAINED_BID_CAPACITY];
+    private final long[] bidPrices = new long[RETAINED_BID_CAPACITY];
+    private final long[] bidTimes = new long[RETAINED_BID_CAPACITY];
+    private int oldestBidIndex;
+    private int retainedBidCount;
+    private int bidCount;
+    private long lastUpdateTime;
+    private AuctionStatus status = AuctionStatus.PRE_OPEN;
+
+    /**
+     * Constructor
+     * @param auctionId the id of the auction
+     * @param createdByParticipantId the id of the participant that created the auction
+     * @param startTime the time at which the auction opens for bids
+     * @param endTime the time at which the auction closes
+     * @param name the name of the auction
+     * @param description the description of the auction
+     * @param createdTime the cluster time at which the auction was created
+     */
+    public Auction(
+        final long auctionId,
+        final long createdByParticipantId,
+        final long startTime,
+        final long endTime,
+        final String name,
+        final String description,
+        final long createdTime)
+    {
+        this.auctionId = auctionId;
+        this.createdByParticipantId = createdByParticipantId;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.name = name;
+        this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        this.description = description;
+        this.lastUpdateTime = createdTime;
+    }
+
+    /**
+     * Moves the auction through its lifecycle according to the given time
+     * @param now the current cluster time
+     * @return true if the status changed
+     */
+    public boolean updateStatus(final long now)
+    {
+        final AuctionStatus newStatus;
+        if (now >= endTime)
+        {
+            newStatus = AuctionStatus.CLOSED;
+        }
+        else if (now >= startTime)
+        {
+            newStatus = AuctionStatus.OPEN;
+        }
+        else
+        {
+            newStatus = AuctionStatus.PRE_OPEN;
+        }
+
+        if (newStatus == status)
+        {
+            return false;
+        }
+
+        status = newStatus;
+        lastUpdateTime = now;
+        return true;
+    }
+
+    /**
+     * Records an accepted bid. Bids must be offered in ascending price order, which keeps the retained bids sorted;
+     * once the retained capacity is reached the lowest bid is overwritten.
+     * @param participantId the id of the bidding participant
+     * @param price the price bid
+     * @param time the cluster time of the bid
+     */
+    public void addBid(final long participantId, final long price, final long time)
+    {
+        appendBid(participantId, price, time);
+        bidCount++;
+        lastUpdateTime = time;
+    }
+
+    /**
+     * Restores a retained bid from a snapshot, in ascending price order. Does not alter the bid count.
+     * @param participantId the id of the bidding participant
+     * @param price the price bid
+     * @param time the cluster time of the bid
+     */
+    public void restoreBid(final long participantId, final long price, final long time)
+    {
+        appendBid(participantId, price, time);
+    }
+
+    /**
+     * Restores the mutable state of the auction from a snapshot
+     * @param status the status of the auction
+     * @param bidCount the total number of bids accepted
+     * @param lastUpdateTime the cluster time of the last update
+     */
+    public void restoreState(final AuctionStatus status, final int bidCount, final long lastUpdateTime)
+    {
+        this.status = status;
+        this.bidCount = bidCount;
+        this.lastUpdateTime = lastUpdateTime;
+    }
+
+    /**
+     * Gets the current winning price
+     * @return the highest bid price, or 0 if there are no bids
+     */
+    public long currentPrice()
+    {
+        return 0 == retainedBidCount ? 0 : bidPriceAt(retainedBidCount - 1);
+    }
+
+    /**
+     * Gets the participant holding the winning bid
+     * @return the id of the winning participant, or {@link #NO_WINNING_PARTICIPANT} if there are no bids
+     */
+    public long winningParticipantId()
+    {
+        return 0 == retainedBidCount ? NO_WINNING_PARTICIPANT : bidParticipantIdAt(retainedBidCount - 1);
+    }
+
+    /**
+     * Gets the participant id of a retained bid
+     * @param index the index of the bid in ascending price order, from 0 to {@link #retainedBidCount()} - 1
+     * @return the id of the participant that placed the bid
+     */
+    public long bidParticipantIdAt(final int index)
+    {
+        return bidParticipantIds[(oldestBidIndex + index) & RETAINED_BID_MASK];
+    }
+
+    /**
+     * Gets the price of a retained bid
+     * @param index the index of the bid in ascending price order, from 0 to {@link #retainedBidCount()} - 1
+     * @return the price of the bid
+     */
+    public long bidPriceAt(final int index)
+    {
+        return bidPrices[(oldestBidIndex + index) & RETAINED_BID_MASK];
+    }
+
+    /**
+     * Gets the time of a retained bid
+     * @param index the index of the bid in ascending price order, from 0 to {@link #retainedBidCount()} - 1
+     * @return the cluster time of the bid
+     */
+    public long bidTimeAt(final int index)
+    {
+        return bidTimes[(oldestBidIndex + index) & RETAINED_BID_MASK];
+    }
+
+    /**
+     * Gets the auction id
+     * @return the auction id
+     */
+    public long auctionId()
+    {
+        return auctionId;
+    }
+
+    /**
+     * Gets the id of the participant that created the auction
+     * @return the participant id
+     */
+    public long createdByParticipantId()
+    {
+        return createdByParticipantId;
+    }
+
+    /**
+     * Gets the time at which the auction opens
+     * @return the start time
+     */
+    public long startTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * Gets the time at which the auction closes
+     * @return the end time
+     */
+    public long endTime()
+    {
+        return endTime;
+    }
+
+    /**
+     * Gets the auction name
+     * @return the name
+     */
+    public String name()
+    {
+        return name;
+    }
+
+    /**
+     * Gets the auction name encoded as UTF-8, so that listings can size and encode it without allocating. The array
+     * is shared and must not be modified.
+     * @return the UTF-8 bytes of the name
+     */
+    public byte[] nameBytes()
+    {
+        return nameBytes;
+    }
+
+    /**
+     * Gets the auction description
+     * @return the description
+     */
+    public String description()
+    {
+        return description;
+    }
+
+    /**
+     * Gets the auction status
+     * @return the status
+     */
+    public AuctionStatus status()
+    {
+        return status;
+    }
+
+    /**
+     * Gets the total number of bids accepted by the auction
+     * @return the bid count
+     */
+    public int bidCount()
+    {
+        return bidCount;
+    }
+
+    /**
+     * Gets the number of bids retained with full details
+     * @return the retained bid count, at most {@link #RETAINED_BID_CAPACITY}
+     */
+    public int retainedBidCount()
+    {
+        return retainedBidCount;
+    }
+
+    /**
+     * Gets the cluster time of the last change to the auction
+     * @return the last update time
+     */
+    public long lastUpdateTime()
+    {
+        return lastUpdateTime;
+    }
+
+    private void appendBid(final long participantId, final long price, final long time)
+    {
+        final int index;
+        if (retainedBidCount < RETAINED_BID_CAPACITY)
+        {
+            index = (oldestBidIndex + retainedBidCount) & RETAINED_BID_MASK;
+            retainedBidCount++;
+        }
+        else
+        {
+            index = oldestBidIndex;
+            oldestBidIndex = (oldestBidIndex + 1) & RETAINED_BID_MASK;
+        }
+
+        bidParticipantIds[index] = participantId;
+        bidPrices[index] = price;
+        bidTimes[index] = time;
+    }
+}
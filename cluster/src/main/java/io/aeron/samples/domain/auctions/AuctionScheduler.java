@@ -0,0 +1,248 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import io.aeron.samples.infra.SessionMessageContext;
+import org.agrona.collections.LongHashSet;
+import org.agrona.collections.LongLongConsumer;
+
+import java.util.Arrays;
+
+/**
+ * Schedules auction lifecycle deadlines (open and close) in a hashed timer wheel, driven by cluster timers.
+ * <p>
+ * Deadlines are bucketed into ticks of {@link #TICK_RESOLUTION}, and all deadlines falling within the same tick
+ * share a single cluster timer whose correlation id is the absolute tick number and whose deadline is the end of
+ * that tick. When a cluster timer fires the wheel is polled up to the cluster time and each expired deadline is
+ * handed back with its auction id. The wheel is only advanced from the replicated log, so all cluster members
+ * expire the same deadlines, in the same order, at the same log position.
+ * <p>
+ * Entries are held in preallocated primitive arrays, linked into one list per spoke, so memory grows with the number
+ * of pending deadlines rather than with how closely they are clustered, and a poll never visits more than one full
+ * rotation of spokes however long the wheel has been idle.
+ */
+public class AuctionScheduler
+{
+    /**
+     * The wheel tick resolution in cluster time units (milliseconds); deadlines are coalesced per tick
+     */
+    public static final long TICK_RESOLUTION = 256;
+    private static final int TICKS_PER_WHEEL = 1024;
+    private static final int SPOKE_MASK = TICKS_PER_WHEEL - 1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NULL_INDEX = -1;
+
+    private final int[] spokeHeads = new int[TICKS_PER_WHEEL];
+    private final LongHashSet scheduledTicks = new LongHashSet();
+    private final SessionMessageContext context;
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+    private long[] auctionIds = new long[INITIAL_CAPACITY];
+    private int[] nextIndexes = new int[INITIAL_CAPACITY];
+    private int freeHead = NULL_INDEX;
+    private int nextUnusedIndex = 0;
+    private int pendingDeadlineCount = 0;
+    private long lastPolledTick = Long.MIN_VALUE;
+
+    /**
+     * Constructor
+     * @param context the session message context, used to schedule cluster timers
+     */
+    public AuctionScheduler(final SessionMessageContext context)
+    {
+        this.context = context;
+        Arrays.fill(spokeHeads, NULL_INDEX);
+    }
+
+    /**
+     * Schedules a lifecycle deadline for an auction, registering a cluster timer for its tick if there is not one
+     * already pending. The deadline must be after the current cluster time.
+     * @param auctionId the id of the auction
+     * @param deadline the cluster time of the deadline
+     */
+    public void scheduleDeadline(final long auctionId, final long deadline)
+    {
+        final long tick = tickFor(deadline);
+        addToWheel(auctionId, deadline, tick);
+        if (scheduledTicks.add(tick))
+        {
+            context.scheduleTimer(tick, tick * TICK_RESOLUTION);
+        }
+    }
+
+    /**
+     * Restores a pending deadline from a snapshot. The cluster timer for its tick is not scheduled again, as pending
+     * cluster timers are held in the consensus module snapshot and will fire after restore.
+     * @param auctionId the id of the auction
+     * @param deadline the cluster time of the deadline
+     */
+    public void restoreDeadline(final long auctionId, final long deadline)
+    {
+        final long tick = tickFor(deadline);
+        addToWheel(auctionId, deadline, tick);
+        scheduledTicks.add(tick);
+    }
+
+    /**
+     * Grows the deadline storage to hold the given number of deadlines without resizing, ahead of restoring them
+     * from a snapshot
+     * @param deadlineCount the number of deadlines to be held
+     */
+    public void ensureCapacity(final int deadlineCount)
+    {
+        if (deadlineCount > deadlines.length)
+        {
+            deadlines = Arrays.copyOf(deadlines, deadlineCount);
+            auctionIds = Arrays.copyOf(auctionIds, deadlineCount);
+            nextIndexes = Arrays.copyOf(nextIndexes, deadlineCount);
+        }
+    }
+
+    /**
+     * Handles a cluster timer, expiring all deadlines up to the given cluster time
+     * @param correlationId the correlation id of the cluster timer, which is the tick it was scheduled for
+     * @param now the cluster time
+     * @param handler the handler to receive the auction id and cluster time of each expired deadline
+     * @return the number of deadlines expired
+     */
+    public int onTimerEvent(final long correlationId, final long now, final LongLongConsumer handler)
+    {
+        scheduledTicks.remove(correlationId);
+        if (0 == pendingDeadlineCount)
+        {
+            return 0;
+        }
+
+        // the tick containing now may still hold deadlines later than now, so it is walked again on the next poll
+        final long nowTick = tickFor(now);
+        final long firstTick = Math.max(lastPolledTick + 1, nowTick - TICKS_PER_WHEEL + 1);
+        int expired = 0;
+        for (long tick = firstTick; tick <= nowTick; tick++)
+        {
+            expired += expireSpoke((int)tick & SPOKE_MASK, now, handler);
+        }
+        lastPolledTick = nowTick - 1;
+
+        return expired;
+    }
+
+    /**
+     * Visits all pending deadlines, ordered by spoke
+     * @param consumer the consumer to receive the auction id and deadline of each pending deadline
+     */
+    public void forEachDeadline(final LongLongConsumer consumer)
+    {
+        for (int spoke = 0; spoke < TICKS_PER_WHEEL; spoke++)
+        {
+            for (int index = spokeHeads[spoke]; NULL_INDEX != index; index = nextIndexes[index])
+            {
+                consumer.accept(auctionIds[index], deadlines[index]);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of pending deadlines
+     * @return the number of deadlines held in the wheel
+     */
+    public int pendingDeadlineCount()
+    {
+        return pendingDeadlineCount;
+    }
+
+    /**
+     * Gets the number of cluster timers pending for the scheduled ticks
+     * @return the number of pending cluster timers
+     */
+    public int pendingClusterTimerCount()
+    {
+        return scheduledTicks.size();
+    }
+
+    private int expireSpoke(final int spoke, final long now, final LongLongConsumer handler)
+    {
+        int expired = 0;
+        int previous = NULL_INDEX;
+        int index = spokeHeads[spoke];
+        while (NULL_INDEX != index)
+        {
+            final int next = nextIndexes[index];
+            if (deadlines[index] <= now)
+            {
+                if (NULL_INDEX == previous)
+                {
+                    spokeHeads[spoke] = next;
+                }
+                else
+                {
+                    nextIndexes[previous] = next;
+                }
+                final long auctionId = auctionIds[index];
+                release(index);
+                handler.accept(auctionId, now);
+                expired++;
+            }
+            else
+            {
+                previous = index;
+            }
+            index = next;
+        }
+        return expired;
+    }
+
+    private void addToWheel(final long auctionId, final long deadline, final long tick)
+    {
+        final int index = allocate();
+        final int spoke = (int)tick & SPOKE_MASK;
+        deadlines[index] = deadline;
+        auctionIds[index] = auctionId;
+        nextIndexes[index] = spokeHeads[spoke];
+        spokeHeads[spoke] = index;
+        pendingDeadlineCount++;
+    }
+
+    private int allocate()
+    {
+        if (NULL_INDEX != freeHead)
+        {
+            final int index = freeHead;
+            freeHead = nextIndexes[index];
+            return index;
+        }
+
+        if (nextUnusedIndex == deadlines.length)
+        {
+            final int newCapacity = deadlines.length << 1;
+            deadlines = Arrays.copyOf(deadlines, newCapacity);
+            auctionIds = Arrays.copyOf(auctionIds, newCapacity);
+            nextIndexes = Arrays.copyOf(nextIndexes, newCapacity);
+        }
+        return nextUnusedIndex++;
+    }
+
+    private void release(final int index)
+    {
+        nextIndexes[index] = freeHead;
+        freeHead = index;
+        pendingDeadlineCount--;
+    }
+
+    private static long tickFor(final long time)
+    {
+        return (time + TICK_RESOLUTION - 1) / TICK_RESOLUTION;
+    }
+}
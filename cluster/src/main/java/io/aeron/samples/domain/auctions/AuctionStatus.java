@@ -14,11 +14,14 @@
  * limitations under the License.
  */
 
-package io.aeron.samples.admin.cluster;
+package io.aeron.samples.domain.auctions;
 
 /**
- * A message that has been sent to the cluster but has not yet been received by the client.
+ * The lifecycle status of an auction
  */
-public record PendingMessage(long timeoutAt, String correlationId, String messageType)
+public enum AuctionStatus
 {
+    PRE_OPEN,
+    OPEN,
+    CLOSED
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.auctions;
+
+import io.aeron.samples.domain.participants.Participants;
+import io.aeron.samples.infra.ClusterClientResponder;
+import io.aeron.samples.infra.SessionMessageContext;
+import org.agrona.collections.Hashing;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.collections.LongLongConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Holds the auctions in the cluster and applies bids to them
+ */
+public class Auctions
+{
+    /**
+     * Start id for {@link #forEachAuctionAfter(long, int, Consumer)} to begin at the first auction; auction ids are
+     * assigned from 1
+     */
+    public static final long FROM_FIRST_AUCTION = 0;
+    private static final Logger LOGGER = LoggerFactory.getLogger(Auctions.class);
+    private Long2ObjectHashMap<Auction> auctionMap = new Long2ObjectHashMap<>();
+    private final SessionMessageContext context;
+    private final Participants participants;
+    private final ClusterClientResponder clusterClientResponder;
+    private final AuctionScheduler auctionScheduler;
+    private final LongLongConsumer deadlineHandler = this::onAuctionDeadline;
+    private long lastAuctionId = 0;
+
+    /**
+     * Constructor
+     * @param context the session message context, used to read the cluster time
+     * @param participants the participants, used to validate auction creators and bidders
+     * @param clusterClientResponder the cluster client responder
+     * @param auctionScheduler the scheduler for auction open and close deadlines
+     */
+    public Auctions(
+        final SessionMessageContext context,
+        final Participants participants,
+        final ClusterClientResponder clusterClientResponder,
+        final AuctionScheduler auctionScheduler)
+    {
+        this.context = context;
+        this.participants = participants;
+        this.clusterClientResponder = clusterClientResponder;
+        this.auctionScheduler = auctionScheduler;
+    }
+
+    /**
+     * Adds an auction to the cluster; the auction id is assigned by the cluster
+     * @param createdByParticipantId the id of the participant creating the auction
+     * @param startTime the time at which the auction opens for bids
+     * @param endTime the time at which the auction closes
+     * @param name the name of the auction
+     * @param description the description of the auction
+     * @param correlationId the correlation id of the request
+     */
+    public void addAuction(
+        final long createdByParticipantId,
+        final long startTime,
+        final long endTime,
+        final String name,
+        final String description,
+        final long correlationId)
+    {
+        final long now = context.getClusterTime();
+        final AddAuctionResult result = validateAuction(createdByParticipantId, startTime, endTime, name,
+            description, now);
+        if (result != AddAuctionResult.SUCCESS)
+        {
+            LOGGER.info("Rejecting auction from participant {}: {}", createdByParticipantId, result);
+            clusterClientResponder.rejectAuction(result, correlationId);
+            return;
+        }
+
+        final long auctionId = ++lastAuctionId;
+        final Auction auction = new Auction(auctionId, createdByParticipantId, startTime, endTime, name,
+            description, now);
+        auctionMap.put(auctionId, auction);
+        LOGGER.info("Added auction {} '{}' from participant {}", auctionId, name, createdByParticipantId);
+
+        clusterClientResponder.acknowledgeAuctionAdded(auctionId, correlationId);
+        clusterClientResponder.broadcastNewAuction(auction);
+        if (auction.updateStatus(now))
+        {
+            clusterClientResponder.broadcastAuctionUpdate(auction);
+        }
+
+        if (startTime > now)
+        {
+            auctionScheduler.scheduleDeadline(auctionId, startTime);
+        }
+        auctionScheduler.scheduleDeadline(auctionId, endTime);
+    }
+
+    /**
+     * Handles a cluster timer, moving any auctions whose open or close deadline has passed through their lifecycle
+     * and broadcasting the update
+     * @param correlationId the correlation id of the cluster timer
+     * @param timestamp the cluster time at which the timer fired
+     */
+    public void onTimerEvent(final long correlationId, final long timestamp)
+    {
+        auctionScheduler.onTimerEvent(correlationId, timestamp, deadlineHandler);
+    }
+
+    /**
+     * Adds a bid to an auction. Bids must be strictly above the current winning price.
+     * @param auctionId the id of the auction
+     * @param participantId the id of the bidding participant
+     * @param price the price bid
+     * @param correlationId the correlation id of the request
+     */
+    public void addBid(final long auctionId, final long participantId, final long price, final long correlationId)
+    {
+        final long now = context.getClusterTime();
+        final Auction auction = auctionMap.get(auctionId);
+        if (null != auction && auction.updateStatus(now))
+        {
+            clusterClientResponder.broadcastAuctionUpdate(auction);
+        }
+
+        final AddAuctionBidResult result = validateBid(auction, participantId, price);
+        if (result != AddAuctionBidResult.SUCCESS)
+        {
+            clusterClientResponder.rejectBid(auctionId, result, correlationId);
+            return;
+        }
+
+        auction.addBid(participantId, price, now);
+        clusterClientResponder.acknowledgeBidAdded(auctionId, correlationId);
+        clusterClientResponder.broadcastAuctionUpdate(auction);
+    }
+
+    /**
+     * Restores an auction from a snapshot
+     * @param auction the auction to restore
+     */
+    public void restoreAuction(final Auction auction)
+    {
+        auctionMap.put(auction.auctionId(), auction);
+    }
+
+    /**
+     * Presizes the auction map to hold the given number of auctions without rehashing, ahead of restoring them from
+     * a snapshot. Has no effect once auctions are held.
+     * @param auctionCount the number of auctions to be held
+     */
+    public void ensureCapacity(final int auctionCount)
+    {
+        if (auctionMap.isEmpty() && auctionCount > auctionMap.resizeThreshold())
+        {
+            auctionMap = new Long2ObjectHashMap<>(
+                (int)Math.ceil(auctionCount / (double)Hashing.DEFAULT_LOAD_FACTOR) + 1, Hashing.DEFAULT_LOAD_FACTOR);
+        }
+    }
+
+    /**
+     * Gets the number of auctions held by the cluster
+     * @return the auction count
+     */
+    public int auctionCount()
+    {
+        return auctionMap.size();
+    }
+
+    /**
+     * Restores the last assigned auction id from a snapshot
+     * @param lastAuctionId the last auction id assigned
+     */
+    public void restoreLastAuctionId(final long lastAuctionId)
+    {
+        this.lastAuctionId = lastAuctionId;
+    }
+
+    /**
+     * Gets the last auction id assigned by the cluster
+     * @return the last auction id
+     */
+    public long lastAuctionId()
+    {
+        return lastAuctionId;
+    }
+
+    /**
+     * Gets an auction by id
+     * @param auctionId the id of the auction
+     * @return the auction, or null if not known
+     */
+    public Auction getAuction(final long auctionId)
+    {
+        return auctionMap.get(auctionId);
+    }
+
+    /**
+     * Visits up to a limited number of auctions in auction id order, starting after the given auction id. Any
+     * auction whose status has changed with the passage of cluster time is updated and broadcast before it is
+     * visited.
+     * @param startAfterId the auction id to start after, or {@link #FROM_FIRST_AUCTION} to start from the first
+     *                     auction
+     * @param limit the maximum number of auctions to visit
+     * @param consumer the consumer to receive each auction
+     * @return the number of auctions visited
+     */
+    public int forEachAuctionAfter(final long startAfterId, final int limit, final Consumer<Auction> consumer)
+    {
+        final long now = context.getClusterTime();
+        int visited = 0;
+        for (long auctionId = Math.max(startAfterId, FROM_FIRST_AUCTION) + 1;
+            auctionId <= lastAuctionId && visited < limit; auctionId++)
+        {
+            final Auction auction = auctionMap.get(auctionId);
+            if (null != auction)
+            {
+                if (auction.updateStatus(now))
+                {
+                    clusterClientResponder.broadcastAuctionUpdate(auction);
+                }
+                consumer.accept(auction);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Determines if there are any auctions with an id after the given auction id
+     * @param auctionId the auction id to check after
+     * @return true if there is at least one auction with a greater id
+     */
+    public boolean hasAuctionAfter(final long auctionId)
+    {
+        for (long nextId = Math.max(auctionId, FROM_FIRST_AUCTION) + 1; nextId <= lastAuctionId; nextId++)
+        {
+            if (auctionMap.containsKey(nextId))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onAuctionDeadline(final long auctionId, final long now)
+    {
+        final Auction auction = auctionMap.get(auctionId);
+        if (null != auction && auction.updateStatus(now))
+        {
+            clusterClientResponder.broadcastAuctionUpdate(auction);
+        }
+    }
+
+    private AddAuctionResult validateAuction(
+        final long createdByParticipantId,
+        final long startTime,
+        final long endTime,
+        final String name,
+        final String description,
+        final long now)
+    {
+        if (!participants.isKnownParticipant(createdByParticipantId))
+        {
+            return AddAuctionResult.UNKNOWN_PARTICIPANT;
+        }
+        if (startTime <= 0)
+        {
+            return AddAuctionResult.INVALID_START_TIME;
+        }
+        if (endTime <= now)
+        {
+            return AddAuctionResult.INVALID_END_TIME;
+        }
+        if (endTime <= startTime)
+        {
+            return AddAuctionResult.INVALID_DURATION;
+        }
+        if (null == name || name.isBlank())
+        {
+            return AddAuctionResult.INVALID_NAME;
+        }
+        if (null == description || description.isBlank())
+        {
+            return AddAuctionResult.INVALID_DESCRIPTION;
+        }
+        return AddAuctionResult.SUCCESS;
+    }
+
+    private AddAuctionBidResult validateBid(final Auction auction, final long participantId, final long price)
+    {
+        if (null == auction)
+        {
+            return AddAuctionBidResult.UNKNOWN_AUCTION;
+        }
+        if (!participants.isKnownParticipant(participantId))
+        {
+            return AddAuctionBidResult.UNKNOWN_PARTICIPANT;
+        }
+        if (auction.createdByParticipantId() == participantId)
+        {
+            return AddAuctionBidResult.CANNOT_SELF_BID;
+        }
+        if (auction.status() != AuctionStatus.OPEN)
+        {
+            return AddAuctionBidResult.AUCTION_NOT_OPEN;
+        }
+        if (price <= 0)
+        {
+            return AddAuctionBidResult.INVALID_PRICE;
+        }
+        if (price <= auction.currentPrice())
+        {
+            return AddAuctionBidResult.PRICE_BELOW_CURRENT_WINNING_BID;
+        }
+        return AddAuctionBidResult.SUCCESS;
+    }
+}
@@ -16,11 +16,75 @@
 
 package io.aeron.samples.domain.participants;
 
+import org.agrona.DirectBuffer;
+
+import java.nio.ByteOrder;
+
 /**
- * Represents a participant in the cluster
- * @param participantId the id of the participant
- * @param name the name of the participant
+ * Flyweight over a participant record held in the participant store. A record is laid out as an SBE message body
+ * with a single var data field: the participant id, followed by a uint32 name length and the UTF-8 name bytes.
+ * <p>
+ * A flyweight is only valid until the store is next modified, and must not be retained.
  */
-public record Participant(long participantId, String name)
+public final class Participant
 {
+    static final int PARTICIPANT_ID_OFFSET = 0;
+    static final int NAME_LENGTH_OFFSET = PARTICIPANT_ID_OFFSET + Long.BYTES;
+    static final int NAME_OFFSET = NAME_LENGTH_OFFSET + Integer.BYTES;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private DirectBuffer buffer;
+    private int offset;
+
+    Participant wrap(final DirectBuffer buffer, final int offset)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Gets the id of the participant
+     * @return the participant id
+     */
+    public long participantId()
+    {
+        return buffer.getLong(offset + PARTICIPANT_ID_OFFSET, BYTE_ORDER);
+    }
+
+    /**
+     * Gets the length of the participant name in bytes
+     * @return the name length
+     */
+    public int nameLength()
+    {
+        return buffer.getInt(offset + NAME_LENGTH_OFFSET, BYTE_ORDER);
+    }
+
+    /**
+     * Gets the buffer holding the name bytes, for copying without allocation
+     * @return the buffer holding the record
+     */
+    public DirectBuffer buffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Gets the offset of the name bytes within {@link #buffer()}
+     * @return the offset of the name bytes
+     */
+    public int nameOffset()
+    {
+        return offset + NAME_OFFSET;
+    }
+
+    /**
+     * Gets the name of the participant. This allocates a String, so is intended for logging and tooling only
+     * @return the name of the participant
+     */
+    public String name()
+    {
+        return buffer.getStringWithoutLengthUtf8(offset + NAME_OFFSET, nameLength());
+    }
 }
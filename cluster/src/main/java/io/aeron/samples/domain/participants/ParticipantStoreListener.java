@@ -0,0 +1,38 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.domain.participants;
+
+/**
+ * Receives each participant as it is added to, replaced within, or restored into {@link Participants}, so that a
+ * representation of the store can be kept up to date incrementally.
+ */
+@FunctionalInterface
+public interface ParticipantStoreListener
+{
+    /**
+     * Replaced name length passed for a participant that was not previously known
+     */
+    int NEW_PARTICIPANT = -1;
+
+    /**
+     * Called after a participant has been stored
+     * @param participant a flyweight over the stored participant, which must not be retained
+     * @param replacedNameLength the name length of the participant this replaced, or {@link #NEW_PARTICIPANT}
+     */
+    void onParticipantStored(Participant participant, int replacedNameLength);
+}
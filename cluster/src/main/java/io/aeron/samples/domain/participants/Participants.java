@@ -17,69 +17,223 @@
 package io.aeron.samples.domain.participants;
 
 import io.aeron.samples.infra.ClusterClientResponder;
-import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.collections.Hashing;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Comparator;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
 
 /**
- * Holds the participants in the cluster
+ * Holds the participants in the cluster.
+ * <p>
+ * Participants are stored as records in an off-heap slab, appended in the order they are added and laid out as
+ * described in {@link Participant}. An open addressing index, keyed on the participant id read back from the slab,
+ * maps each participant to its record. Names are copied straight from the buffer they arrive in, so adding a
+ * participant allocates no objects on the heap. A {@link SortedParticipantIndex} is maintained on insert, so
+ * participants can be walked in id order without sorting.
+ * <p>
+ * A participant renamed to a name that needs a record of a different length is appended again, leaving its earlier
+ * record in the slab as dead bytes. Once half of the slab is dead, or the slab is full, the live records are moved
+ * down over the dead ones, in slab order, so every member compacts at the same point in the log.
  */
 public class Participants
 {
+    /**
+     * Start id for {@link #forEachParticipantAfter(long, int, Consumer)} to begin at the first participant
+     */
+    public static final long FROM_FIRST_PARTICIPANT = Long.MIN_VALUE;
     private static final Logger LOGGER = LoggerFactory.getLogger(Participants.class);
-    private final Long2ObjectHashMap<Participant> participantMap = new Long2ObjectHashMap<>();
+    private static final int RECORD_ALIGNMENT = Long.BYTES;
+    private static final int INITIAL_SLAB_CAPACITY = 64 * 1024;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    private static final float INDEX_LOAD_FACTOR = 0.65f;
+    private static final int MAX_INDEX_CAPACITY = 1 << 30;
+    private static final int NULL_RECORD = -1;
+
+    private final ExpandableDirectByteBuffer slab = new ExpandableDirectByteBuffer(INITIAL_SLAB_CAPACITY);
+    private final SortedParticipantIndex sortedIndex = new SortedParticipantIndex(slab);
+    private final Participant participant = new Participant();
     private final ClusterClientResponder clusterClientResponder;
+    private final ParticipantStoreListener storeListener;
+    private int[] index;
+    private int resizeThreshold;
+    private int participantCount = 0;
+    private int slabLength = 0;
+    private int deadLength = 0;
+    private long totalNameLength = 0;
 
     /**
      * Constructor
      * @param clusterClientResponder the cluster client responder
      */
     public Participants(final ClusterClientResponder clusterClientResponder)
+    {
+        this(clusterClientResponder, (participant, replacedNameLength) -> {});
+    }
+
+    /**
+     * Constructor
+     * @param clusterClientResponder the cluster client responder
+     * @param storeListener the listener to notify of each participant stored
+     */
+    public Participants(
+        final ClusterClientResponder clusterClientResponder,
+        final ParticipantStoreListener storeListener)
     {
         this.clusterClientResponder = clusterClientResponder;
+        this.storeListener = storeListener;
+        allocateIndex(INITIAL_INDEX_CAPACITY);
         addDefaultParticipants();
     }
 
     /**
-     * Adds a participant to the cluster
+     * Adds a participant to the cluster, replacing the name of any participant with the same id
      * @param participantId the id of the participant
-     * @param name the name of the participant
      * @param correlationId the correlation id of the request
+     * @param nameBuffer the buffer holding the UTF-8 name of the participant
+     * @param nameOffset the offset of the name within the buffer
+     * @param nameLength the length of the name in bytes
      */
-    public void addParticipant(final long participantId, final String correlationId, final String name)
+    public void addParticipant(
+        final long participantId,
+        final long correlationId,
+        final DirectBuffer nameBuffer,
+        final int nameOffset,
+        final int nameLength)
     {
-        LOGGER.info("Adding participant {} with name {}", participantId, name);
-        final var participant = new Participant(participantId, name);
-        participantMap.put(participantId, participant);
+        LOGGER.info("Adding participant {}", participantId);
+        store(participantId, nameBuffer, nameOffset, nameLength);
         clusterClientResponder.acknowledgeParticipantAdded(participantId, correlationId);
     }
 
     /**
      * Restores a participant to the cluster
      * @param participantId the id of the participant
-     * @param name the name of the participant
+     * @param nameBuffer the buffer holding the UTF-8 name of the participant
+     * @param nameOffset the offset of the name within the buffer
+     * @param nameLength the length of the name in bytes
+     */
+    public void restoreParticipant(
+        final long participantId,
+        final DirectBuffer nameBuffer,
+        final int nameOffset,
+        final int nameLength)
+    {
+        store(participantId, nameBuffer, nameOffset, nameLength);
+    }
+
+    /**
+     * Gets a participant by id
+     * @param participantId the id of the participant
+     * @return a flyweight over the participant, valid until the store is next modified, or null if not known
+     */
+    public Participant getParticipant(final long participantId)
+    {
+        final int recordOffset = index[find(participantId)];
+        return NULL_RECORD == recordOffset ? null : participant.wrap(slab, recordOffset);
+    }
+
+    /**
+     * Visits all participants in the cluster, in participant id order. The same flyweight instance is passed for
+     * each participant and must not be retained.
+     * @param consumer the consumer to receive each participant
+     */
+    public void forEachParticipant(final Consumer<Participant> consumer)
+    {
+        for (int block = 0, blockCount = sortedIndex.blockCount(); block < blockCount; block++)
+        {
+            for (int position = 0, blockSize = sortedIndex.blockSize(block); position < blockSize; position++)
+            {
+                consumer.accept(participant.wrap(slab, sortedIndex.recordOffset(block, position)));
+            }
+        }
+    }
+
+    /**
+     * Visits up to a limited number of participants in participant id order, starting after the given participant
+     * id. The same flyweight instance is passed for each participant and must not be retained.
+     * @param startAfterId the participant id to start after, or {@link #FROM_FIRST_PARTICIPANT} to start from the
+     *                     first participant
+     * @param limit the maximum number of participants to visit
+     * @param consumer the consumer to receive each participant
+     * @return the number of participants visited
      */
-    public void restoreParticipant(final long participantId, final String name)
+    public int forEachParticipantAfter(final long startAfterId, final int limit, final Consumer<Participant> consumer)
     {
-        LOGGER.info("Restoring participant {} with name {}", participantId, name);
-        final var participant = new Participant(participantId, name);
-        participantMap.put(participantId, participant);
+        int visited = 0;
+        int block = sortedIndex.blockAfter(startAfterId);
+        int position = sortedIndex.positionAfter(block, startAfterId);
+        for (final int blockCount = sortedIndex.blockCount(); block < blockCount && visited < limit; block++)
+        {
+            final int blockSize = sortedIndex.blockSize(block);
+            for (; position < blockSize && visited < limit; position++)
+            {
+                consumer.accept(participant.wrap(slab, sortedIndex.recordOffset(block, position)));
+                visited++;
+            }
+            position = 0;
+        }
+        return visited;
     }
 
     /**
-     * Lists all participants in the cluster, after sorting by participant id
-     * @return the list of participants
+     * Determines if there are any participants with an id after the given participant id
+     * @param participantId the participant id to check after
+     * @return true if there is at least one participant with a greater id
      */
-    public List<Participant> getParticipantList()
+    public boolean hasParticipantAfter(final long participantId)
     {
-        return participantMap
-            .values()
-            .stream()
-            .sorted(Comparator.comparingLong(Participant::participantId))
-            .toList();
+        final int block = sortedIndex.blockAfter(participantId);
+        return block < sortedIndex.blockCount() &&
+            sortedIndex.positionAfter(block, participantId) < sortedIndex.blockSize(block);
+    }
+
+    /**
+     * Gets the number of participants in the cluster
+     * @return the participant count
+     */
+    public int participantCount()
+    {
+        return participantCount;
+    }
+
+    /**
+     * Gets the total length of the names of the participants in the cluster
+     * @return the total name length in bytes
+     */
+    public long totalNameLength()
+    {
+        return totalNameLength;
+    }
+
+    /**
+     * Presizes the store to hold the given participants without growing, ahead of restoring them from a snapshot
+     * @param participantCount the number of participants to be held
+     * @param totalNameLength the total length of their names in bytes
+     */
+    public void ensureCapacity(final int participantCount, final long totalNameLength)
+    {
+        if (participantCount <= 0)
+        {
+            return;
+        }
+
+        final long requiredIndexCapacity = (long)Math.ceil(participantCount / (double)INDEX_LOAD_FACTOR) + 1;
+        if (requiredIndexCapacity > index.length && requiredIndexCapacity <= MAX_INDEX_CAPACITY)
+        {
+            rehash(BitUtil.findNextPositivePowerOfTwo((int)requiredIndexCapacity));
+        }
+
+        final long requiredSlabLength = slabLength + totalNameLength +
+            (long)participantCount * (Participant.NAME_OFFSET + RECORD_ALIGNMENT - 1);
+        slab.checkLimit((int)Math.min(requiredSlabLength, ExpandableDirectByteBuffer.MAX_BUFFER_LENGTH));
+        sortedIndex.ensureCapacity(participantCount);
     }
 
     /**
@@ -89,7 +243,163 @@ public class Participants
      */
     public boolean isKnownParticipant(final long participantId)
     {
-        return participantMap.containsKey(participantId);
+        return NULL_RECORD != index[find(participantId)];
+    }
+
+    private void store(
+        final long participantId,
+        final DirectBuffer nameBuffer,
+        final int nameOffset,
+        final int nameLength)
+    {
+        final int indexPosition = find(participantId);
+        final int existingRecordOffset = index[indexPosition];
+        final int replacedNameLength = NULL_RECORD == existingRecordOffset ? ParticipantStoreListener.NEW_PARTICIPANT :
+            slab.getInt(existingRecordOffset + Participant.NAME_LENGTH_OFFSET, Participant.BYTE_ORDER);
+        if (NULL_RECORD != existingRecordOffset && recordLength(replacedNameLength) == recordLength(nameLength))
+        {
+            writeRecord(existingRecordOffset, participantId, nameBuffer, nameOffset, nameLength);
+            totalNameLength += nameLength - replacedNameLength;
+            storeListener.onParticipantStored(participant.wrap(slab, existingRecordOffset), replacedNameLength);
+            return;
+        }
+
+        final int recordLength = recordLength(nameLength);
+        compactIfRequired(recordLength);
+        if (slabLength > ExpandableDirectByteBuffer.MAX_BUFFER_LENGTH - recordLength)
+        {
+            throw new IllegalStateException("participant store is full: " + participantCount + " participants");
+        }
+
+        final int recordOffset = slabLength;
+        writeRecord(recordOffset, participantId, nameBuffer, nameOffset, nameLength);
+        slabLength += recordLength;
+        index[indexPosition] = recordOffset;
+
+        if (NULL_RECORD != existingRecordOffset)
+        {
+            sortedIndex.update(participantId, recordOffset);
+            totalNameLength += nameLength - replacedNameLength;
+            deadLength += recordLength(replacedNameLength);
+        }
+        else
+        {
+            sortedIndex.insert(participantId, recordOffset);
+            totalNameLength += nameLength;
+            if (++participantCount > resizeThreshold)
+            {
+                rehash(index.length << 1);
+            }
+        }
+        storeListener.onParticipantStored(participant.wrap(slab, recordOffset), replacedNameLength);
+    }
+
+    private void compactIfRequired(final int appendLength)
+    {
+        if (deadLength > 0 && (deadLength >= slabLength - deadLength ||
+            slabLength > ExpandableDirectByteBuffer.MAX_BUFFER_LENGTH - appendLength))
+        {
+            compact();
+        }
+    }
+
+    /**
+     * Moves each live record down over the dead records before it. A record is live if the index still maps its
+     * participant id to it; a dead record always precedes the live record of the same participant, which has not been
+     * moved yet, so the index entries read while probing are all valid.
+     */
+    private void compact()
+    {
+        int writeOffset = 0;
+        int readOffset = 0;
+        while (readOffset < slabLength)
+        {
+            final long participantId = slab.getLong(readOffset + Participant.PARTICIPANT_ID_OFFSET,
+                Participant.BYTE_ORDER);
+            final int recordLength = recordLength(
+                slab.getInt(readOffset + Participant.NAME_LENGTH_OFFSET, Participant.BYTE_ORDER));
+            final int indexPosition = find(participantId);
+            if (readOffset == index[indexPosition])
+            {
+                if (writeOffset != readOffset)
+                {
+                    slab.putBytes(writeOffset, slab, readOffset, recordLength);
+                    index[indexPosition] = writeOffset;
+                    sortedIndex.update(participantId, writeOffset);
+                }
+                writeOffset += recordLength;
+            }
+            readOffset += recordLength;
+        }
+        slabLength = writeOffset;
+        deadLength = 0;
+    }
+
+    private void writeRecord(
+        final int recordOffset,
+        final long participantId,
+        final DirectBuffer nameBuffer,
+        final int nameOffset,
+        final int nameLength)
+    {
+        slab.putLong(recordOffset + Participant.PARTICIPANT_ID_OFFSET, participantId, Participant.BYTE_ORDER);
+        slab.putInt(recordOffset + Participant.NAME_LENGTH_OFFSET, nameLength, Participant.BYTE_ORDER);
+        slab.putBytes(recordOffset + Participant.NAME_OFFSET, nameBuffer, nameOffset, nameLength);
+    }
+
+    /**
+     * Finds the index position for a participant id, using linear probing
+     * @param participantId the id of the participant
+     * @return the position holding the participant's record offset, or the empty position at which to add it
+     */
+    private int find(final long participantId)
+    {
+        final int mask = index.length - 1;
+        int position = Hashing.hash(participantId, mask);
+        int recordOffset;
+        while (NULL_RECORD != (recordOffset = index[position]))
+        {
+            if (participantId == slab.getLong(recordOffset + Participant.PARTICIPANT_ID_OFFSET,
+                Participant.BYTE_ORDER))
+            {
+                break;
+            }
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    private void rehash(final int newCapacity)
+    {
+        final int[] oldIndex = index;
+        allocateIndex(newCapacity);
+        final int mask = newCapacity - 1;
+        for (final int recordOffset : oldIndex)
+        {
+            if (NULL_RECORD != recordOffset)
+            {
+                final long participantId = slab.getLong(recordOffset + Participant.PARTICIPANT_ID_OFFSET,
+                    Participant.BYTE_ORDER);
+                int position = Hashing.hash(participantId, mask);
+                while (NULL_RECORD != index[position])
+                {
+                    position = (position + 1) & mask;
+                }
+                index[position] = recordOffset;
+            }
+        }
+    }
+
+    private void allocateIndex(final int capacity)
+    {
+        index = new int[capacity];
+        Arrays.fill(index, NULL_RECORD);
+        resizeThreshold = (int)(capacity * INDEX_LOAD_FACTOR);
+    }
+
+    private static int recordLength(final int nameLength)
+    {
+        return BitUtil.align(Participant.NAME_OFFSET + nameLength, RECORD_ALIGNMENT);
     }
 
     /**
@@ -97,10 +407,10 @@ public class Participants
      */
     private void addDefaultParticipants()
     {
-        final var initiator = new Participant(500, "initiator");
-        participantMap.put(500, initiator);
+        final UnsafeBuffer initiator = new UnsafeBuffer("initiator".getBytes(StandardCharsets.UTF_8));
+        store(500, initiator, 0, initiator.capacity());
 
-        final var responder = new Participant(501, "responder");
-        participantMap.put(501, responder);
+        final UnsafeBuffer responder = new UnsafeBuffer("responder".getBytes(StandardCharsets.UTF_8));
+        store(501, responder, 0, responder.capacity());
     }
 }
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.aeron.samples.domain.participants;
+
+import org.agrona.BitUtil;
+import org.agrona.DirectBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Ordered index of participant record offsets, kept sorted by participant id as participants are added.
+ * <p>
+ * Offsets are held in blocks of up to {@link #BLOCK_CAPACITY} entries, with the first participant id of each block
+ * kept alongside. An insert binary searches for the block and then the position within it, so the cost of shifting
+ * entries is bounded by the block size rather than the number of participants. Ids are read back from the slab, so
+ * the index costs four bytes per participant plus block slack. Ids arriving in ascending order, as when restoring a
+ * snapshot, skip the search and are appended to the last block, which leaves every block full.
+ */
+final class SortedParticipantIndex
+{
+    static final int BLOCK_CAPACITY = 512;
+    private static final int INITIAL_BLOCKS = 16;
+
+    private final DirectBuffer slab;
+    private int[][] blocks = new int[INITIAL_BLOCKS][];
+    private int[] blockSizes = new int[INITIAL_BLOCKS];
+    private long[] blockFirstIds = new long[INITIAL_BLOCKS];
+    private int blockCount = 0;
+
+    SortedParticipantIndex(final DirectBuffer slab)
+    {
+        this.slab = slab;
+    }
+
+    int blockCount()
+    {
+        return blockCount;
+    }
+
+    int blockSize(final int block)
+    {
+        return blockSizes[block];
+    }
+
+    int recordOffset(final int block, final int position)
+    {
+        return blocks[block][position];
+    }
+
+    /**
+     * Finds the block holding the first participant with an id after the given id. {@link Long#MIN_VALUE} is
+     * treated as before all participants.
+     * @param participantId the id to start after
+     * @return the block, which is {@link #blockCount()} when the index is empty
+     */
+    int blockAfter(final long participantId)
+    {
+        if (0 == blockCount || Long.MIN_VALUE == participantId)
+        {
+            return 0;
+        }
+
+        final int block = findBlock(participantId);
+        return positionAfter(block, participantId) < blockSizes[block] ? block : block + 1;
+    }
+
+    /**
+     * Finds the position within a block of the first participant with an id after the given id
+     * @param block the block returned by {@link #blockAfter(long)}
+     * @param participantId the id to start after
+     * @return the position, which is the block size when there is no such participant in the block
+     */
+    int positionAfter(final int block, final long participantId)
+    {
+        if (block >= blockCount || Long.MIN_VALUE == participantId)
+        {
+            return 0;
+        }
+
+        final int position = findPosition(block, participantId);
+        return position < blockSizes[block] && participantIdAt(blocks[block][position]) == participantId ?
+            position + 1 : position;
+    }
+
+    /**
+     * Grows the block arrays ahead of adding participants in ascending id order, as when restoring a snapshot
+     * @param participantCount the number of participants expected to be held
+     */
+    void ensureCapacity(final int participantCount)
+    {
+        final int requiredBlocks = (participantCount + BLOCK_CAPACITY - 1) / BLOCK_CAPACITY;
+        if (requiredBlocks > blocks.length)
+        {
+            final int newLength = BitUtil.findNextPositivePowerOfTwo(requiredBlocks);
+            blocks = Arrays.copyOf(blocks, newLength);
+            blockSizes = Arrays.copyOf(blockSizes, newLength);
+            blockFirstIds = Arrays.copyOf(blockFirstIds, newLength);
+        }
+    }
+
+    /**
+     * Adds a participant that is not yet in the index
+     * @param participantId the id of the participant
+     * @param recordOffset the offset of the participant's record in the slab
+     */
+    void insert(final long participantId, final int recordOffset)
+    {
+        if (0 == blockCount)
+        {
+            addBlock(0);
+        }
+
+        final int lastBlock = blockCount - 1;
+        final int lastBlockSize = blockSizes[lastBlock];
+        if (0 == lastBlockSize || participantIdAt(blocks[lastBlock][lastBlockSize - 1]) < participantId)
+        {
+            append(participantId, recordOffset, lastBlock, lastBlockSize);
+            return;
+        }
+
+        int block = findBlock(participantId);
+        int position = findPosition(block, participantId);
+        if (BLOCK_CAPACITY == blockSizes[block])
+        {
+            if (block == blockCount - 1 && position == BLOCK_CAPACITY)
+            {
+                block = addBlock(blockCount);
+                position = 0;
+            }
+            else
+            {
+                splitBlock(block);
+                final int half = blockSizes[block];
+                if (position > half)
+                {
+                    block++;
+                    position -= half;
+                }
+            }
+        }
+
+        final int[] offsets = blocks[block];
+        final int size = blockSizes[block];
+        System.arraycopy(offsets, position, offsets, position + 1, size - position);
+        offsets[position] = recordOffset;
+        blockSizes[block] = size + 1;
+        if (0 == position)
+        {
+            blockFirstIds[block] = participantId;
+        }
+    }
+
+    /**
+     * Points an existing participant at a new record, after its record has moved within the slab
+     * @param participantId the id of the participant
+     * @param recordOffset the new offset of the participant's record in the slab
+     */
+    void update(final long participantId, final int recordOffset)
+    {
+        final int block = findBlock(participantId);
+        blocks[block][findPosition(block, participantId)] = recordOffset;
+    }
+
+    /**
+     * Finds the last block whose first id is not greater than the participant id, or the first block
+     * @param participantId the id of the participant
+     * @return the block the participant belongs in
+     */
+    private int findBlock(final long participantId)
+    {
+        if (blockFirstIds[blockCount - 1] <= participantId)
+        {
+            return blockCount - 1;
+        }
+
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high)
+        {
+            final int mid = (low + high + 1) >>> 1;
+            if (blockFirstIds[mid] <= participantId)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the position of the first entry in the block with an id not less than the participant id
+     * @param block the block to search
+     * @param participantId the id of the participant
+     * @return the position of the participant, or the position at which to insert it
+     */
+    private int findPosition(final int block, final long participantId)
+    {
+        final int[] offsets = blocks[block];
+        int low = 0;
+        int high = blockSizes[block];
+        if (high > 0 && participantIdAt(offsets[high - 1]) < participantId)
+        {
+            return high;
+        }
+
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (participantIdAt(offsets[mid]) < participantId)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void append(final long participantId, final int recordOffset, final int lastBlock, final int lastBlockSize)
+    {
+        int block = lastBlock;
+        int position = lastBlockSize;
+        if (BLOCK_CAPACITY == position)
+        {
+            block = addBlock(blockCount);
+            position = 0;
+        }
+
+        blocks[block][position] = recordOffset;
+        blockSizes[block] = position + 1;
+        if (0 == position)
+        {
+            blockFirstIds[block] = participantId;
+        }
+    }
+
+    private void splitBlock(final int block)
+    {
+        final int newBlock = addBlock(block + 1);
+        final int half = BLOCK_CAPACITY >> 1;
+        System.arraycopy(blocks[block], half, blocks[newBlock], 0, BLOCK_CAPACITY - half);
+        blockSizes[block] = half;
+        blockSizes[newBlock] = BLOCK_CAPACITY - half;
+        blockFirstIds[newBlock] = participantIdAt(blocks[newBlock][0]);
+    }
+
+    private int addBlock(final int block)
+    {
+        if (blockCount == blocks.length)
+        {
+            final int newLength = blocks.length << 1;
+            blocks = Arrays.copyOf(blocks, newLength);
+            blockSizes = Arrays.copyOf(blockSizes, newLength);
+            blockFirstIds = Arrays.copyOf(blockFirstIds, newLength);
+        }
+
+        final int moved = blockCount - block;
+        System.arraycopy(blocks, block, blocks, block + 1, moved);
+        System.arraycopy(blockSizes, block, blockSizes, block + 1, moved);
+        System.arraycopy(blockFirstIds, block, blockFirstIds, block + 1, moved);
+        blocks[block] = new int[BLOCK_CAPACITY];
+        blockSizes[block] = 0;
+        blockCount++;
+        return block;
+    }
+
+    private long participantIdAt(final int recordOffset)
+    {
+        return slab.getLong(recordOffset + Participant.PARTICIPANT_ID_OFFSET, Participant.BYTE_ORDER);
+    }
+}
@@ -23,11 +23,15 @@ import io.aeron.cluster.service.ClientSession;
 import io.aeron.cluster.service.Cluster;
 import io.aeron.cluster.service.ClusteredService;
 import io.aeron.logbuffer.Header;
+import io.aeron.samples.domain.auctions.AuctionScheduler;
+import io.aeron.samples.domain.auctions.Auctions;
 import io.aeron.samples.domain.participants.Participants;
 import org.agrona.DirectBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * The clustered service for the auction application.
  */
@@ -35,21 +39,117 @@ public class AppClusteredService implements ClusteredService
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(AppClusteredService.class);
     private final ClientSessions clientSessions = new ClientSessions();
-    private final SessionMessageContextImpl context = new SessionMessageContextImpl(clientSessions);
-    private final ClusterClientResponder clusterClientResponder = new ClusterClientResponderImpl(context);
-    private final Participants participants = new Participants(clusterClientResponder);
-    private final SnapshotManager snapshotManager = new SnapshotManager(participants, context);
-    private final SbeDemuxer sbeDemuxer = new SbeDemuxer(participants, clusterClientResponder);
+    private final SessionEgressQueues egressQueues;
+    private final SessionMessageContextImpl context;
+    private final Participants participants;
+    private final AuctionScheduler auctionScheduler;
+    private final Auctions auctions;
+    private final SnapshotManager snapshotManager;
+    private final SbeDemuxer sbeDemuxer;
+    private final CommandServiceTimes serviceTimes;
+    private final CatchUpTracker catchUpTracker;
+
+    /**
+     * Constructor, using the default egress queue budget, drain timer interval and stall threshold, and encoding
+     * participants when a snapshot is taken
+     */
+    public AppClusteredService()
+    {
+        this(
+            SessionEgressQueues.DEFAULT_QUEUE_BUDGET,
+            SessionEgressQueues.DEFAULT_DRAIN_TIMER_INTERVAL_MS,
+            false,
+            CommandServiceTimes.DEFAULT_STALL_THRESHOLD_NS);
+    }
+
+    /**
+     * Constructor
+     * @param egressQueueBudget the maximum bytes that may be queued for a back pressured client session before it is
+     *                          disconnected
+     * @param drainTimerIntervalMs the interval of the egress queue drain timer in milliseconds, or 0 for none, which
+     *                             must be the same on every member
+     * @param preEncodedSnapshot true to keep a pre-encoded image of the participants, updated as they are stored,
+     *                           which is offered in bulk when a snapshot is taken
+     * @param stallThresholdNs the service time above which a command is logged as a stall
+     */
+    public AppClusteredService(
+        final int egressQueueBudget,
+        final long drainTimerIntervalMs,
+        final boolean preEncodedSnapshot,
+        final long stallThresholdNs)
+    {
+        this(egressQueueBudget, drainTimerIntervalMs, preEncodedSnapshot, stallThresholdNs, true);
+    }
+
+    /**
+     * Constructor
+     * @param egressQueueBudget the maximum bytes that may be queued for a back pressured client session before it is
+     *                          disconnected
+     * @param drainTimerIntervalMs the interval of the egress queue drain timer in milliseconds, or 0 for none, which
+     *                             must be the same on every member
+     * @param preEncodedSnapshot true to keep a pre-encoded image of the participants, updated as they are stored,
+     *                           which is offered in bulk when a snapshot is taken
+     * @param stallThresholdNs the service time above which a command is logged as a stall
+     * @param trackCatchUp true to log when the service started and caught up with the live log, which is only
+     *                     meaningful when it runs in a cluster node or standby
+     */
+    public AppClusteredService(
+        final int egressQueueBudget,
+        final long drainTimerIntervalMs,
+        final boolean preEncodedSnapshot,
+        final long stallThresholdNs,
+        final boolean trackCatchUp)
+    {
+        egressQueues = new SessionEgressQueues(egressQueueBudget, drainTimerIntervalMs);
+        final Version1ProtocolAdapter version1Adapter = new Version1ProtocolAdapter();
+        context = new SessionMessageContextImpl(clientSessions, egressQueues, version1Adapter);
+        final ClusterClientResponder clusterClientResponder = new ClusterClientResponderImpl(context);
+        final ParticipantSnapshotImage participantImage = preEncodedSnapshot ? new ParticipantSnapshotImage() : null;
+        participants = null == participantImage ?
+            new Participants(clusterClientResponder) : new Participants(clusterClientResponder, participantImage);
+        auctionScheduler = new AuctionScheduler(context);
+        auctions = new Auctions(context, participants, clusterClientResponder, auctionScheduler);
+        snapshotManager = new SnapshotManager(participants, auctions, auctionScheduler, participantImage, context);
+        serviceTimes = new CommandServiceTimes(stallThresholdNs);
+        catchUpTracker = trackCatchUp ? new CatchUpTracker() : null;
+        sbeDemuxer = new SbeDemuxer(
+            participants, auctions, clusterClientResponder, context, serviceTimes, version1Adapter);
+    }
+
+    /**
+     * The participants held by the service
+     * @return the participants
+     */
+    public Participants participants()
+    {
+        return participants;
+    }
+
+    /**
+     * The auctions held by the service
+     * @return the auctions
+     */
+    public Auctions auctions()
+    {
+        return auctions;
+    }
 
     @Override
     public void onStart(final Cluster cluster, final Image snapshotImage)
     {
         snapshotManager.setIdleStrategy(cluster.idleStrategy());
-        context.setIdleStrategy(cluster.idleStrategy());
+        context.setCluster(cluster);
+        egressQueues.setCluster(cluster);
+        egressQueues.allocateCounters(cluster.aeron());
+        serviceTimes.allocateCounters(cluster.aeron());
         if (snapshotImage != null)
         {
             snapshotManager.loadSnapshot(snapshotImage);
         }
+        if (null != catchUpTracker)
+        {
+            catchUpTracker.onStart(cluster, snapshotImage != null);
+        }
     }
 
     @Override
@@ -65,6 +165,7 @@ public class AppClusteredService implements ClusteredService
     {
         context.setClusterTime(timestamp);
         clientSessions.removeSession(session);
+        egressQueues.onSessionClosed(session);
     }
 
     @Override
@@ -77,6 +178,11 @@ public class AppClusteredService implements ClusteredService
         final Header header)
     {
         context.setSessionContext(session, timestamp);
+        if (null != catchUpTracker)
+        {
+            catchUpTracker.onLogMessage(timestamp);
+        }
+        egressQueues.drain();
         sbeDemuxer.dispatch(buffer, offset, length);
     }
 
@@ -84,7 +190,36 @@ public class AppClusteredService implements ClusteredService
     public void onTimerEvent(final long correlationId, final long timestamp)
     {
         context.setClusterTime(timestamp);
-        LOGGER.error(" WHY IS THIS TIMER EVENT BEING FIRED? ");
+        if (SessionEgressQueues.DRAIN_TIMER_CORRELATION_ID == correlationId)
+        {
+            egressQueues.onDrainTimer(timestamp);
+        }
+        else
+        {
+            egressQueues.drain();
+            auctions.onTimerEvent(correlationId, timestamp);
+        }
+    }
+
+    @Override
+    public void onNewLeadershipTermEvent(
+        final long leadershipTermId,
+        final long logPosition,
+        final long timestamp,
+        final long termBaseLogPosition,
+        final int leaderMemberId,
+        final int logSessionId,
+        final TimeUnit timeUnit,
+        final int appVersion)
+    {
+        context.setClusterTime(timestamp);
+        egressQueues.startDrainTimer(timestamp);
+    }
+
+    @Override
+    public int doBackgroundWork(final long nowNs)
+    {
+        return serviceTimes.publish(nowNs);
     }
 
     @Override
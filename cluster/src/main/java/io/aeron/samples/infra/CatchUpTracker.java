@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.infra;
+
+import io.aeron.cluster.service.Cluster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Logs how long after the process started the service loaded its snapshot, and how long until it caught up with the
+ * live log, so that cold and warm restarts of nodes and standbys can be compared. The service is taken to have caught
+ * up when it first applies a log message whose cluster timestamp is within {@value #LIVE_THRESHOLD_MS}ms of the wall
+ * clock, so catching up is only measured while clients are sending commands.
+ */
+public class CatchUpTracker
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatchUpTracker.class);
+    private static final long LIVE_THRESHOLD_MS = 1000;
+
+    private final long processStartMs = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private Cluster cluster;
+    private boolean caughtUp;
+
+    /**
+     * Called once the service has started, and loaded its snapshot if it had one
+     * @param cluster the cluster the service is running in
+     * @param loadedSnapshot true if the service started from a snapshot
+     */
+    public void onStart(final Cluster cluster, final boolean loadedSnapshot)
+    {
+        this.cluster = cluster;
+        LOGGER.info("Service started {}ms after process start, from {} at log position {}",
+            System.currentTimeMillis() - processStartMs, loadedSnapshot ? "a snapshot" : "the start of the log",
+            cluster.logPosition());
+    }
+
+    /**
+     * Called for each message applied from the log
+     * @param timestamp the cluster timestamp of the message
+     */
+    public void onLogMessage(final long timestamp)
+    {
+        if (!caughtUp)
+        {
+            // The time unit is only known once the service has joined the log, after it has started.
+            final long nowMs = System.currentTimeMillis();
+            if (nowMs - cluster.timeUnit().toMillis(timestamp) <= LIVE_THRESHOLD_MS)
+            {
+                caughtUp = true;
+                LOGGER.info("Caught up with the live log {}ms after process start, at log position {}",
+                    nowMs - processStartMs, cluster.logPosition());
+            }
+        }
+    }
+}
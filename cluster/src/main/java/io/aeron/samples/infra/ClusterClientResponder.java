@@ -16,9 +16,11 @@
 
 package io.aeron.samples.infra;
 
-import io.aeron.samples.domain.participants.Participant;
-
-import java.util.List;
+import io.aeron.samples.domain.auctions.AddAuctionBidResult;
+import io.aeron.samples.domain.auctions.AddAuctionResult;
+import io.aeron.samples.domain.auctions.Auction;
+import io.aeron.samples.domain.auctions.Auctions;
+import io.aeron.samples.domain.participants.Participants;
 
 /**
  * Interface for responding to auction requests, encapsulating the SBE encoding and Aeron interactions
@@ -31,13 +33,82 @@ public interface ClusterClientResponder
      * @param participantId the id of the participant added
      * @param correlationId the correlation id provided by the client
      */
-    void acknowledgeParticipantAdded(long participantId, String correlationId);
+    void acknowledgeParticipantAdded(long participantId, long correlationId);
 
     /**
-     * Lists all participants in the cluster
+     * Lists all participants in the cluster, up to as many as fit within a single message
      *
-     * @param participantList the list of participants to return
+     * @param participants the participants to return, in participant id order
      * @param correlationId
      */
-    void returnParticipantList(List<Participant> participantList, String correlationId);
+    void returnParticipantList(Participants participants, long correlationId);
+
+    /**
+     * Lists a page of participants in the cluster, in participant id order, along with a cursor for the next page
+     *
+     * @param participants the participants to return a page of
+     * @param startAfterId the participant id to start the page after, or
+     *                     {@link Participants#FROM_FIRST_PARTICIPANT} to start from the first participant
+     * @param pageSize the maximum number of participants to return
+     * @param correlationId the correlation id provided by the client
+     */
+    void returnParticipantPage(Participants participants, long startAfterId, int pageSize, long correlationId);
+
+    /**
+     * Acknowledges that an auction has been added, using the correlation provided by the client
+     * @param auctionId the id assigned to the auction by the cluster
+     * @param correlationId the correlation id provided by the client
+     */
+    void acknowledgeAuctionAdded(long auctionId, long correlationId);
+
+    /**
+     * Rejects an attempt to add an auction
+     * @param result the reason the auction was rejected
+     * @param correlationId the correlation id provided by the client
+     */
+    void rejectAuction(AddAuctionResult result, long correlationId);
+
+    /**
+     * Acknowledges that a bid has been added to an auction
+     * @param auctionId the id of the auction
+     * @param correlationId the correlation id provided by the client
+     */
+    void acknowledgeBidAdded(long auctionId, long correlationId);
+
+    /**
+     * Rejects an attempt to add a bid to an auction
+     * @param auctionId the id of the auction
+     * @param result the reason the bid was rejected
+     * @param correlationId the correlation id provided by the client
+     */
+    void rejectBid(long auctionId, AddAuctionBidResult result, long correlationId);
+
+    /**
+     * Broadcasts a newly added auction to all connected sessions
+     * @param auction the auction added
+     */
+    void broadcastNewAuction(Auction auction);
+
+    /**
+     * Broadcasts a change of status or winning bid of an auction to all connected sessions
+     * @param auction the auction updated
+     */
+    void broadcastAuctionUpdate(Auction auction);
+
+    /**
+     * Lists all auctions in the cluster, up to as many as fit within a single message
+     * @param auctions the auctions to return, in auction id order
+     * @param correlationId the correlation id provided by the client
+     */
+    void returnAuctionList(Auctions auctions, long correlationId);
+
+    /**
+     * Lists a page of auctions in the cluster, in auction id order, along with a cursor for the next page
+     * @param auctions the auctions to return a page of
+     * @param startAfterId the auction id to start the page after, or {@link Auctions#FROM_FIRST_AUCTION} to start
+     *                     from the first auction
+     * @param pageSize the maximum number of auctions to return
+     * @param correlationId the correlation id provided by the client
+     */
+    void returnAuctionPage(Auctions auctions, long startAfterId, int pageSize, long correlationId);
 }
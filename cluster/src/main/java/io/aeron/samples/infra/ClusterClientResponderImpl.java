@@ -16,15 +16,30 @@
 
 package io.aeron.samples.infra;
 
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandResultEncoder;
 import io.aeron.samples.cluster.protocol.AddParticipantCommandResultEncoder;
+import io.aeron.samples.cluster.protocol.AuctionListEncoder;
+import io.aeron.samples.cluster.protocol.AuctionPageEncoder;
+import io.aeron.samples.cluster.protocol.AuctionUpdateEventEncoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandResultEncoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.NewAuctionEventEncoder;
 import io.aeron.samples.cluster.protocol.ParticipantListEncoder;
+import io.aeron.samples.cluster.protocol.ParticipantPageEncoder;
+import io.aeron.samples.domain.auctions.AddAuctionBidResult;
+import io.aeron.samples.domain.auctions.AddAuctionResult;
+import io.aeron.samples.domain.auctions.Auction;
+import io.aeron.samples.domain.auctions.AuctionStatus;
+import io.aeron.samples.domain.auctions.Auctions;
 import io.aeron.samples.domain.participants.Participant;
+import io.aeron.samples.domain.participants.Participants;
 import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Implementation of the {@link ClusterClientResponder} interface which returns SBE encoded results to the client
@@ -32,12 +47,53 @@ import java.util.List;
 public class ClusterClientResponderImpl implements ClusterClientResponder
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterClientResponderImpl.class);
+    /**
+     * Participant and auction listings are bounded to fit the max message length of the smallest (64k) egress term
+     * length, once downgraded for a version 1 client
+     */
+    private static final int MAX_LISTING_MESSAGE_LENGTH =
+        8 * 1024 - AeronCluster.SESSION_HEADER_LENGTH - Version1ProtocolAdapter.LENGTH_DIFFERENCE;
+    private static final int MAX_LISTING_ENTRIES = 65535;
+    private static final int ADD_PARTICIPANT_RESULT_LENGTH =
+        MessageHeaderEncoder.ENCODED_LENGTH + AddParticipantCommandResultEncoder.BLOCK_LENGTH;
+    private static final int CREATE_AUCTION_RESULT_LENGTH =
+        MessageHeaderEncoder.ENCODED_LENGTH + CreateAuctionCommandResultEncoder.BLOCK_LENGTH;
+    private static final int ADD_AUCTION_BID_RESULT_LENGTH =
+        MessageHeaderEncoder.ENCODED_LENGTH + AddAuctionBidCommandResultEncoder.BLOCK_LENGTH;
+    private static final int PARTICIPANT_ENTRY_LENGTH = ParticipantPageEncoder.ParticipantsEncoder.sbeBlockLength() +
+        ParticipantPageEncoder.ParticipantsEncoder.nameHeaderLength();
+    private static final int AUCTION_ENTRY_LENGTH = AuctionPageEncoder.AuctionsEncoder.sbeBlockLength() +
+        AuctionPageEncoder.AuctionsEncoder.nameHeaderLength();
     private final SessionMessageContextImpl context;
     private final AddParticipantCommandResultEncoder addParticipantResultEncoder =
         new AddParticipantCommandResultEncoder();
     private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
     private final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
     private final ParticipantListEncoder participantListEncoder = new ParticipantListEncoder();
+    private final CreateAuctionCommandResultEncoder createAuctionResultEncoder =
+        new CreateAuctionCommandResultEncoder();
+    private final AddAuctionBidCommandResultEncoder addAuctionBidResultEncoder =
+        new AddAuctionBidCommandResultEncoder();
+    private final NewAuctionEventEncoder newAuctionEventEncoder = new NewAuctionEventEncoder();
+    private final AuctionUpdateEventEncoder auctionUpdateEventEncoder = new AuctionUpdateEventEncoder();
+    private final AuctionListEncoder auctionListEncoder = new AuctionListEncoder();
+    private final ParticipantPageEncoder participantPageEncoder = new ParticipantPageEncoder();
+    private final AuctionPageEncoder auctionPageEncoder = new AuctionPageEncoder();
+    private final Consumer<Participant> participantListSizer = this::sizeParticipantListEntry;
+    private final Consumer<Participant> participantListWriter = this::writeParticipantListEntry;
+    private final Consumer<Participant> participantPageWriter = this::writeParticipantPageEntry;
+    private final Consumer<Auction> auctionListSizer = this::sizeAuctionListEntry;
+    private final Consumer<Auction> auctionListWriter = this::writeAuctionListEntry;
+    private final Consumer<Auction> auctionPageWriter = this::writeAuctionPageEntry;
+    private ParticipantListEncoder.ParticipantsEncoder participantListEntries;
+    private ParticipantPageEncoder.ParticipantsEncoder participantPageEntries;
+    private AuctionListEncoder.AuctionsEncoder auctionListEntries;
+    private AuctionPageEncoder.AuctionsEncoder auctionPageEntries;
+    private int listedLength;
+    private int listedCount;
+    private long lastListedId;
+    private boolean listingFull;
+
     /**
      * Constructor
      *
@@ -49,34 +105,350 @@ public class ClusterClientResponderImpl implements ClusterClientResponder
     }
 
     @Override
-    public void acknowledgeParticipantAdded(final long participantId, final String correlationId)
+    public void acknowledgeParticipantAdded(final long participantId, final long correlationId)
     {
-        //Sending the response back to the client
-        addParticipantResultEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        //Sending the response back to the client, encoded in place within the claimed egress buffer
+        final MutableDirectBuffer claimBuffer = context.claimReply(ADD_PARTICIPANT_RESULT_LENGTH);
+        addParticipantResultEncoder.wrapAndApplyHeader(claimBuffer, context.claimedOffset(), messageHeaderEncoder);
         addParticipantResultEncoder.correlationId(correlationId);
         addParticipantResultEncoder.participantId(participantId);
-        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + addParticipantResultEncoder.encodedLength());
+        context.commitReply();
     }
 
     @Override
-    public void returnParticipantList(final List<Participant> participants, final String correlationId)
+    public void returnParticipantList(final Participants participants, final long correlationId)
     {
+        final int count = sizeParticipantListing(participants, Participants.FROM_FIRST_PARTICIPANT,
+            MAX_LISTING_ENTRIES, ParticipantListEncoder.BLOCK_LENGTH);
+        if (participants.hasParticipantAfter(lastListedId))
+        {
+            LOGGER.warn("Participant list truncated to {} of {} participants; use the paged listing",
+                count, participants.participantCount());
+        }
+
         participantListEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
         participantListEncoder.correlationId(correlationId);
+        participantListEntries = participantListEncoder.participantsCount(count);
+        participants.forEachParticipantAfter(Participants.FROM_FIRST_PARTICIPANT, count, participantListWriter);
 
-        final ParticipantListEncoder.ParticipantsEncoder participantsEncoder =
-            participantListEncoder.participantsCount(participants.size());
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
+            participantListEncoder.encodedLength());
+    }
 
-        for (int i = 0; i < participants.size(); i++)
+    @Override
+    public void returnParticipantPage(
+        final Participants participants,
+        final long startAfterId,
+        final int pageSize,
+        final long correlationId)
+    {
+        final int limit = Math.max(1, Math.min(pageSize, MAX_LISTING_ENTRIES));
+        final int count =
+            sizeParticipantListing(participants, startAfterId, limit, ParticipantPageEncoder.BLOCK_LENGTH);
+        if (0 == count && listingFull)
         {
-            final Participant participant = participants.get(i);
-            participantsEncoder.next()
-                .participantId(participant.participantId())
-                .name(participant.name());
+            LOGGER.warn("Participant {} is too large to list, skipping", lastListedId);
         }
 
-        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH +
-            participantListEncoder.encodedLength());
+        final long nextStartAfterId = participants.hasParticipantAfter(lastListedId) ?
+            lastListedId : ParticipantPageEncoder.nextStartAfterIdNullValue();
+        participantPageEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .correlationId(correlationId)
+            .nextStartAfterId(nextStartAfterId);
+        participantPageEntries = participantPageEncoder.participantsCount(count);
+        participants.forEachParticipantAfter(startAfterId, count, participantPageWriter);
+
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + participantPageEncoder.encodedLength());
+    }
+
+    /**
+     * Determines how many participants, starting after the given id, fit within a listing message. Sets
+     * lastListedId to the last participant that fits or, if the first participant is too large to fit, to that
+     * participant so that a cursor can move past it.
+     * @param participants the participants to list
+     * @param startAfterId the participant id to start after
+     * @param limit the maximum number of participants to list
+     * @param blockLength the block length of the listing message
+     * @return the number of participants that fit
+     */
+    private int sizeParticipantListing(
+        final Participants participants,
+        final long startAfterId,
+        final int limit,
+        final int blockLength)
+    {
+        listedLength = MessageHeaderEncoder.ENCODED_LENGTH + blockLength +
+            ParticipantPageEncoder.ParticipantsEncoder.sbeHeaderSize();
+        listedCount = 0;
+        lastListedId = startAfterId;
+        listingFull = false;
+        participants.forEachParticipantAfter(startAfterId, limit, participantListSizer);
+        return listedCount;
+    }
+
+    private void sizeParticipantListEntry(final Participant participant)
+    {
+        if (listingFull)
+        {
+            return;
+        }
+
+        sizeListEntry(participant.participantId(), PARTICIPANT_ENTRY_LENGTH + participant.nameLength());
+    }
+
+    /**
+     * Adds an entry to the listing being sized, unless it would take the listing past the max message length
+     * @param id the participant or auction id of the entry
+     * @param entryLength the encoded length of the entry
+     */
+    private void sizeListEntry(final long id, final int entryLength)
+    {
+        if (listedLength + entryLength > MAX_LISTING_MESSAGE_LENGTH)
+        {
+            listingFull = true;
+            if (0 == listedCount)
+            {
+                lastListedId = id;
+            }
+            return;
+        }
+
+        listedLength += entryLength;
+        listedCount++;
+        lastListedId = id;
+    }
+
+    private void writeParticipantListEntry(final Participant participant)
+    {
+        participantListEntries.next()
+            .participantId(participant.participantId())
+            .putName(participant.buffer(), participant.nameOffset(), participant.nameLength());
     }
 
+    private void writeParticipantPageEntry(final Participant participant)
+    {
+        participantPageEntries.next()
+            .participantId(participant.participantId())
+            .putName(participant.buffer(), participant.nameOffset(), participant.nameLength());
+    }
+
+    @Override
+    public void acknowledgeAuctionAdded(final long auctionId, final long correlationId)
+    {
+        final MutableDirectBuffer claimBuffer = context.claimReply(CREATE_AUCTION_RESULT_LENGTH);
+        createAuctionResultEncoder.wrapAndApplyHeader(claimBuffer, context.claimedOffset(), messageHeaderEncoder)
+            .correlationId(correlationId)
+            .auctionId(auctionId)
+            .result(io.aeron.samples.cluster.protocol.AddAuctionResult.SUCCESS);
+        context.commitReply();
+    }
+
+    @Override
+    public void rejectAuction(final AddAuctionResult result, final long correlationId)
+    {
+        final MutableDirectBuffer claimBuffer = context.claimReply(CREATE_AUCTION_RESULT_LENGTH);
+        createAuctionResultEncoder.wrapAndApplyHeader(claimBuffer, context.claimedOffset(), messageHeaderEncoder)
+            .correlationId(correlationId)
+            .auctionId(CreateAuctionCommandResultEncoder.auctionIdNullValue())
+            .result(mapAddAuctionResult(result));
+        context.commitReply();
+    }
+
+    @Override
+    public void acknowledgeBidAdded(final long auctionId, final long correlationId)
+    {
+        final MutableDirectBuffer claimBuffer = context.claimReply(ADD_AUCTION_BID_RESULT_LENGTH);
+        addAuctionBidResultEncoder.wrapAndApplyHeader(claimBuffer, context.claimedOffset(), messageHeaderEncoder)
+            .correlationId(correlationId)
+            .auctionId(auctionId)
+            .result(io.aeron.samples.cluster.protocol.AddAuctionBidResult.SUCCESS);
+        context.commitReply();
+    }
+
+    @Override
+    public void rejectBid(final long auctionId, final AddAuctionBidResult result, final long correlationId)
+    {
+        final MutableDirectBuffer claimBuffer = context.claimReply(ADD_AUCTION_BID_RESULT_LENGTH);
+        addAuctionBidResultEncoder.wrapAndApplyHeader(claimBuffer, context.claimedOffset(), messageHeaderEncoder)
+            .correlationId(correlationId)
+            .auctionId(auctionId)
+            .result(mapAddAuctionBidResult(result));
+        context.commitReply();
+    }
+
+    @Override
+    public void broadcastNewAuction(final Auction auction)
+    {
+        newAuctionEventEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .auctionId(auction.auctionId())
+            .createdByParticipantId(auction.createdByParticipantId())
+            .startTime(auction.startTime())
+            .endTime(auction.endTime())
+            .name(auction.name())
+            .description(auction.description());
+        context.broadcast(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + newAuctionEventEncoder.encodedLength());
+    }
+
+    @Override
+    public void broadcastAuctionUpdate(final Auction auction)
+    {
+        auctionUpdateEventEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .auctionId(auction.auctionId())
+            .status(mapAuctionStatus(auction.status()))
+            .currentPrice(auction.currentPrice())
+            .bidCount(auction.bidCount())
+            .lastUpdateTime(auction.lastUpdateTime())
+            .winningParticipantId(auction.winningParticipantId());
+        context.broadcast(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionUpdateEventEncoder.encodedLength());
+    }
+
+    @Override
+    public void returnAuctionList(final Auctions auctions, final long correlationId)
+    {
+        final int count = sizeAuctionListing(auctions, Auctions.FROM_FIRST_AUCTION, MAX_LISTING_ENTRIES,
+            AuctionListEncoder.BLOCK_LENGTH);
+        if (auctions.hasAuctionAfter(lastListedId))
+        {
+            LOGGER.warn("Auction list truncated to {} of {} auctions; use the paged listing",
+                count, auctions.auctionCount());
+        }
+
+        auctionListEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder);
+        auctionListEncoder.correlationId(correlationId);
+        auctionListEntries = auctionListEncoder.auctionsCount(count);
+        auctions.forEachAuctionAfter(Auctions.FROM_FIRST_AUCTION, count, auctionListWriter);
+
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionListEncoder.encodedLength());
+    }
+
+    @Override
+    public void returnAuctionPage(
+        final Auctions auctions,
+        final long startAfterId,
+        final int pageSize,
+        final long correlationId)
+    {
+        final int limit = Math.max(1, Math.min(pageSize, MAX_LISTING_ENTRIES));
+        final int count = sizeAuctionListing(auctions, startAfterId, limit, AuctionPageEncoder.BLOCK_LENGTH);
+        if (0 == count && listingFull)
+        {
+            LOGGER.warn("Auction {} is too large to list, skipping", lastListedId);
+        }
+
+        final long nextStartAfterId = auctions.hasAuctionAfter(lastListedId) ?
+            lastListedId : AuctionPageEncoder.nextStartAfterIdNullValue();
+        auctionPageEncoder.wrapAndApplyHeader(buffer, 0, messageHeaderEncoder)
+            .correlationId(correlationId)
+            .nextStartAfterId(nextStartAfterId);
+        auctionPageEntries = auctionPageEncoder.auctionsCount(count);
+        auctions.forEachAuctionAfter(startAfterId, count, auctionPageWriter);
+
+        context.reply(buffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + auctionPageEncoder.encodedLength());
+    }
+
+    /**
+     * Determines how many auctions, starting after the given id, fit within a listing message, as
+     * {@link #sizeParticipantListing(Participants, long, int, int)} does for participants. Sizing visits the auctions
+     * first, so any status updates are broadcast before the listing is encoded into the shared buffer.
+     * @param auctions the auctions to list
+     * @param startAfterId the auction id to start after
+     * @param limit the maximum number of auctions to list
+     * @param blockLength the block length of the listing message
+     * @return the number of auctions that fit
+     */
+    private int sizeAuctionListing(
+        final Auctions auctions,
+        final long startAfterId,
+        final int limit,
+        final int blockLength)
+    {
+        listedLength = MessageHeaderEncoder.ENCODED_LENGTH + blockLength +
+            AuctionPageEncoder.AuctionsEncoder.sbeHeaderSize();
+        listedCount = 0;
+        lastListedId = startAfterId;
+        listingFull = false;
+        auctions.forEachAuctionAfter(startAfterId, limit, auctionListSizer);
+        return listedCount;
+    }
+
+    private void sizeAuctionListEntry(final Auction auction)
+    {
+        if (listingFull)
+        {
+            return;
+        }
+
+        sizeListEntry(auction.auctionId(), AUCTION_ENTRY_LENGTH + auction.nameBytes().length);
+    }
+
+    private void writeAuctionListEntry(final Auction auction)
+    {
+        final byte[] name = auction.nameBytes();
+        auctionListEntries.next()
+            .auctionId(auction.auctionId())
+            .createdByParticipantId(auction.createdByParticipantId())
+            .startTime(auction.startTime())
+            .endTime(auction.endTime())
+            .winningParticipantId(auction.winningParticipantId())
+            .currentPrice(auction.currentPrice())
+            .status(mapAuctionStatus(auction.status()))
+            .bidCount(auction.bidCount())
+            .putName(name, 0, name.length);
+    }
+
+    private void writeAuctionPageEntry(final Auction auction)
+    {
+        final byte[] name = auction.nameBytes();
+        auctionPageEntries.next()
+            .auctionId(auction.auctionId())
+            .createdByParticipantId(auction.createdByParticipantId())
+            .startTime(auction.startTime())
+            .endTime(auction.endTime())
+            .winningParticipantId(auction.winningParticipantId())
+            .currentPrice(auction.currentPrice())
+            .status(mapAuctionStatus(auction.status()))
+            .bidCount(auction.bidCount())
+            .putName(name, 0, name.length);
+    }
+
+    private static io.aeron.samples.cluster.protocol.AuctionStatus mapAuctionStatus(final AuctionStatus status)
+    {
+        return switch (status)
+        {
+            case PRE_OPEN -> io.aeron.samples.cluster.protocol.AuctionStatus.PRE_OPEN;
+            case OPEN -> io.aeron.samples.cluster.protocol.AuctionStatus.OPEN;
+            case CLOSED -> io.aeron.samples.cluster.protocol.AuctionStatus.CLOSED;
+        };
+    }
+
+    private static io.aeron.samples.cluster.protocol.AddAuctionResult mapAddAuctionResult(
+        final AddAuctionResult result)
+    {
+        return switch (result)
+        {
+            case SUCCESS -> io.aeron.samples.cluster.protocol.AddAuctionResult.SUCCESS;
+            case UNKNOWN_PARTICIPANT -> io.aeron.samples.cluster.protocol.AddAuctionResult.UNKNOWN_PARTICIPANT;
+            case INVALID_START_TIME -> io.aeron.samples.cluster.protocol.AddAuctionResult.INVALID_START_TIME;
+            case INVALID_END_TIME -> io.aeron.samples.cluster.protocol.AddAuctionResult.INVALID_END_TIME;
+            case INVALID_NAME -> io.aeron.samples.cluster.protocol.AddAuctionResult.INVALID_NAME;
+            case INVALID_DESCRIPTION -> io.aeron.samples.cluster.protocol.AddAuctionResult.INVALID_DESCRIPTION;
+            case INVALID_DURATION -> io.aeron.samples.cluster.protocol.AddAuctionResult.INVALID_DURATION;
+        };
+    }
+
+    private static io.aeron.samples.cluster.protocol.AddAuctionBidResult mapAddAuctionBidResult(
+        final AddAuctionBidResult result)
+    {
+        return switch (result)
+        {
+            case SUCCESS -> io.aeron.samples.cluster.protocol.AddAuctionBidResult.SUCCESS;
+            case PRICE_BELOW_CURRENT_WINNING_BID ->
+                io.aeron.samples.cluster.protocol.AddAuctionBidResult.PRICE_BELOW_CURRENT_WINNING_BID;
+            case INVALID_PRICE -> io.aeron.samples.cluster.protocol.AddAuctionBidResult.INVALID_PRICE;
+            case UNKNOWN_AUCTION -> io.aeron.samples.cluster.protocol.AddAuctionBidResult.UNKNOWN_AUCTION;
+            case UNKNOWN_PARTICIPANT -> io.aeron.samples.cluster.protocol.AddAuctionBidResult.UNKNOWN_PARTICIPANT;
+            case CANNOT_SELF_BID -> io.aeron.samples.cluster.protocol.AddAuctionBidResult.CANNOT_SELF_BID;
+            case AUCTION_NOT_OPEN -> io.aeron.samples.cluster.protocol.AddAuctionBidResult.AUCTION_NOT_OPEN;
+        };
+    }
 }
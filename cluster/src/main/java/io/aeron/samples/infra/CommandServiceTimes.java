@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.infra;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import io.aeron.samples.cluster.protocol.CommandDispatcher;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the time each command takes on the service thread, per command template, in HdrHistograms that are
+ * allocated up front so recording never allocates. Once a second, the p50, p99, p99.9 and max service time of the
+ * commands processed in that second are published to Aeron counters, along with the running count of each command,
+ * so they can be read live with AeronStat. Commands taking longer than the stall threshold are logged and counted.
+ */
+public class CommandServiceTimes
+{
+    /**
+     * Counter type id for the number of commands processed, per command
+     */
+    public static final int COUNT_COUNTER_TYPE_ID = 1010;
+    /**
+     * Counter type id for the p50 service time in nanoseconds, per command
+     */
+    public static final int P50_COUNTER_TYPE_ID = 1011;
+    /**
+     * Counter type id for the p99 service time in nanoseconds, per command
+     */
+    public static final int P99_COUNTER_TYPE_ID = 1012;
+    /**
+     * Counter type id for the p99.9 service time in nanoseconds, per command
+     */
+    public static final int P999_COUNTER_TYPE_ID = 1013;
+    /**
+     * Counter type id for the max service time in nanoseconds, per command
+     */
+    public static final int MAX_COUNTER_TYPE_ID = 1014;
+    /**
+     * Counter type id for the number of commands which took longer than the stall threshold
+     */
+    public static final int STALLS_COUNTER_TYPE_ID = 1015;
+    /**
+     * Default service time above which a command is logged as a stall
+     */
+    public static final long DEFAULT_STALL_THRESHOLD_NS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandServiceTimes.class);
+    private static final long PUBLICATION_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final long HIGHEST_TRACKABLE_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final long stallThresholdNs;
+    private final Histogram[] histograms = new Histogram[CommandDispatcher.MAX_TEMPLATE_ID + 1];
+    private final long[] intervalCounts = new long[CommandDispatcher.MAX_TEMPLATE_ID + 1];
+    private final long[] intervalMaxNs = new long[CommandDispatcher.MAX_TEMPLATE_ID + 1];
+    private final long[] totalCounts = new long[CommandDispatcher.MAX_TEMPLATE_ID + 1];
+    private final Counter[][] counters = new Counter[CommandDispatcher.MAX_TEMPLATE_ID + 1][];
+    private Counter stallsCounter;
+    private long stallCount;
+    private long nextPublicationNs;
+
+    /**
+     * Constructor
+     * @param stallThresholdNs the service time above which a command is logged as a stall
+     */
+    public CommandServiceTimes(final long stallThresholdNs)
+    {
+        this.stallThresholdNs = stallThresholdNs;
+        for (int templateId = 0; templateId <= CommandDispatcher.MAX_TEMPLATE_ID; templateId++)
+        {
+            if (null != CommandDispatcher.commandName(templateId))
+            {
+                histograms[templateId] = new Histogram(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+            }
+        }
+    }
+
+    /**
+     * Allocates the counters that publish the service times, so that they can be observed with AeronStat
+     * @param aeron the aeron client to allocate the counters with
+     */
+    public void allocateCounters(final Aeron aeron)
+    {
+        for (int templateId = 0; templateId <= CommandDispatcher.MAX_TEMPLATE_ID; templateId++)
+        {
+            final String commandName = CommandDispatcher.commandName(templateId);
+            if (null != commandName)
+            {
+                counters[templateId] = new Counter[]{
+                    aeron.addCounter(COUNT_COUNTER_TYPE_ID, "Command count: " + commandName),
+                    aeron.addCounter(P50_COUNTER_TYPE_ID, "Command service time p50 ns: " + commandName),
+                    aeron.addCounter(P99_COUNTER_TYPE_ID, "Command service time p99 ns: " + commandName),
+                    aeron.addCounter(P999_COUNTER_TYPE_ID, "Command service time p99.9 ns: " + commandName),
+                    aeron.addCounter(MAX_COUNTER_TYPE_ID, "Command service time max ns: " + commandName),
+                };
+            }
+        }
+        stallsCounter = aeron.addCounter(STALLS_COUNTER_TYPE_ID, "Command stalls");
+    }
+
+    /**
+     * Records the service time of a command
+     * @param templateId the template id of the command
+     * @param serviceTimeNs the time taken to process the command in nanoseconds
+     */
+    public void record(final int templateId, final long serviceTimeNs)
+    {
+        if (templateId < 0 || templateId > CommandDispatcher.MAX_TEMPLATE_ID || null == histograms[templateId])
+        {
+            return;
+        }
+
+        histograms[templateId].recordValue(Math.min(Math.max(0, serviceTimeNs), HIGHEST_TRACKABLE_NS));
+        intervalCounts[templateId]++;
+        totalCounts[templateId]++;
+        if (serviceTimeNs > intervalMaxNs[templateId])
+        {
+            intervalMaxNs[templateId] = serviceTimeNs;
+        }
+
+        if (serviceTimeNs > stallThresholdNs)
+        {
+            stallCount++;
+            LOGGER.warn("Stall: {} took {}us on the service thread",
+                CommandDispatcher.commandName(templateId), TimeUnit.NANOSECONDS.toMicros(serviceTimeNs));
+        }
+    }
+
+    /**
+     * Publishes the service times recorded since the last publication to the counters, once the publication interval
+     * has passed, and starts a new interval. Commands with nothing recorded in the interval keep their last published
+     * service times.
+     * @param nowNs the current time in nanoseconds
+     * @return the number of commands whose service times were published
+     */
+    public int publish(final long nowNs)
+    {
+        if (nowNs < nextPublicationNs)
+        {
+            return 0;
+        }
+        nextPublicationNs = nowNs + PUBLICATION_INTERVAL_NS;
+
+        int published = 0;
+        for (int templateId = 0; templateId <= CommandDispatcher.MAX_TEMPLATE_ID; templateId++)
+        {
+            final long intervalCount = intervalCounts[templateId];
+            if (0 == intervalCount)
+            {
+                continue;
+            }
+
+            final Counter[] commandCounters = counters[templateId];
+            if (null != commandCounters)
+            {
+                final Histogram histogram = histograms[templateId];
+                final long maxNs = intervalMaxNs[templateId];
+                commandCounters[0].setOrdered(totalCounts[templateId]);
+                commandCounters[1].setOrdered(Math.min(histogram.getValueAtPercentile(50.0), maxNs));
+                commandCounters[2].setOrdered(Math.min(histogram.getValueAtPercentile(99.0), maxNs));
+                commandCounters[3].setOrdered(Math.min(histogram.getValueAtPercentile(99.9), maxNs));
+                commandCounters[4].setOrdered(maxNs);
+                published++;
+            }
+
+            histograms[templateId].reset();
+            intervalCounts[templateId] = 0;
+            intervalMaxNs[templateId] = 0;
+        }
+
+        if (null != stallsCounter)
+        {
+            stallsCounter.setOrdered(stallCount);
+        }
+        return published;
+    }
+}
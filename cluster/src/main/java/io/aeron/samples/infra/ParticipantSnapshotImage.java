@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.infra;
+
+import io.aeron.samples.cluster.protocol.GroupSizeEncodingEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.ParticipantSnapshotBatchEncoder;
+import io.aeron.samples.domain.participants.Participant;
+import io.aeron.samples.domain.participants.ParticipantStoreListener;
+import io.aeron.samples.domain.participants.Participants;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.collections.IntArrayList;
+
+import java.util.function.Consumer;
+
+/**
+ * An off-heap image of the participants, held as contiguous, already encoded ParticipantSnapshotBatch messages. The
+ * image is appended to as each participant is stored, so that taking a snapshot is a bulk copy of the image rather
+ * than an encode and offer per participant.
+ * <p>
+ * Each participant is appended to the last batch, whose group count is updated in place, until the batch reaches
+ * {@link #MAX_BATCH_LENGTH} and a new one is started. A participant that is replaced is appended again, leaving its
+ * earlier entry in the image as dead bytes; loading the image in order still restores the latest name. The image is
+ * rebuilt from the participants once half of it is dead.
+ */
+public class ParticipantSnapshotImage implements ParticipantStoreListener
+{
+    /**
+     * The maximum length of a batch message, which is the max message length of the smallest (64k) term length
+     */
+    public static final int MAX_BATCH_LENGTH = 8 * 1024;
+    private static final int INITIAL_IMAGE_CAPACITY = 64 * 1024;
+    private static final int MAX_PARTICIPANTS_PER_BATCH =
+        ParticipantSnapshotBatchEncoder.ParticipantsEncoder.countMaxValue();
+    private static final int GROUP_HEADER_OFFSET =
+        MessageHeaderEncoder.ENCODED_LENGTH + ParticipantSnapshotBatchEncoder.BLOCK_LENGTH;
+    private static final int BATCH_HEADER_LENGTH =
+        GROUP_HEADER_OFFSET + ParticipantSnapshotBatchEncoder.ParticipantsEncoder.sbeHeaderSize();
+    private static final int ENTRY_HEADER_LENGTH =
+        ParticipantSnapshotBatchEncoder.ParticipantsEncoder.sbeBlockLength() +
+        ParticipantSnapshotBatchEncoder.ParticipantsEncoder.nameHeaderLength();
+    private final ExpandableDirectByteBuffer image = new ExpandableDirectByteBuffer(INITIAL_IMAGE_CAPACITY);
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final ParticipantSnapshotBatchEncoder batchEncoder = new ParticipantSnapshotBatchEncoder();
+    private final GroupSizeEncodingEncoder groupSizeEncoder = new GroupSizeEncodingEncoder();
+    private final IntArrayList batchOffsets = new IntArrayList();
+    private final Consumer<Participant> participantAppender = this::append;
+    private ParticipantSnapshotBatchEncoder.ParticipantsEncoder batchEntries;
+    private int batchParticipantCount;
+    private int imageLength;
+    private int deadLength;
+
+    /**
+     * Appends the stored participant to the image
+     * @param participant the participant that was stored
+     * @param replacedNameLength the name length of the participant this replaced, or
+     *                           {@link ParticipantStoreListener#NEW_PARTICIPANT}
+     */
+    @Override
+    public void onParticipantStored(final Participant participant, final int replacedNameLength)
+    {
+        if (NEW_PARTICIPANT != replacedNameLength)
+        {
+            deadLength += ENTRY_HEADER_LENGTH + replacedNameLength;
+        }
+        append(participant);
+    }
+
+    /**
+     * Rebuilds the image from the participants if at least half of it is taken up by replaced participants
+     * @param participants the participants to rebuild the image from
+     */
+    public void compactIfRequired(final Participants participants)
+    {
+        if (deadLength > 0 && deadLength >= imageLength - deadLength)
+        {
+            imageLength = 0;
+            deadLength = 0;
+            batchOffsets.clear();
+            batchParticipantCount = 0;
+            participants.forEachParticipant(participantAppender);
+        }
+    }
+
+    /**
+     * Gets the buffer holding the image
+     * @return the image buffer, holding the batch messages from offset 0
+     */
+    public DirectBuffer buffer()
+    {
+        return image;
+    }
+
+    /**
+     * Gets the number of batch messages in the image
+     * @return the number of batches
+     */
+    public int batchCount()
+    {
+        return batchOffsets.size();
+    }
+
+    /**
+     * Gets the offset of a batch message within the image buffer
+     * @param batch the index of the batch
+     * @return the offset of the batch
+     */
+    public int batchOffset(final int batch)
+    {
+        return batchOffsets.getInt(batch);
+    }
+
+    /**
+     * Gets the length of a batch message
+     * @param batch the index of the batch
+     * @return the length of the batch, in bytes
+     */
+    public int batchLength(final int batch)
+    {
+        final int batchEnd = batch + 1 < batchOffsets.size() ? batchOffsets.getInt(batch + 1) : imageLength;
+        return batchEnd - batchOffsets.getInt(batch);
+    }
+
+    private void append(final Participant participant)
+    {
+        final int entryLength = ENTRY_HEADER_LENGTH + participant.nameLength();
+        if (batchOffsets.isEmpty() ||
+            batchParticipantCount == MAX_PARTICIPANTS_PER_BATCH ||
+            imageLength + entryLength - batchOffsets.getInt(batchOffsets.size() - 1) > MAX_BATCH_LENGTH)
+        {
+            batchOffsets.addInt(imageLength);
+            batchEntries = batchEncoder.wrapAndApplyHeader(image, imageLength, headerEncoder)
+                .participantsCount(MAX_PARTICIPANTS_PER_BATCH);
+            batchParticipantCount = 0;
+            imageLength += BATCH_HEADER_LENGTH;
+        }
+
+        batchEntries.next()
+            .participantId(participant.participantId())
+            .putName(participant.buffer(), participant.nameOffset(), participant.nameLength());
+        imageLength += entryLength;
+        batchParticipantCount++;
+        groupSizeEncoder.wrap(image, batchOffsets.getInt(batchOffsets.size() - 1) + GROUP_HEADER_OFFSET)
+            .numInGroup(batchParticipantCount);
+    }
+}
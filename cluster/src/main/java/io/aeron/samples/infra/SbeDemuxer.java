@@ -17,44 +17,69 @@
 package io.aeron.samples.infra;
 
 
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandDecoder;
 import io.aeron.samples.cluster.protocol.AddParticipantCommandDecoder;
+import io.aeron.samples.cluster.protocol.CommandBatchDecoder;
+import io.aeron.samples.cluster.protocol.CommandDispatcher;
+import io.aeron.samples.cluster.protocol.CommandHandler;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandDecoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsCommandDecoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsPageCommandDecoder;
 import io.aeron.samples.cluster.protocol.ListParticipantsCommandDecoder;
-import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
-import io.aeron.samples.domain.participants.Participant;
+import io.aeron.samples.cluster.protocol.ListParticipantsPageCommandDecoder;
+import io.aeron.samples.domain.auctions.Auctions;
 import io.aeron.samples.domain.participants.Participants;
 import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
-
 /**
  * Demultiplexes messages from the ingress stream to the appropriate domain handler.
+ * <p>
+ * Messages are decoded by the {@link CommandDispatcher} generated from the protocol schema, which calls back to the
+ * handler method for each command. A CommandBatch is unpacked in one pass, dispatching each of its commands in order
+ * with the replies to them collected into batched replies.
  */
-public class SbeDemuxer
+public class SbeDemuxer implements CommandHandler
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SbeDemuxer.class);
     private final Participants participants;
+    private final Auctions auctions;
     private final ClusterClientResponder responder;
-
-    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
-
-    private final AddParticipantCommandDecoder addParticipantDecoder = new AddParticipantCommandDecoder();
-    private final ListParticipantsCommandDecoder listParticipantsDecoder = new ListParticipantsCommandDecoder();
+    private final SessionMessageContext context;
+    private final CommandServiceTimes serviceTimes;
+    private final Version1ProtocolAdapter version1Adapter;
+    private final CommandDispatcher dispatcher = new CommandDispatcher(this);
+    private final CommandBatchDecoder commandBatchDecoder = new CommandBatchDecoder();
+    private final UnsafeBuffer commandBuffer = new UnsafeBuffer();
+    private final UnsafeBuffer nameBuffer = new UnsafeBuffer();
 
 
     /**
      * Dispatches ingress messages to domain logic.
      *
      * @param participants          the participants domain model to which commands are dispatched
+     * @param auctions              the auctions domain model to which commands are dispatched
      * @param responder             the responder to which responses are sent
+     * @param context               the session message context, used to batch the replies to a batch of commands
+     * @param serviceTimes          the service times, to which the time taken by each command is recorded
+     * @param version1Adapter       the adapter upgrading version 1 commands, shared with the session message context
      */
     public SbeDemuxer(
         final Participants participants,
-        final ClusterClientResponder responder)
+        final Auctions auctions,
+        final ClusterClientResponder responder,
+        final SessionMessageContext context,
+        final CommandServiceTimes serviceTimes,
+        final Version1ProtocolAdapter version1Adapter)
     {
         this.participants = participants;
+        this.auctions = auctions;
         this.responder = responder;
+        this.context = context;
+        this.serviceTimes = serviceTimes;
+        this.version1Adapter = version1Adapter;
     }
 
     /**
@@ -66,28 +91,158 @@ public class SbeDemuxer
      */
     public void dispatch(final DirectBuffer buffer, final int offset, final int length)
     {
-        if (length < MessageHeaderDecoder.ENCODED_LENGTH)
+        final int result = dispatchCommand(buffer, offset, length);
+        if (CommandDispatcher.UNKNOWN_TEMPLATE == result &&
+            CommandBatchDecoder.TEMPLATE_ID == dispatcher.headerDecoder().templateId())
         {
-            LOGGER.error("Message too short, ignored.");
-            return;
+            dispatchBatch(buffer, offset);
         }
-        headerDecoder.wrap(buffer, offset);
+        else
+        {
+            logIgnored(result);
+        }
+    }
 
-        switch (headerDecoder.templateId())
+    /**
+     * Dispatches each command of a CommandBatch in order, with the replies to them collected into batched replies.
+     * Commands are applied independently, so a rejected command does not affect the others in the batch.
+     * @param buffer the buffer containing the batch, including a header
+     * @param offset the offset of the batch
+     */
+    private void dispatchBatch(final DirectBuffer buffer, final int offset)
+    {
+        commandBatchDecoder.wrapAndApplyHeader(buffer, offset, dispatcher.headerDecoder());
+        context.beginReplyBatch();
+        try
         {
-            case AddParticipantCommandDecoder.TEMPLATE_ID ->
-            {
-                addParticipantDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
-                participants.addParticipant(addParticipantDecoder.participantId(),
-                    addParticipantDecoder.correlationId(), addParticipantDecoder.name());
-            }
-            case ListParticipantsCommandDecoder.TEMPLATE_ID ->
+            for (final CommandBatchDecoder.CommandsDecoder commands : commandBatchDecoder.commands())
             {
-                listParticipantsDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
-                final List<Participant> participantList = participants.getParticipantList();
-                responder.returnParticipantList(participantList, listParticipantsDecoder.correlationId());
+                commands.wrapCommand(commandBuffer);
+                logIgnored(dispatchCommand(commandBuffer, 0, commandBuffer.capacity()));
             }
-            default -> LOGGER.error("Unknown message template {}, ignored.", headerDecoder.templateId());
         }
+        finally
+        {
+            context.endReplyBatch();
+        }
+    }
+
+    /**
+     * Dispatches a single command, upgrading it first if it is from a version 1 client, in which case the replies to
+     * it are downgraded to version 1
+     * @param buffer the buffer containing the command, including a header
+     * @param offset the offset of the command
+     * @param length the length of the command
+     * @return the result of the dispatch, one of the {@link CommandDispatcher} result codes
+     */
+    private int dispatchCommand(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final int upgradedLength = version1Adapter.upgrade(buffer, offset, length);
+        if (0 == upgradedLength)
+        {
+            return dispatchTimed(buffer, offset, length);
+        }
+
+        try
+        {
+            return dispatchTimed(version1Adapter.upgradedBuffer(), 0, upgradedLength);
+        }
+        finally
+        {
+            version1Adapter.endVersion1Replies();
+        }
+    }
+
+    /**
+     * Dispatches a single command, recording its service time
+     * @param buffer the buffer containing the command, including a header
+     * @param offset the offset of the command
+     * @param length the length of the command
+     * @return the result of the dispatch, one of the {@link CommandDispatcher} result codes
+     */
+    private int dispatchTimed(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final long startNs = System.nanoTime();
+        final int result = dispatcher.dispatch(buffer, offset, length);
+        if (CommandDispatcher.DISPATCHED == result)
+        {
+            serviceTimes.record(dispatcher.headerDecoder().templateId(), System.nanoTime() - startNs);
+        }
+        return result;
+    }
+
+    /**
+     * Logs a message that was not dispatched, including a CommandBatch nested within a batch
+     * @param result the result of the dispatch, one of the {@link CommandDispatcher} result codes
+     */
+    private void logIgnored(final int result)
+    {
+        if (CommandDispatcher.MESSAGE_TOO_SHORT == result)
+        {
+            LOGGER.error("Message too short, ignored.");
+        }
+        else if (CommandDispatcher.FOREIGN_SCHEMA == result)
+        {
+            LOGGER.error("Message of unknown schema {}, ignored.", dispatcher.headerDecoder().schemaId());
+        }
+        else if (CommandDispatcher.UNKNOWN_TEMPLATE == result)
+        {
+            LOGGER.error("Unknown message template {}, ignored.", dispatcher.headerDecoder().templateId());
+        }
+    }
+
+    @Override
+    public void onAddParticipantCommand(final AddParticipantCommandDecoder decoder)
+    {
+        final long participantId = decoder.participantId();
+        final long correlationId = decoder.correlationId();
+        decoder.wrapName(nameBuffer);
+        participants.addParticipant(participantId, correlationId, nameBuffer, 0, nameBuffer.capacity());
+    }
+
+    @Override
+    public void onCreateAuctionCommand(final CreateAuctionCommandDecoder decoder)
+    {
+        auctions.addAuction(decoder.createdByParticipantId(), decoder.startTime(), decoder.endTime(),
+            decoder.name(), decoder.description(), decoder.correlationId());
+    }
+
+    @Override
+    public void onAddAuctionBidCommand(final AddAuctionBidCommandDecoder decoder)
+    {
+        auctions.addBid(decoder.auctionId(), decoder.addedByParticipantId(), decoder.price(),
+            decoder.correlationId());
+    }
+
+    @Override
+    public void onListAuctionsCommand(final ListAuctionsCommandDecoder decoder)
+    {
+        responder.returnAuctionList(auctions, decoder.correlationId());
+    }
+
+    @Override
+    public void onListAuctionsPageCommand(final ListAuctionsPageCommandDecoder decoder)
+    {
+        final long startAfterId = decoder.startAfterId();
+        responder.returnAuctionPage(auctions,
+            ListAuctionsPageCommandDecoder.startAfterIdNullValue() == startAfterId ?
+            Auctions.FROM_FIRST_AUCTION : startAfterId,
+            decoder.pageSize(), decoder.correlationId());
+    }
+
+    @Override
+    public void onListParticipantsCommand(final ListParticipantsCommandDecoder decoder)
+    {
+        responder.returnParticipantList(participants, decoder.correlationId());
+    }
+
+    @Override
+    public void onListParticipantsPageCommand(final ListParticipantsPageCommandDecoder decoder)
+    {
+        final long startAfterId = decoder.startAfterId();
+        responder.returnParticipantPage(participants,
+            ListParticipantsPageCommandDecoder.startAfterIdNullValue() == startAfterId ?
+            Participants.FROM_FIRST_PARTICIPANT : startAfterId,
+            decoder.pageSize(), decoder.correlationId());
     }
 }
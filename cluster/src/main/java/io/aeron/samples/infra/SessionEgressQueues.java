@@ -0,0 +1,394 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.infra;
+
+import io.aeron.Aeron;
+import io.aeron.Counter;
+import io.aeron.Publication;
+import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import org.agrona.BitUtil;
+import org.agrona.BufferUtil;
+import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.collections.Long2ObjectHashMap;
+import org.agrona.concurrent.ControlledMessageHandler;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.agrona.concurrent.ringbuffer.OneToOneRingBuffer;
+import org.agrona.concurrent.ringbuffer.RingBufferDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded per-session outbound queues for egress messages. Messages are offered directly to the session while it
+ * keeps up; once a session is back pressured, its messages are queued in order, so a slow client never stalls the
+ * log-processing thread for other clients. A session whose queue overflows the budget is disconnected.
+ * <p>
+ * The cluster does not allow sessions to be offered to from the background work of the clustered service, so queues
+ * are drained ahead of each message and timer the service handles, and from a periodic drain timer. Only the leader
+ * offers to sessions, so only the leader ever queues; the drain timer is nonetheless scheduled and rescheduled the
+ * same way on every member, as the consensus module expects each timer event in the log to match a timer scheduled by
+ * the service on every member. On followers the timer drains nothing. Every member must therefore use the same drain
+ * timer interval.
+ * <p>
+ * Each firing of the drain timer appends a timer event to the log, whether or not any session is backlogged, so the
+ * interval trades how long a backlog can wait on an otherwise idle cluster against permanent growth of the log.
+ */
+public class SessionEgressQueues
+{
+    /**
+     * Counter type id for the total bytes queued for back pressured sessions
+     */
+    public static final int QUEUED_BYTES_COUNTER_TYPE_ID = 1001;
+    /**
+     * Counter type id for the number of sessions with queued messages
+     */
+    public static final int BACKLOGGED_SESSIONS_COUNTER_TYPE_ID = 1002;
+    /**
+     * Counter type id for the number of sessions disconnected for overflowing their queue
+     */
+    public static final int EVICTED_SESSIONS_COUNTER_TYPE_ID = 1003;
+    /**
+     * The default per-session queue budget, in bytes
+     */
+    public static final int DEFAULT_QUEUE_BUDGET = 256 * 1024;
+    /**
+     * The correlation id of the cluster timer that drains the queues, outside the range of auction deadline ticks
+     */
+    public static final long DRAIN_TIMER_CORRELATION_ID = -1;
+    /**
+     * The default interval of the drain timer, in milliseconds, which appends one timer event to the log a second
+     */
+    public static final long DEFAULT_DRAIN_TIMER_INTERVAL_MS = 1000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionEgressQueues.class);
+    private static final int MIN_QUEUE_BUDGET = 64 * 1024;
+    private static final int MSG_TYPE_ID = 1;
+    private final int queueCapacity;
+    private final long drainTimerIntervalMs;
+    private final Long2ObjectHashMap<SessionQueue> queueBySessionId = new Long2ObjectHashMap<>();
+    private final List<SessionQueue> backloggedQueues = new ArrayList<>();
+    private final ArrayDeque<SessionQueue> freeQueues = new ArrayDeque<>();
+    private final ControlledMessageHandler drainHandler = this::onQueuedMessage;
+    private SessionQueue drainingQueue;
+    private Cluster cluster;
+    private long evictedSessions;
+    private Counter queuedBytesCounter;
+    private Counter backloggedSessionsCounter;
+    private Counter evictedSessionsCounter;
+
+    /**
+     * Constructor, using the default drain timer interval
+     * @param queueBudget the maximum bytes that may be queued for a single session, rounded up to a power of two
+     */
+    public SessionEgressQueues(final int queueBudget)
+    {
+        this(queueBudget, DEFAULT_DRAIN_TIMER_INTERVAL_MS);
+    }
+
+    /**
+     * Constructor
+     * @param queueBudget the maximum bytes that may be queued for a single session, rounded up to a power of two
+     * @param drainTimerIntervalMs the interval of the drain timer in milliseconds, or 0 for no drain timer, in which
+     *                             case queues are only drained when the service handles a message or timer
+     */
+    public SessionEgressQueues(final int queueBudget, final long drainTimerIntervalMs)
+    {
+        if (drainTimerIntervalMs < 0)
+        {
+            throw new IllegalArgumentException("drain timer interval must not be negative: " + drainTimerIntervalMs);
+        }
+        this.queueCapacity = BitUtil.findNextPositivePowerOfTwo(Math.max(MIN_QUEUE_BUDGET, queueBudget));
+        this.drainTimerIntervalMs = drainTimerIntervalMs;
+    }
+
+    /**
+     * Sets the cluster, used to schedule the drain timer
+     * @param cluster the cluster
+     */
+    public void setCluster(final Cluster cluster)
+    {
+        this.cluster = cluster;
+    }
+
+    /**
+     * Allocates the counters that publish queue depth, so that it can be observed with AeronStat
+     * @param aeron the aeron client to allocate the counters with
+     */
+    public void allocateCounters(final Aeron aeron)
+    {
+        queuedBytesCounter = aeron.addCounter(QUEUED_BYTES_COUNTER_TYPE_ID, "Egress queued bytes");
+        backloggedSessionsCounter =
+            aeron.addCounter(BACKLOGGED_SESSIONS_COUNTER_TYPE_ID, "Egress backlogged sessions");
+        evictedSessionsCounter = aeron.addCounter(EVICTED_SESSIONS_COUNTER_TYPE_ID, "Egress evicted sessions");
+    }
+
+    /**
+     * Offers a message to a session, queueing it if the session is back pressured or already has queued messages.
+     * Disconnects the session if the message does not fit within its queue budget.
+     * @param session the session to offer to
+     * @param buffer the buffer to read data from
+     * @param offset the offset to read from
+     * @param length the length to read
+     */
+    public void offer(final ClientSession session, final DirectBuffer buffer, final int offset, final int length)
+    {
+        if (session.isClosing())
+        {
+            return;
+        }
+
+        final SessionQueue queue = queueBySessionId.get(session.id());
+        if (null == queue || queue.isEmpty())
+        {
+            final long result = session.offer(buffer, offset, length);
+            if (result > 0L)
+            {
+                return;
+            }
+            else if (result == Publication.NOT_CONNECTED || result == Publication.MAX_POSITION_EXCEEDED)
+            {
+                LOGGER.error("unexpected state on session offer: {}", result);
+                return;
+            }
+        }
+
+        enqueue(session, null == queue ? acquireQueue(session) : queue, buffer, offset, length);
+    }
+
+    /**
+     * Checks if a session has messages queued, in which case further messages must be queued behind them
+     * @param session the session to check
+     * @return true if the session has queued messages
+     */
+    public boolean isBacklogged(final ClientSession session)
+    {
+        final SessionQueue queue = queueBySessionId.get(session.id());
+        return null != queue && !queue.isEmpty();
+    }
+
+    /**
+     * Offers as many queued messages as each back pressured session will currently accept
+     * @return the number of messages sent
+     */
+    public int drain()
+    {
+        int workCount = 0;
+        for (int i = backloggedQueues.size() - 1; i >= 0; i--)
+        {
+            drainingQueue = backloggedQueues.get(i);
+            workCount += drainingQueue.ring.controlledRead(drainHandler);
+            if (drainingQueue.isEmpty())
+            {
+                removeBacklogged(i);
+            }
+        }
+        drainingQueue = null;
+
+        if (workCount > 0)
+        {
+            updateCounters();
+        }
+        return workCount;
+    }
+
+    /**
+     * Schedules the drain timer at the start of each leadership term. The new term event is in the log, so every member
+     * schedules the timer at the same point, replacing any drain timer already pending, such as one restored from a
+     * snapshot. With no drain timer interval, any pending drain timer is cancelled instead.
+     * @param timestamp the cluster time of the new leadership term event
+     */
+    public void startDrainTimer(final long timestamp)
+    {
+        if (0 == drainTimerIntervalMs)
+        {
+            if (!cluster.cancelTimer(DRAIN_TIMER_CORRELATION_ID))
+            {
+                LOGGER.error("failed to cancel egress queue drain timer");
+            }
+        }
+        else
+        {
+            scheduleDrainTimer(timestamp);
+        }
+    }
+
+    /**
+     * Handles the drain timer, draining the queues and scheduling the timer again, whether or not any session is
+     * backlogged, so that every member schedules it the same way
+     * @param timestamp the cluster time of the timer event
+     * @return the number of messages sent
+     */
+    public int onDrainTimer(final long timestamp)
+    {
+        final int workCount = drain();
+        if (0 != drainTimerIntervalMs)
+        {
+            scheduleDrainTimer(timestamp);
+        }
+        return workCount;
+    }
+
+    /**
+     * Releases the queue of a closed session, discarding any messages still queued for it
+     * @param session the session that closed
+     */
+    public void onSessionClosed(final ClientSession session)
+    {
+        final SessionQueue queue = queueBySessionId.remove(session.id());
+        if (null != queue)
+        {
+            releaseQueue(queue);
+            updateCounters();
+        }
+    }
+
+    private void enqueue(
+        final ClientSession session,
+        final SessionQueue queue,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
+    {
+        if (length > queue.ring.maxMsgLength() || !queue.ring.write(MSG_TYPE_ID, buffer, offset, length))
+        {
+            LOGGER.warn("egress queue for session {} exceeded {} bytes. Closing client session.",
+                session.id(), queueCapacity);
+            queueBySessionId.remove(session.id());
+            releaseQueue(queue);
+            evictedSessions++;
+            session.close();
+        }
+        else if (!queue.backlogged)
+        {
+            queue.backlogged = true;
+            backloggedQueues.add(queue);
+        }
+        updateCounters();
+    }
+
+    private void scheduleDrainTimer(final long now)
+    {
+        if (!cluster.scheduleTimer(DRAIN_TIMER_CORRELATION_ID, now + drainTimerIntervalMs))
+        {
+            LOGGER.error("failed to schedule egress queue drain timer");
+        }
+    }
+
+    private ControlledMessageHandler.Action onQueuedMessage(
+        final int msgTypeId,
+        final MutableDirectBuffer buffer,
+        final int index,
+        final int length)
+    {
+        final long result = drainingQueue.session.offer(buffer, index, length);
+        if (result == Publication.BACK_PRESSURED || result == Publication.ADMIN_ACTION)
+        {
+            return ControlledMessageHandler.Action.ABORT;
+        }
+        else if (result < 0L)
+        {
+            LOGGER.error("unexpected state on queued session offer: {}", result);
+        }
+
+        return ControlledMessageHandler.Action.COMMIT;
+    }
+
+    private SessionQueue acquireQueue(final ClientSession session)
+    {
+        SessionQueue queue = freeQueues.poll();
+        if (null == queue)
+        {
+            queue = new SessionQueue(queueCapacity);
+        }
+        queue.session = session;
+        queueBySessionId.put(session.id(), queue);
+        return queue;
+    }
+
+    private void releaseQueue(final SessionQueue queue)
+    {
+        if (queue.backlogged)
+        {
+            removeBacklogged(backloggedQueues.indexOf(queue));
+        }
+        queue.clear();
+        freeQueues.add(queue);
+    }
+
+    private void removeBacklogged(final int index)
+    {
+        final SessionQueue queue = backloggedQueues.get(index);
+        queue.backlogged = false;
+        final int lastIndex = backloggedQueues.size() - 1;
+        backloggedQueues.set(index, backloggedQueues.get(lastIndex));
+        backloggedQueues.remove(lastIndex);
+    }
+
+    private void updateCounters()
+    {
+        if (null != queuedBytesCounter)
+        {
+            long queuedBytes = 0;
+            for (int i = 0; i < backloggedQueues.size(); i++)
+            {
+                queuedBytes += backloggedQueues.get(i).ring.size();
+            }
+            queuedBytesCounter.setOrdered(queuedBytes);
+            backloggedSessionsCounter.setOrdered(backloggedQueues.size());
+            evictedSessionsCounter.setOrdered(evictedSessions);
+        }
+    }
+
+    private static final class SessionQueue
+    {
+        private final OneToOneRingBuffer ring;
+        private ClientSession session;
+        private boolean backlogged;
+
+        private SessionQueue(final int capacity)
+        {
+            ring = new OneToOneRingBuffer(new UnsafeBuffer(BufferUtil.allocateDirectAligned(
+                capacity + RingBufferDescriptor.TRAILER_LENGTH, BitUtil.CACHE_LINE_LENGTH)));
+        }
+
+        private boolean isEmpty()
+        {
+            return ring.consumerPosition() == ring.producerPosition();
+        }
+
+        private void clear()
+        {
+            while (ring.read(SessionQueue::discard, Integer.MAX_VALUE) > 0)
+            {
+            }
+            session = null;
+        }
+
+        private static void discard(
+            final int msgTypeId,
+            final MutableDirectBuffer buffer,
+            final int index,
+            final int length)
+        {
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package io.aeron.samples.infra;
 
 import org.agrona.DirectBuffer;
+import org.agrona.MutableDirectBuffer;
 
 /**
  * Interface to session context data
@@ -37,6 +38,37 @@ public interface SessionMessageContext
      */
     void reply(DirectBuffer buffer, int offset, int length);
 
+    /**
+     * Claims space for a reply to the caller of the given length, so the reply can be encoded in place. The reply
+     * must be encoded into the returned buffer at {@link #claimedOffset()} and then sent with {@link #commitReply()}.
+     * Replies above the claim limit are encoded into a scratch buffer and offered on commit instead.
+     * @param length the encoded length of the reply
+     * @return the buffer to encode the reply into
+     */
+    MutableDirectBuffer claimReply(int length);
+
+    /**
+     * Gets the offset at which to encode the reply within the buffer returned by {@link #claimReply(int)}
+     * @return the offset of the claimed reply
+     */
+    int claimedOffset();
+
+    /**
+     * Sends the reply encoded into the buffer returned by {@link #claimReply(int)}
+     */
+    void commitReply();
+
+    /**
+     * Collects the replies to the caller into batched replies, until {@link #endReplyBatch()}, so that the replies to
+     * a batch of commands are sent as one message rather than one message per command
+     */
+    void beginReplyBatch();
+
+    /**
+     * Sends the replies collected since {@link #beginReplyBatch()}, and returns to replying to each message directly
+     */
+    void endReplyBatch();
+
     /**
      * Broadcast a message to all connected sessions
      * @param buffer the buffer to read data from
@@ -44,5 +76,13 @@ public interface SessionMessageContext
      * @param length the length to read
      */
     void broadcast(DirectBuffer buffer, int offset, int length);
+
+    /**
+     * Schedules a cluster timer. Scheduling with the correlation id of a timer that is already pending replaces it
+     * @param correlationId the correlation id to be delivered when the timer fires
+     * @param deadline the cluster time at which the timer should fire
+     * @return true if the timer was scheduled
+     */
+    boolean scheduleTimer(long correlationId, long deadline);
 }
 
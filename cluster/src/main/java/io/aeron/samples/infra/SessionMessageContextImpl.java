@@ -17,12 +17,20 @@
 package io.aeron.samples.infra;
 
 import io.aeron.Publication;
+import io.aeron.cluster.client.AeronCluster;
 import io.aeron.cluster.service.ClientSession;
+import io.aeron.cluster.service.Cluster;
+import io.aeron.logbuffer.BufferClaim;
+import io.aeron.samples.cluster.protocol.CommandBatchResultEncoder;
+import io.aeron.samples.cluster.protocol.GroupSizeEncodingEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
 import org.agrona.DirectBuffer;
-import org.agrona.concurrent.IdleStrategy;
+import org.agrona.ExpandableDirectByteBuffer;
+import org.agrona.MutableDirectBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -31,19 +39,57 @@ import java.util.Objects;
 public class SessionMessageContextImpl implements SessionMessageContext
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SessionMessageContextImpl.class);
-    private static final long RETRY_COUNT = 3;
-    private IdleStrategy idleStrategy;
+    /**
+     * The largest reply that is claimed in place; the claim, plus the session header, must fit within the max
+     * payload length (MTU less the frame header) of the egress publication
+     */
+    public static final int MAX_CLAIM_LENGTH = 1024;
+    /**
+     * Batched replies are bounded to fit the max message length of the smallest (64k) egress term length. A reply
+     * that does not fit within an empty batch is sent on its own, after the replies batched before it
+     */
+    public static final int MAX_BATCH_REPLY_LENGTH = 8 * 1024 - AeronCluster.SESSION_HEADER_LENGTH;
+    private static final int MAX_REPLIES_PER_BATCH = CommandBatchResultEncoder.ResultsEncoder.countMaxValue();
+    private static final int BATCH_GROUP_HEADER_OFFSET =
+        MessageHeaderEncoder.ENCODED_LENGTH + CommandBatchResultEncoder.BLOCK_LENGTH;
+    private static final int BATCH_HEADER_LENGTH =
+        BATCH_GROUP_HEADER_OFFSET + CommandBatchResultEncoder.ResultsEncoder.sbeHeaderSize();
+    private static final int BATCH_ENTRY_HEADER_LENGTH = CommandBatchResultEncoder.ResultsEncoder.sbeBlockLength() +
+        CommandBatchResultEncoder.ResultsEncoder.resultHeaderLength();
+    private final BufferClaim bufferClaim = new BufferClaim();
+    private final ExpandableDirectByteBuffer replyBuffer = new ExpandableDirectByteBuffer(MAX_CLAIM_LENGTH);
+    private ReplyState replyState = ReplyState.NONE;
+    private int replyOffset;
+    private int replyLength;
+    private final ExpandableDirectByteBuffer batchReplyBuffer = new ExpandableDirectByteBuffer(MAX_BATCH_REPLY_LENGTH);
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final CommandBatchResultEncoder batchResultEncoder = new CommandBatchResultEncoder();
+    private final GroupSizeEncodingEncoder groupSizeEncoder = new GroupSizeEncodingEncoder();
+    private CommandBatchResultEncoder.ResultsEncoder batchResults;
+    private boolean batchingReplies;
+    private int batchReplyCount;
+    private int batchReplyLength;
+    private Cluster cluster;
     private final ClientSessions clientSessions;
+    private final SessionEgressQueues egressQueues;
+    private final Version1ProtocolAdapter version1Adapter;
     private long timestamp;
     private ClientSession session;
 
     /**
      * Constructor
      * @param clientSessions the client session store
+     * @param egressQueues the queues for messages to back pressured sessions
+     * @param version1Adapter the adapter downgrading the replies to version 1 commands
      */
-    public SessionMessageContextImpl(final ClientSessions clientSessions)
+    public SessionMessageContextImpl(
+        final ClientSessions clientSessions,
+        final SessionEgressQueues egressQueues,
+        final Version1ProtocolAdapter version1Adapter)
     {
         this.clientSessions = clientSessions;
+        this.egressQueues = egressQueues;
+        this.version1Adapter = version1Adapter;
     }
 
     /**
@@ -79,16 +125,18 @@ public class SessionMessageContextImpl implements SessionMessageContext
     }
 
     /**
-     * Sets the idle strategy to be used during offers
-     * @param idleStrategy the idle strategy to be used
+     * Sets the cluster, used to schedule timers
+     * @param cluster the cluster
      */
-    public void setIdleStrategy(final IdleStrategy idleStrategy)
+    public void setCluster(final Cluster cluster)
     {
-        this.idleStrategy = idleStrategy;
+        this.cluster = cluster;
     }
 
     /**
-     * Replies to the sender of the current session message, with retry. Disconnects a client that failed to offer
+     * Replies to the sender of the current session message, queueing the reply if the session is back pressured.
+     * Within a reply batch, the reply is added to the batch instead. A reply to a version 1 command is downgraded to
+     * version 1 first.
      * @param buffer the buffer to read data from
      * @param offset the offset to read from
      * @param length the length to read
@@ -96,60 +144,209 @@ public class SessionMessageContextImpl implements SessionMessageContext
     @Override
     public void reply(final DirectBuffer buffer, final int offset, final int length)
     {
-        offerToSession(session, buffer, offset, length);
+        if (version1Adapter.isReplyingToVersion1())
+        {
+            final int downgradedLength = version1Adapter.downgrade(buffer, offset, length);
+            if (downgradedLength > 0)
+            {
+                sendReply(version1Adapter.downgradedBuffer(), 0, downgradedLength);
+                return;
+            }
+        }
+        sendReply(buffer, offset, length);
     }
 
     /**
-     * Broadcasts a message to all connected sessions. If the offer fails to any session after a number of retries,
-     * then that session is disconnected.
+     * Sends a reply to the sender of the current session message, or adds it to the current batch
      * @param buffer the buffer to read data from
      * @param offset the offset to read from
      * @param length the length to read
      */
-    @Override
-    public void broadcast(final DirectBuffer buffer, final int offset, final int length)
+    private void sendReply(final DirectBuffer buffer, final int offset, final int length)
     {
-        clientSessions.getAllSessions().forEach(clientSession -> offerToSession(clientSession, buffer, offset, length));
+        if (batchingReplies)
+        {
+            batchReply(buffer, offset, length);
+        }
+        else
+        {
+            egressQueues.offer(session, buffer, offset, length);
+        }
     }
 
     /**
-     * Offers a message to a session, with retry. Disconnects a client that failed to offer after RETRY_COUNT retries
-     * @param targetSession the session to offer to
-     * @param buffer the buffer to read data from
-     * @param offset the offset to read from
-     * @param length the length to read
+     * Claims space in the current session's egress publication for a reply. Replies above {@link #MAX_CLAIM_LENGTH},
+     * to a back pressured session, to a session with queued messages, within a reply batch, or to a version 1 command
+     * are encoded into a scratch buffer instead, and offered (or queued, or batched) on commit. Replies to a session
+     * that is no longer connected are discarded.
+     * @param length the encoded length of the reply
+     * @return the buffer to encode the reply into, at {@link #claimedOffset()}
      */
-    private void offerToSession(
-        final ClientSession targetSession,
-        final DirectBuffer buffer,
-        final int offset,
-        final int length)
+    @Override
+    public MutableDirectBuffer claimReply(final int length)
     {
-        Objects.requireNonNull(idleStrategy, "idleStrategy must be set");
-        int retries = 0;
-        do
+        replyLength = length;
+        if (!batchingReplies && !version1Adapter.isReplyingToVersion1() && length <= MAX_CLAIM_LENGTH &&
+            !egressQueues.isBacklogged(session))
         {
-            final long result = targetSession.offer(buffer, offset, length);
+            final long result = session.tryClaim(length, bufferClaim);
             if (result > 0L)
             {
-                return;
+                replyState = ReplyState.CLAIMED;
+                replyOffset = bufferClaim.offset() + AeronCluster.SESSION_HEADER_LENGTH;
+                return bufferClaim.buffer();
             }
-            else if (result == Publication.ADMIN_ACTION || result == Publication.BACK_PRESSURED)
+            else if (result == Publication.NOT_CONNECTED || result == Publication.MAX_POSITION_EXCEEDED)
             {
-                LOGGER.warn("backpressure or admin action on session offer");
+                LOGGER.error("unexpected state on session claim: {}", result);
+                replyState = ReplyState.DISCARD;
+                replyOffset = 0;
+                return replyBuffer;
             }
-            else if (result == Publication.NOT_CONNECTED || result == Publication.MAX_POSITION_EXCEEDED)
+        }
+
+        replyState = ReplyState.OFFER;
+        replyOffset = 0;
+        return replyBuffer;
+    }
+
+    /**
+     * Gets the offset at which to encode the reply within the buffer returned by {@link #claimReply(int)}
+     * @return the offset of the claimed reply
+     */
+    @Override
+    public int claimedOffset()
+    {
+        return replyOffset;
+    }
+
+    /**
+     * Commits a claimed reply, or offers a reply that could not be claimed
+     */
+    @Override
+    public void commitReply()
+    {
+        switch (replyState)
+        {
+            case CLAIMED -> bufferClaim.commit();
+            case OFFER -> reply(replyBuffer, 0, replyLength);
+            default ->
             {
-                LOGGER.error("unexpected state on session offer: {}", result);
-                return;
             }
+        }
+        replyState = ReplyState.NONE;
+    }
+
+    /**
+     * Collects the replies to the sender of the current session message into CommandBatchResult messages, until
+     * {@link #endReplyBatch()}. Broadcasts are not batched, so reach the sender ahead of the batched replies.
+     */
+    @Override
+    public void beginReplyBatch()
+    {
+        batchingReplies = true;
+        batchReplyCount = 0;
+    }
 
-            idleStrategy.idle();
-            retries += 1;
+    /**
+     * Sends the replies batched since {@link #beginReplyBatch()}, if any, and returns to replying directly
+     */
+    @Override
+    public void endReplyBatch()
+    {
+        offerReplyBatch();
+        batchingReplies = false;
+    }
+
+    /**
+     * Adds a reply to the current batch, first sending the batch if the reply does not fit within it
+     * @param buffer the buffer to read data from
+     * @param offset the offset to read from
+     * @param length the length to read
+     */
+    private void batchReply(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final int entryLength = BATCH_ENTRY_HEADER_LENGTH + length;
+        if (batchReplyCount > 0 && (batchReplyCount == MAX_REPLIES_PER_BATCH ||
+            batchReplyLength + entryLength > MAX_BATCH_REPLY_LENGTH))
+        {
+            offerReplyBatch();
+        }
+
+        if (BATCH_HEADER_LENGTH + entryLength > MAX_BATCH_REPLY_LENGTH)
+        {
+            egressQueues.offer(session, buffer, offset, length);
+            return;
+        }
+
+        if (0 == batchReplyCount)
+        {
+            batchResults = batchResultEncoder.wrapAndApplyHeader(batchReplyBuffer, 0, headerEncoder)
+                .resultsCount(MAX_REPLIES_PER_BATCH);
+            batchReplyLength = BATCH_HEADER_LENGTH;
+        }
+
+        batchResults.next().putResult(buffer, offset, length);
+        batchReplyCount++;
+        batchReplyLength += entryLength;
+    }
+
+    /**
+     * Sets the group count of the replies batched so far and offers the batch to the current session
+     */
+    private void offerReplyBatch()
+    {
+        if (0 == batchReplyCount)
+        {
+            return;
         }
-        while (retries < RETRY_COUNT);
 
-        LOGGER.error("failed to offer snapshot within {} retries. Closing client session.", RETRY_COUNT);
-        session.close();
+        groupSizeEncoder.wrap(batchReplyBuffer, BATCH_GROUP_HEADER_OFFSET).numInGroup(batchReplyCount);
+        egressQueues.offer(session, batchReplyBuffer, 0, batchReplyLength);
+        batchReplyCount = 0;
+    }
+
+    /**
+     * Broadcasts a message to all connected sessions. Back pressured sessions have the message queued, so that they
+     * do not hold up the others.
+     * @param buffer the buffer to read data from
+     * @param offset the offset to read from
+     * @param length the length to read
+     */
+    @Override
+    public void broadcast(final DirectBuffer buffer, final int offset, final int length)
+    {
+        final List<ClientSession> allSessions = clientSessions.getAllSessions();
+        for (int i = 0; i < allSessions.size(); i++)
+        {
+            egressQueues.offer(allSessions.get(i), buffer, offset, length);
+        }
+    }
+
+    /**
+     * Schedules a cluster timer
+     * @param correlationId the correlation id to be delivered when the timer fires
+     * @param deadline the cluster time at which the timer should fire
+     * @return true if the timer was scheduled
+     */
+    @Override
+    public boolean scheduleTimer(final long correlationId, final long deadline)
+    {
+        Objects.requireNonNull(cluster, "cluster must be set");
+        if (cluster.scheduleTimer(correlationId, deadline))
+        {
+            return true;
+        }
+
+        LOGGER.error("failed to schedule cluster timer {} for {}", correlationId, deadline);
+        return false;
+    }
+
+    private enum ReplyState
+    {
+        NONE,
+        CLAIMED,
+        OFFER,
+        DISCARD
     }
 }
@@ -18,25 +18,40 @@ package io.aeron.samples.infra;
 
 import io.aeron.ExclusivePublication;
 import io.aeron.Image;
+import io.aeron.ImageFragmentAssembler;
 import io.aeron.Publication;
 import io.aeron.logbuffer.FragmentHandler;
 import io.aeron.logbuffer.Header;
+import io.aeron.samples.cluster.protocol.AuctionDeadlinesSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.AuctionDeadlinesSnapshotEncoder;
 import io.aeron.samples.cluster.protocol.AuctionIdSnapshotDecoder;
 import io.aeron.samples.cluster.protocol.AuctionIdSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.AuctionSnapshotDecoder;
+import io.aeron.samples.cluster.protocol.AuctionSnapshotEncoder;
 import io.aeron.samples.cluster.protocol.EndOfSnapshotDecoder;
 import io.aeron.samples.cluster.protocol.EndOfSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.GroupSizeEncodingEncoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
 import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.ParticipantSnapshotBatchDecoder;
+import io.aeron.samples.cluster.protocol.ParticipantSnapshotBatchEncoder;
 import io.aeron.samples.cluster.protocol.ParticipantSnapshotDecoder;
-import io.aeron.samples.cluster.protocol.ParticipantSnapshotEncoder;
+import io.aeron.samples.cluster.protocol.SnapshotHeaderDecoder;
+import io.aeron.samples.cluster.protocol.SnapshotHeaderEncoder;
+import io.aeron.samples.domain.auctions.Auction;
+import io.aeron.samples.domain.auctions.AuctionScheduler;
+import io.aeron.samples.domain.auctions.AuctionStatus;
+import io.aeron.samples.domain.auctions.Auctions;
 import io.aeron.samples.domain.participants.Participants;
 import org.agrona.DirectBuffer;
 import org.agrona.ExpandableDirectByteBuffer;
 import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.UnsafeBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages the loading and writing of domain data snapshots within the cluster
@@ -44,32 +59,79 @@ import java.util.Objects;
 public class SnapshotManager implements FragmentHandler
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotManager.class);
-    private static final int RETRY_COUNT = 3;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int MIN_FRAGMENT_LIMIT = 20;
+    private static final int MAX_FRAGMENT_LIMIT = 1024;
+    private static final int DEADLINES_PER_MESSAGE = 1024;
+    private static final int MAX_PARTICIPANTS_PER_BATCH =
+        ParticipantSnapshotBatchEncoder.ParticipantsEncoder.countMaxValue();
+    private static final int PARTICIPANT_GROUP_HEADER_OFFSET =
+        MessageHeaderEncoder.ENCODED_LENGTH + ParticipantSnapshotBatchEncoder.BLOCK_LENGTH;
+    private static final int PARTICIPANT_BATCH_HEADER_LENGTH =
+        PARTICIPANT_GROUP_HEADER_OFFSET + ParticipantSnapshotBatchEncoder.ParticipantsEncoder.sbeHeaderSize();
+    private static final int PARTICIPANT_ENTRY_HEADER_LENGTH =
+        ParticipantSnapshotBatchEncoder.ParticipantsEncoder.sbeBlockLength() +
+        ParticipantSnapshotBatchEncoder.ParticipantsEncoder.nameHeaderLength();
     private boolean snapshotFullyLoaded = false;
     private final Participants participants;
+    private final Auctions auctions;
+    private final AuctionScheduler auctionScheduler;
+    private final ParticipantSnapshotImage participantImage;
     private final SessionMessageContext context;
+    private final ImageFragmentAssembler fragmentAssembler = new ImageFragmentAssembler(this);
     private IdleStrategy idleStrategy;
 
     private final ExpandableDirectByteBuffer buffer = new ExpandableDirectByteBuffer(1024);
     private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
     private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final SnapshotHeaderEncoder snapshotHeaderEncoder = new SnapshotHeaderEncoder();
+    private final SnapshotHeaderDecoder snapshotHeaderDecoder = new SnapshotHeaderDecoder();
     private final AuctionIdSnapshotEncoder auctionIdEncoder = new AuctionIdSnapshotEncoder();
     private final AuctionIdSnapshotDecoder auctionIdDecoder = new AuctionIdSnapshotDecoder();
+    private final AuctionSnapshotEncoder auctionEncoder = new AuctionSnapshotEncoder();
+    private final AuctionSnapshotDecoder auctionDecoder = new AuctionSnapshotDecoder();
+    private final AuctionDeadlinesSnapshotEncoder deadlinesEncoder = new AuctionDeadlinesSnapshotEncoder();
+    private final AuctionDeadlinesSnapshotDecoder deadlinesDecoder = new AuctionDeadlinesSnapshotDecoder();
+    private final long[] deadlineAuctionIds = new long[DEADLINES_PER_MESSAGE];
+    private final long[] deadlines = new long[DEADLINES_PER_MESSAGE];
+    private int pendingDeadlineCount;
+    private final long[] bidParticipantIds = new long[Auction.RETAINED_BID_CAPACITY];
+    private final long[] bidPrices = new long[Auction.RETAINED_BID_CAPACITY];
+    private final long[] bidTimes = new long[Auction.RETAINED_BID_CAPACITY];
     private final ParticipantSnapshotDecoder participantDecoder = new ParticipantSnapshotDecoder();
-    private final ParticipantSnapshotEncoder participantEncoder = new ParticipantSnapshotEncoder();
+    private final ParticipantSnapshotBatchDecoder participantBatchDecoder = new ParticipantSnapshotBatchDecoder();
+    private final ParticipantSnapshotBatchEncoder participantBatchEncoder = new ParticipantSnapshotBatchEncoder();
+    private final GroupSizeEncodingEncoder groupSizeEncoder = new GroupSizeEncodingEncoder();
+    private ParticipantSnapshotBatchEncoder.ParticipantsEncoder participantBatchEntries;
+    private int participantBatchCount;
+    private int participantBatchLength;
+    private final UnsafeBuffer nameBuffer = new UnsafeBuffer();
     private final EndOfSnapshotEncoder endOfSnapshotEncoder = new EndOfSnapshotEncoder();
+    private long participantRestoreNs;
+    private long auctionRestoreNs;
+    private long deadlineRestoreNs;
 
     /**
      * Constructor
      *
      * @param participants the participant domain model to read and write with snapshot interactions
+     * @param auctions     the auction domain model to read and write with snapshot interactions
+     * @param auctionScheduler the auction deadline scheduler to read and write with snapshot interactions
+     * @param participantImage the pre-encoded participant image to offer, or null to encode the participants when
+     *                         the snapshot is taken
      * @param context      the session message context to use for snapshot interactions
      */
     public SnapshotManager(
         final Participants participants,
+        final Auctions auctions,
+        final AuctionScheduler auctionScheduler,
+        final ParticipantSnapshotImage participantImage,
         final SessionMessageContext context)
     {
         this.participants = participants;
+        this.auctions = auctions;
+        this.auctionScheduler = auctionScheduler;
+        this.participantImage = participantImage;
         this.context = context;
     }
 
@@ -80,9 +142,21 @@ public class SnapshotManager implements FragmentHandler
     public void takeSnapshot(final ExclusivePublication snapshotPublication)
     {
         LOGGER.info("Starting snapshot...");
-        offerParticipants(snapshotPublication);
+        final long startNs = System.nanoTime();
+        offerSnapshotHeader(snapshotPublication);
+        if (null != participantImage)
+        {
+            offerParticipantImage(snapshotPublication);
+        }
+        else
+        {
+            offerParticipants(snapshotPublication);
+        }
+        offerAuctionId(snapshotPublication);
+        offerAuctions(snapshotPublication);
+        offerAuctionDeadlines(snapshotPublication);
         offerEndOfSnapshotMarker(snapshotPublication);
-        LOGGER.info("Snapshot complete");
+        LOGGER.info("Snapshot complete in {}us", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNs));
     }
 
     /**
@@ -93,18 +167,39 @@ public class SnapshotManager implements FragmentHandler
     {
         LOGGER.info("Loading snapshot...");
         snapshotFullyLoaded = false;
+        participantRestoreNs = 0;
+        auctionRestoreNs = 0;
+        deadlineRestoreNs = 0;
         Objects.requireNonNull(idleStrategy, "Idle strategy must be set before loading snapshot");
         idleStrategy.reset();
+        final long startNs = System.nanoTime();
+        int fragmentLimit = MIN_FRAGMENT_LIMIT;
         while (!snapshotImage.isEndOfStream())
         {
-            idleStrategy.idle(snapshotImage.poll(this, 20));
+            final int fragments = snapshotImage.poll(fragmentAssembler, fragmentLimit);
+            if (fragments == fragmentLimit)
+            {
+                fragmentLimit = Math.min(fragmentLimit << 1, MAX_FRAGMENT_LIMIT);
+            }
+            else if (0 == fragments)
+            {
+                fragmentLimit = MIN_FRAGMENT_LIMIT;
+            }
+            idleStrategy.idle(fragments);
         }
 
         if (!snapshotFullyLoaded)
         {
             LOGGER.warn("Snapshot load not completed; no end of snapshot marker found");
         }
-        LOGGER.info("Snapshot load complete.");
+        final long totalNs = System.nanoTime() - startNs;
+        LOGGER.info("Snapshot load complete in {}us: {} participants in {}us, {} auctions in {}us, {} deadlines " +
+            "in {}us, {}us awaiting and reading fragments",
+            TimeUnit.NANOSECONDS.toMicros(totalNs),
+            participants.participantCount(), TimeUnit.NANOSECONDS.toMicros(participantRestoreNs),
+            auctions.auctionCount(), TimeUnit.NANOSECONDS.toMicros(auctionRestoreNs),
+            auctionScheduler.pendingDeadlineCount(), TimeUnit.NANOSECONDS.toMicros(deadlineRestoreNs),
+            TimeUnit.NANOSECONDS.toMicros(totalNs - participantRestoreNs - auctionRestoreNs - deadlineRestoreNs));
     }
 
     /**
@@ -117,7 +212,8 @@ public class SnapshotManager implements FragmentHandler
     }
 
     /**
-     *
+     * Restores the snapshot messages within a fragment. A fragment may hold several ParticipantSnapshot messages back
+     * to back, as offered by earlier versions from a pre-encoded participant image.
      * @param buffer containing the data.
      * @param offset at which the data begins.
      * @param length of the data in bytes.
@@ -126,64 +222,367 @@ public class SnapshotManager implements FragmentHandler
     @Override
     public void onFragment(final DirectBuffer buffer, final int offset, final int length, final Header header)
     {
-        if (length < MessageHeaderDecoder.ENCODED_LENGTH)
+        final int limit = offset + length;
+        int position = offset;
+        while (limit - position >= MessageHeaderDecoder.ENCODED_LENGTH)
         {
-            return;
+            final long startNs = System.nanoTime();
+            position = restoreMessage(buffer, position, limit);
+            addRestoreTime(headerDecoder.templateId(), System.nanoTime() - startNs);
+        }
+    }
+
+    private void addRestoreTime(final int templateId, final long durationNs)
+    {
+        switch (templateId)
+        {
+            case ParticipantSnapshotDecoder.TEMPLATE_ID, ParticipantSnapshotBatchDecoder.TEMPLATE_ID ->
+                participantRestoreNs += durationNs;
+            case AuctionIdSnapshotDecoder.TEMPLATE_ID, AuctionSnapshotDecoder.TEMPLATE_ID ->
+                auctionRestoreNs += durationNs;
+            case AuctionDeadlinesSnapshotDecoder.TEMPLATE_ID -> deadlineRestoreNs += durationNs;
+            default ->
+            {
+            }
         }
+    }
 
+    /**
+     * Restores a single snapshot message
+     * @param buffer containing the data.
+     * @param offset at which the message begins.
+     * @param limit the end of the data in the buffer.
+     * @return the offset at which the message ends.
+     */
+    private int restoreMessage(final DirectBuffer buffer, final int offset, final int limit)
+    {
         headerDecoder.wrap(buffer, offset);
 
         switch (headerDecoder.templateId())
         {
+            case SnapshotHeaderDecoder.TEMPLATE_ID ->
+            {
+                snapshotHeaderDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                presize(snapshotHeaderDecoder);
+                return snapshotHeaderDecoder.limit();
+            }
             case ParticipantSnapshotDecoder.TEMPLATE_ID ->
             {
                 participantDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
-                participants.restoreParticipant(participantDecoder.participantId(), participantDecoder.name());
+                final long participantId = participantDecoder.participantId();
+                participantDecoder.wrapName(nameBuffer);
+                participants.restoreParticipant(participantId, nameBuffer, 0, nameBuffer.capacity());
+                return participantDecoder.limit();
             }
-            case EndOfSnapshotDecoder.TEMPLATE_ID -> snapshotFullyLoaded = true;
-
+            case ParticipantSnapshotBatchDecoder.TEMPLATE_ID ->
+            {
+                participantBatchDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                for (final ParticipantSnapshotBatchDecoder.ParticipantsDecoder participant :
+                    participantBatchDecoder.participants())
+                {
+                    final long participantId = participant.participantId();
+                    participant.wrapName(nameBuffer);
+                    participants.restoreParticipant(participantId, nameBuffer, 0, nameBuffer.capacity());
+                }
+                return participantBatchDecoder.limit();
+            }
+            case AuctionIdSnapshotDecoder.TEMPLATE_ID ->
+            {
+                auctionIdDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                auctions.restoreLastAuctionId(auctionIdDecoder.lastId());
+                return auctionIdDecoder.limit();
+            }
+            case AuctionSnapshotDecoder.TEMPLATE_ID ->
+            {
+                restoreAuction(buffer, offset);
+                return auctionDecoder.limit();
+            }
+            case AuctionDeadlinesSnapshotDecoder.TEMPLATE_ID ->
+            {
+                deadlinesDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+                for (final AuctionDeadlinesSnapshotDecoder.DeadlinesDecoder deadline : deadlinesDecoder.deadlines())
+                {
+                    auctionScheduler.restoreDeadline(deadline.auctionId(), deadline.deadline());
+                }
+                return deadlinesDecoder.limit();
+            }
+            case EndOfSnapshotDecoder.TEMPLATE_ID ->
+            {
+                snapshotFullyLoaded = true;
+                return offset + MessageHeaderDecoder.ENCODED_LENGTH + headerDecoder.blockLength();
+            }
+            default ->
+            {
+                LOGGER.warn("Unknown snapshot message template id: {}", headerDecoder.templateId());
+                return limit;
+            }
+        }
+    }
 
-            default -> LOGGER.warn("Unknown snapshot message template id: {}", headerDecoder.templateId());
+    /**
+     * Presizes the domain state from the entity counts in the snapshot header, so that restoring the snapshot does
+     * not repeatedly grow and rehash it. Snapshots taken before the header was added are restored without presizing.
+     * @param snapshotHeader the decoder wrapping the snapshot header
+     */
+    private void presize(final SnapshotHeaderDecoder snapshotHeader)
+    {
+        final int snapshotVersion = snapshotHeader.snapshotVersion();
+        if (snapshotVersion > SNAPSHOT_VERSION)
+        {
+            LOGGER.warn("Snapshot version {} is newer than the supported version {}", snapshotVersion,
+                SNAPSHOT_VERSION);
         }
+
+        LOGGER.info("Snapshot version {} holds {} participants, {} auctions and {} deadlines", snapshotVersion,
+            snapshotHeader.participantCount(), snapshotHeader.auctionCount(), snapshotHeader.deadlineCount());
+        participants.ensureCapacity(snapshotHeader.participantCount(), snapshotHeader.participantNameLength());
+        auctions.ensureCapacity(snapshotHeader.auctionCount());
+        auctionScheduler.ensureCapacity(snapshotHeader.deadlineCount());
+    }
+
+    private void offerSnapshotHeader(final ExclusivePublication snapshotPublication)
+    {
+        snapshotHeaderEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+            .snapshotVersion(SNAPSHOT_VERSION)
+            .participantCount(participants.participantCount())
+            .participantNameLength(participants.totalNameLength())
+            .auctionCount(auctions.auctionCount())
+            .deadlineCount(auctionScheduler.pendingDeadlineCount());
+        retryingOffer(snapshotPublication, buffer, 0,
+            headerEncoder.encodedLength() + snapshotHeaderEncoder.encodedLength());
     }
 
     /**
-     * Offers the participants to the snapshot publication using the ParticipantSnapshotEncoder
+     * Offers the participants to the snapshot publication, in id order, using the ParticipantSnapshotBatchEncoder.
+     * Each batch is filled up to the max payload length of the publication, so that it is written and read as a
+     * single fragment.
      * @param snapshotPublication the publication to offer the snapshot data to
      */
     private void offerParticipants(final ExclusivePublication snapshotPublication)
     {
-        participants.getParticipantList().forEach(participant ->
+        final int maxBatchLength = snapshotPublication.maxPayloadLength();
+        participantBatchCount = 0;
+        participants.forEachParticipant(participant ->
         {
-            participantEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
-            participantEncoder.participantId(participant.participantId());
-            participantEncoder.name(participant.name());
-            retryingOffer(snapshotPublication, buffer,
-                headerEncoder.encodedLength() + participantEncoder.encodedLength());
+            final int entryLength = PARTICIPANT_ENTRY_HEADER_LENGTH + participant.nameLength();
+            if (participantBatchCount > 0 && (participantBatchCount == MAX_PARTICIPANTS_PER_BATCH ||
+                participantBatchLength + entryLength > maxBatchLength))
+            {
+                offerParticipantBatch(snapshotPublication);
+            }
+
+            if (0 == participantBatchCount)
+            {
+                participantBatchEntries = participantBatchEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                    .participantsCount(MAX_PARTICIPANTS_PER_BATCH);
+                participantBatchLength = PARTICIPANT_BATCH_HEADER_LENGTH;
+            }
+
+            participantBatchEntries.next()
+                .participantId(participant.participantId())
+                .putName(participant.buffer(), participant.nameOffset(), participant.nameLength());
+            participantBatchCount++;
+            participantBatchLength += entryLength;
         });
+        offerParticipantBatch(snapshotPublication);
     }
 
+    /**
+     * Sets the group count of the batch of participants encoded so far and offers it
+     * @param snapshotPublication the publication to offer the snapshot data to
+     */
+    private void offerParticipantBatch(final ExclusivePublication snapshotPublication)
+    {
+        if (0 == participantBatchCount)
+        {
+            return;
+        }
 
+        groupSizeEncoder.wrap(buffer, PARTICIPANT_GROUP_HEADER_OFFSET).numInGroup(participantBatchCount);
+        retryingOffer(snapshotPublication, buffer, 0, participantBatchLength);
+        participantBatchCount = 0;
+    }
+
+    /**
+     * Offers the pre-encoded participant image to the snapshot publication, one batch message at a time
+     * @param snapshotPublication the publication to offer the snapshot data to
+     */
+    private void offerParticipantImage(final ExclusivePublication snapshotPublication)
+    {
+        participantImage.compactIfRequired(participants);
+        for (int batch = 0, batchCount = participantImage.batchCount(); batch < batchCount; batch++)
+        {
+            retryingOffer(snapshotPublication, participantImage.buffer(), participantImage.batchOffset(batch),
+                participantImage.batchLength(batch));
+        }
+    }
+
+    private void offerAuctionId(final ExclusivePublication snapshotPublication)
+    {
+        auctionIdEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        auctionIdEncoder.lastId(auctions.lastAuctionId());
+        retryingOffer(snapshotPublication, buffer, 0,
+            headerEncoder.encodedLength() + auctionIdEncoder.encodedLength());
+    }
+
+    /**
+     * Offers the auctions, along with their retained bids, to the snapshot publication using the
+     * AuctionSnapshotEncoder
+     * @param snapshotPublication the publication to offer the snapshot data to
+     */
+    private void offerAuctions(final ExclusivePublication snapshotPublication)
+    {
+        for (long auctionId = 1; auctionId <= auctions.lastAuctionId(); auctionId++)
+        {
+            final Auction auction = auctions.getAuction(auctionId);
+            if (null == auction)
+            {
+                continue;
+            }
+
+            auctionEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder)
+                .auctionId(auction.auctionId())
+                .createdByParticipantId(auction.createdByParticipantId())
+                .startTime(auction.startTime())
+                .endTime(auction.endTime())
+                .status(mapAuctionStatus(auction.status()))
+                .bidCount(auction.bidCount())
+                .lastUpdateTime(auction.lastUpdateTime());
+
+            final int retainedBidCount = auction.retainedBidCount();
+            final AuctionSnapshotEncoder.BidsEncoder bidsEncoder = auctionEncoder.bidsCount(retainedBidCount);
+            for (int i = 0; i < retainedBidCount; i++)
+            {
+                bidsEncoder.next()
+                    .participantId(auction.bidParticipantIdAt(i))
+                    .price(auction.bidPriceAt(i))
+                    .time(auction.bidTimeAt(i));
+            }
+            auctionEncoder.name(auction.name());
+            auctionEncoder.description(auction.description());
+
+            retryingOffer(snapshotPublication, buffer, 0,
+                headerEncoder.encodedLength() + auctionEncoder.encodedLength());
+        }
+    }
+
+    /**
+     * Offers the pending auction deadlines held by the scheduler to the snapshot publication, in batches, using the
+     * AuctionDeadlinesSnapshotEncoder
+     * @param snapshotPublication the publication to offer the snapshot data to
+     */
+    private void offerAuctionDeadlines(final ExclusivePublication snapshotPublication)
+    {
+        pendingDeadlineCount = 0;
+        auctionScheduler.forEachDeadline((auctionId, deadline) ->
+        {
+            deadlineAuctionIds[pendingDeadlineCount] = auctionId;
+            deadlines[pendingDeadlineCount] = deadline;
+            if (++pendingDeadlineCount == DEADLINES_PER_MESSAGE)
+            {
+                offerDeadlineBatch(snapshotPublication);
+            }
+        });
+        offerDeadlineBatch(snapshotPublication);
+    }
+
+    private void offerDeadlineBatch(final ExclusivePublication snapshotPublication)
+    {
+        if (0 == pendingDeadlineCount)
+        {
+            return;
+        }
+
+        deadlinesEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
+        final AuctionDeadlinesSnapshotEncoder.DeadlinesEncoder deadlinesGroup =
+            deadlinesEncoder.deadlinesCount(pendingDeadlineCount);
+        for (int i = 0; i < pendingDeadlineCount; i++)
+        {
+            deadlinesGroup.next().auctionId(deadlineAuctionIds[i]).deadline(deadlines[i]);
+        }
+        retryingOffer(snapshotPublication, buffer, 0,
+            headerEncoder.encodedLength() + deadlinesEncoder.encodedLength());
+        pendingDeadlineCount = 0;
+    }
+
+    private void restoreAuction(final DirectBuffer buffer, final int offset)
+    {
+        auctionDecoder.wrapAndApplyHeader(buffer, offset, headerDecoder);
+        final long auctionId = auctionDecoder.auctionId();
+        final long createdByParticipantId = auctionDecoder.createdByParticipantId();
+        final long startTime = auctionDecoder.startTime();
+        final long endTime = auctionDecoder.endTime();
+        final AuctionStatus status = mapAuctionStatus(auctionDecoder.status());
+        final int bidCount = auctionDecoder.bidCount();
+        final long lastUpdateTime = auctionDecoder.lastUpdateTime();
+
+        int retainedBidCount = 0;
+        for (final AuctionSnapshotDecoder.BidsDecoder bid : auctionDecoder.bids())
+        {
+            if (retainedBidCount < Auction.RETAINED_BID_CAPACITY)
+            {
+                bidParticipantIds[retainedBidCount] = bid.participantId();
+                bidPrices[retainedBidCount] = bid.price();
+                bidTimes[retainedBidCount] = bid.time();
+                retainedBidCount++;
+            }
+        }
+
+        final Auction auction = new Auction(auctionId, createdByParticipantId, startTime, endTime,
+            auctionDecoder.name(), auctionDecoder.description(), lastUpdateTime);
+        for (int i = 0; i < retainedBidCount; i++)
+        {
+            auction.restoreBid(bidParticipantIds[i], bidPrices[i], bidTimes[i]);
+        }
+        auction.restoreState(status, bidCount, lastUpdateTime);
+        auctions.restoreAuction(auction);
+    }
+
+    private static io.aeron.samples.cluster.protocol.AuctionStatus mapAuctionStatus(final AuctionStatus status)
+    {
+        return switch (status)
+        {
+            case PRE_OPEN -> io.aeron.samples.cluster.protocol.AuctionStatus.PRE_OPEN;
+            case OPEN -> io.aeron.samples.cluster.protocol.AuctionStatus.OPEN;
+            case CLOSED -> io.aeron.samples.cluster.protocol.AuctionStatus.CLOSED;
+        };
+    }
+
+    private static AuctionStatus mapAuctionStatus(final io.aeron.samples.cluster.protocol.AuctionStatus status)
+    {
+        return switch (status)
+        {
+            case OPEN -> AuctionStatus.OPEN;
+            case CLOSED -> AuctionStatus.CLOSED;
+            default -> AuctionStatus.PRE_OPEN;
+        };
+    }
 
     private void offerEndOfSnapshotMarker(final ExclusivePublication snapshotPublication)
     {
         endOfSnapshotEncoder.wrapAndApplyHeader(buffer, 0, headerEncoder);
-        retryingOffer(snapshotPublication, buffer,
+        retryingOffer(snapshotPublication, buffer, 0,
             headerEncoder.encodedLength() + endOfSnapshotEncoder.encodedLength());
     }
 
     /**
-     * Retries the offer to the publication if it fails on back pressure or admin action.
-     * Buffer is assumed to always start at offset 0
+     * Retries the offer to the publication until it succeeds, idling on back pressure or admin action. Giving up
+     * would silently leave data out of the snapshot, so only a publication that can no longer be written to ends
+     * the retries.
      * @param publication the publication to offer data to
      * @param buffer the buffer holding the source data
+     * @param offset the offset of the source data within the buffer
      * @param length the length to write
      */
-    private void retryingOffer(final ExclusivePublication publication, final DirectBuffer buffer, final int length)
+    private void retryingOffer(
+        final ExclusivePublication publication,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length)
     {
-        final int offset = 0;
-        int retries = 0;
-        do
+        boolean backPressured = false;
+        idleStrategy.reset();
+        while (true)
         {
             final long result = publication.offer(buffer, offset, length);
             if (result > 0L)
@@ -192,18 +591,18 @@ public class SnapshotManager implements FragmentHandler
             }
             else if (result == Publication.ADMIN_ACTION || result == Publication.BACK_PRESSURED)
             {
-                LOGGER.warn("backpressure or admin action on snapshot");
+                if (!backPressured)
+                {
+                    LOGGER.warn("backpressure or admin action on snapshot");
+                    backPressured = true;
+                }
             }
-            else if (result == Publication.NOT_CONNECTED || result == Publication.MAX_POSITION_EXCEEDED)
+            else
             {
                 LOGGER.error("unexpected publication state on snapshot: {}", result);
                 return;
             }
             idleStrategy.idle();
-            retries += 1;
         }
-        while (retries < RETRY_COUNT);
-
-        LOGGER.error("failed to offer snapshot within {} retries", RETRY_COUNT);
     }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.infra;
+
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandResultEncoder;
+import io.aeron.samples.cluster.protocol.AddParticipantCommandEncoder;
+import io.aeron.samples.cluster.protocol.AddParticipantCommandResultEncoder;
+import io.aeron.samples.cluster.protocol.AuctionListEncoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandEncoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandResultEncoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsCommandEncoder;
+import io.aeron.samples.cluster.protocol.ListParticipantsCommandEncoder;
+import io.aeron.samples.cluster.protocol.ListParticipantsPageCommandEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import io.aeron.samples.cluster.protocol.ParticipantListEncoder;
+import io.aeron.samples.cluster.protocol.ParticipantPageEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableDirectByteBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Lets clients built against version 1 of the cluster protocol, which carries correlation ids as 36 character UUID
+ * strings, coexist with clients of the current version, which carries them as int64.
+ * <p>
+ * A version 1 command is upgraded into a scratch buffer before it is dispatched, with its UUID string held aside, and
+ * the replies to it are downgraded, with the UUID string put back, before they are sent. Every other field has the same
+ * layout in both versions, so the rest of the message is copied as-is, shifted by the difference in length of the
+ * correlation id. Messages without a correlation id, such as the auction events, are the same in both versions.
+ */
+public class Version1ProtocolAdapter
+{
+    private static final int VERSION_1 = io.aeron.samples.cluster.protocol.v1.MessageHeaderDecoder.SCHEMA_VERSION;
+    private static final int UUID_LENGTH =
+        io.aeron.samples.cluster.protocol.v1.AddParticipantCommandDecoder.correlationIdLength();
+    /**
+     * The number of bytes a reply grows by when it is downgraded to version 1
+     */
+    public static final int LENGTH_DIFFERENCE = UUID_LENGTH - Long.BYTES;
+    private static final int HEADER_LENGTH = MessageHeaderDecoder.ENCODED_LENGTH;
+    private static final int NOT_CORRELATED = -1;
+    /**
+     * The replies to an upgraded command are downgraded with the UUID string of the command, so the correlation id
+     * given to the domain is never seen by the client
+     */
+    private static final long UPGRADED_CORRELATION_ID = 0;
+    private static final int MAX_TEMPLATE_ID = 63;
+    private static final int[] CORRELATION_ID_OFFSETS = new int[MAX_TEMPLATE_ID + 1];
+    private static final int[] BLOCK_LENGTHS = new int[MAX_TEMPLATE_ID + 1];
+
+    static
+    {
+        Arrays.fill(CORRELATION_ID_OFFSETS, NOT_CORRELATED);
+        register(AddParticipantCommandEncoder.TEMPLATE_ID, AddParticipantCommandEncoder.BLOCK_LENGTH,
+            AddParticipantCommandEncoder.correlationIdEncodingOffset());
+        register(AddParticipantCommandResultEncoder.TEMPLATE_ID, AddParticipantCommandResultEncoder.BLOCK_LENGTH,
+            AddParticipantCommandResultEncoder.correlationIdEncodingOffset());
+        register(CreateAuctionCommandEncoder.TEMPLATE_ID, CreateAuctionCommandEncoder.BLOCK_LENGTH,
+            CreateAuctionCommandEncoder.correlationIdEncodingOffset());
+        register(CreateAuctionCommandResultEncoder.TEMPLATE_ID, CreateAuctionCommandResultEncoder.BLOCK_LENGTH,
+            CreateAuctionCommandResultEncoder.correlationIdEncodingOffset());
+        register(AddAuctionBidCommandEncoder.TEMPLATE_ID, AddAuctionBidCommandEncoder.BLOCK_LENGTH,
+            AddAuctionBidCommandEncoder.correlationIdEncodingOffset());
+        register(AddAuctionBidCommandResultEncoder.TEMPLATE_ID, AddAuctionBidCommandResultEncoder.BLOCK_LENGTH,
+            AddAuctionBidCommandResultEncoder.correlationIdEncodingOffset());
+        register(ListAuctionsCommandEncoder.TEMPLATE_ID, ListAuctionsCommandEncoder.BLOCK_LENGTH,
+            ListAuctionsCommandEncoder.correlationIdEncodingOffset());
+        register(AuctionListEncoder.TEMPLATE_ID, AuctionListEncoder.BLOCK_LENGTH,
+            AuctionListEncoder.correlationIdEncodingOffset());
+        register(ListParticipantsCommandEncoder.TEMPLATE_ID, ListParticipantsCommandEncoder.BLOCK_LENGTH,
+            ListParticipantsCommandEncoder.correlationIdEncodingOffset());
+        register(ParticipantListEncoder.TEMPLATE_ID, ParticipantListEncoder.BLOCK_LENGTH,
+            ParticipantListEncoder.correlationIdEncodingOffset());
+        register(ListParticipantsPageCommandEncoder.TEMPLATE_ID, ListParticipantsPageCommandEncoder.BLOCK_LENGTH,
+            ListParticipantsPageCommandEncoder.correlationIdEncodingOffset());
+        register(ParticipantPageEncoder.TEMPLATE_ID, ParticipantPageEncoder.BLOCK_LENGTH,
+            ParticipantPageEncoder.correlationIdEncodingOffset());
+    }
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+    private final ExpandableDirectByteBuffer upgradedBuffer = new ExpandableDirectByteBuffer(1024);
+    private final ExpandableDirectByteBuffer downgradedBuffer = new ExpandableDirectByteBuffer(1024);
+    private final byte[] uuid = new byte[UUID_LENGTH];
+    private boolean replyingToVersion1;
+
+    /**
+     * Upgrades a version 1 command to the current version, holding its UUID string aside for the replies to it, which
+     * are downgraded until {@link #endVersion1Replies()}
+     * @param buffer the buffer containing the message, including a header
+     * @param offset the offset of the message
+     * @param length the length of the message
+     * @return the length of the upgraded command in {@link #upgradedBuffer()}, or 0 if the message is not a version 1
+     * message with a correlation id
+     */
+    public int upgrade(final DirectBuffer buffer, final int offset, final int length)
+    {
+        if (length < HEADER_LENGTH)
+        {
+            return 0;
+        }
+
+        headerDecoder.wrap(buffer, offset);
+        final int templateId = headerDecoder.templateId();
+        if (MessageHeaderDecoder.SCHEMA_ID != headerDecoder.schemaId() || VERSION_1 != headerDecoder.version() ||
+            !isCorrelated(templateId))
+        {
+            return 0;
+        }
+
+        final int blockLength = BLOCK_LENGTHS[templateId];
+        final int correlationIdOffset = CORRELATION_ID_OFFSETS[templateId];
+        if (headerDecoder.blockLength() != blockLength + LENGTH_DIFFERENCE ||
+            length < HEADER_LENGTH + blockLength + LENGTH_DIFFERENCE)
+        {
+            return 0;
+        }
+
+        final int bodyOffset = offset + HEADER_LENGTH;
+        buffer.getBytes(bodyOffset + correlationIdOffset, uuid);
+        headerEncoder.wrap(upgradedBuffer, 0)
+            .blockLength(blockLength)
+            .templateId(templateId)
+            .schemaId(MessageHeaderEncoder.SCHEMA_ID)
+            .version(MessageHeaderEncoder.SCHEMA_VERSION);
+        upgradedBuffer.putBytes(HEADER_LENGTH, buffer, bodyOffset, correlationIdOffset);
+        upgradedBuffer.putLong(
+            HEADER_LENGTH + correlationIdOffset, UPGRADED_CORRELATION_ID, MessageHeaderEncoder.BYTE_ORDER);
+        final int remainderOffset = correlationIdOffset + UUID_LENGTH;
+        upgradedBuffer.putBytes(HEADER_LENGTH + correlationIdOffset + Long.BYTES, buffer, bodyOffset + remainderOffset,
+            length - HEADER_LENGTH - remainderOffset);
+
+        replyingToVersion1 = true;
+        return length - LENGTH_DIFFERENCE;
+    }
+
+    /**
+     * The buffer holding the command last upgraded, at offset 0
+     * @return the upgraded command
+     */
+    public DirectBuffer upgradedBuffer()
+    {
+        return upgradedBuffer;
+    }
+
+    /**
+     * Whether replies are to the version 1 command last upgraded, and are to be downgraded
+     * @return true if replies are to be downgraded
+     */
+    public boolean isReplyingToVersion1()
+    {
+        return replyingToVersion1;
+    }
+
+    /**
+     * Stops downgrading replies, once the upgraded command has been dispatched
+     */
+    public void endVersion1Replies()
+    {
+        replyingToVersion1 = false;
+    }
+
+    /**
+     * Downgrades a reply with a correlation id to version 1, with the UUID string of the command last upgraded
+     * @param buffer the buffer containing the reply, including a header
+     * @param offset the offset of the reply
+     * @param length the length of the reply
+     * @return the length of the downgraded reply in {@link #downgradedBuffer()}, or 0 if the reply has no correlation
+     * id, so is the same in both versions
+     */
+    public int downgrade(final DirectBuffer buffer, final int offset, final int length)
+    {
+        headerDecoder.wrap(buffer, offset);
+        final int templateId = headerDecoder.templateId();
+        if (MessageHeaderDecoder.SCHEMA_ID != headerDecoder.schemaId() || !isCorrelated(templateId))
+        {
+            return 0;
+        }
+
+        final int blockLength = BLOCK_LENGTHS[templateId];
+        final int correlationIdOffset = CORRELATION_ID_OFFSETS[templateId];
+        final int bodyOffset = offset + HEADER_LENGTH;
+        headerEncoder.wrap(downgradedBuffer, 0)
+            .blockLength(blockLength + LENGTH_DIFFERENCE)
+            .templateId(templateId)
+            .schemaId(MessageHeaderEncoder.SCHEMA_ID)
+            .version(VERSION_1);
+        downgradedBuffer.putBytes(HEADER_LENGTH, buffer, bodyOffset, correlationIdOffset);
+        downgradedBuffer.putBytes(HEADER_LENGTH + correlationIdOffset, uuid);
+        final int remainderOffset = correlationIdOffset + Long.BYTES;
+        downgradedBuffer.putBytes(HEADER_LENGTH + correlationIdOffset + UUID_LENGTH, buffer,
+            bodyOffset + remainderOffset, length - HEADER_LENGTH - remainderOffset);
+
+        return length + LENGTH_DIFFERENCE;
+    }
+
+    /**
+     * The buffer holding the reply last downgraded, at offset 0
+     * @return the downgraded reply
+     */
+    public DirectBuffer downgradedBuffer()
+    {
+        return downgradedBuffer;
+    }
+
+    private static boolean isCorrelated(final int templateId)
+    {
+        return templateId <= MAX_TEMPLATE_ID && NOT_CORRELATED != CORRELATION_ID_OFFSETS[templateId];
+    }
+
+    private static void register(final int templateId, final int blockLength, final int correlationIdOffset)
+    {
+        CORRELATION_ID_OFFSETS[templateId] = correlationIdOffset;
+        BLOCK_LENGTHS[templateId] = blockLength;
+    }
+}
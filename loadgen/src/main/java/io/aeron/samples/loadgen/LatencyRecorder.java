@@ -0,0 +1,226 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records reply latencies per command in two histograms.
+ * <p>
+ * The corrected histogram measures from the time a command was intended to be sent, as set by the target rate, to
+ * the time its reply arrived. When the cluster, or the load generator itself, stalls, the commands that should have
+ * been sent during the stall are still measured from when they were due, so the stall shows in the percentiles rather
+ * than being hidden by the load generator slowing down with it (coordinated omission). The uncorrected histogram
+ * measures from the time the command was actually sent, for comparison.
+ * <p>
+ * Only commands intended to be sent after {@link #startMeasuring(long)} are recorded, so the warm up is excluded.
+ */
+public class LatencyRecorder
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LatencyRecorder.class);
+    private static final long HIGHEST_TRACKABLE_NS = TimeUnit.SECONDS.toNanos(60);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final String CSV_HEADER = "timestamp,command,measure,target_rate,sessions,count,timeouts," +
+        "throughput,p50_us,p90_us,p99_us,p99_9_us,p99_99_us,max_us";
+
+    private final Histogram[] correctedHistograms = new Histogram[LoadCommand.values().length];
+    private final Histogram[] uncorrectedHistograms = new Histogram[LoadCommand.values().length];
+    private final long[] timeouts = new long[LoadCommand.values().length];
+    private long measureFromNs = Long.MAX_VALUE;
+
+    /**
+     * Constructor
+     */
+    public LatencyRecorder()
+    {
+        for (int i = 0; i < correctedHistograms.length; i++)
+        {
+            correctedHistograms[i] = new Histogram(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+            uncorrectedHistograms[i] = new Histogram(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+        }
+    }
+
+    /**
+     * Clears everything recorded so far and records only commands intended to be sent from the given time on
+     * @param measureFromNs the time measurement starts
+     */
+    public void startMeasuring(final long measureFromNs)
+    {
+        this.measureFromNs = measureFromNs;
+        for (int i = 0; i < correctedHistograms.length; i++)
+        {
+            correctedHistograms[i].reset();
+            uncorrectedHistograms[i].reset();
+            timeouts[i] = 0;
+        }
+    }
+
+    /**
+     * Records the reply to a command
+     * @param command the command replied to
+     * @param intendedNs the time the command was intended to be sent
+     * @param sentNs the time the command was sent
+     * @param replyNs the time the reply arrived
+     */
+    public void recordReply(final LoadCommand command, final long intendedNs, final long sentNs, final long replyNs)
+    {
+        if (intendedNs >= measureFromNs)
+        {
+            correctedHistograms[command.ordinal()].recordValue(
+                Math.min(replyNs - intendedNs, HIGHEST_TRACKABLE_NS));
+            uncorrectedHistograms[command.ordinal()].recordValue(Math.min(replyNs - sentNs, HIGHEST_TRACKABLE_NS));
+        }
+    }
+
+    /**
+     * Records a command that did not get a reply in time
+     * @param command the command that timed out
+     * @param intendedNs the time the command was intended to be sent
+     */
+    public void recordTimeout(final LoadCommand command, final long intendedNs)
+    {
+        if (intendedNs >= measureFromNs)
+        {
+            timeouts[command.ordinal()]++;
+        }
+    }
+
+    /**
+     * Logs the throughput and latency percentiles of each command, and of all commands, then appends them to the CSV
+     * file
+     * @param config the configuration of the run
+     * @param measuredNs the time measured over
+     */
+    public void report(final LoadGeneratorConfig config, final long measuredNs)
+    {
+        final Histogram allCorrected = new Histogram(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+        final Histogram allUncorrected = new Histogram(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+        long allTimeouts = 0;
+        final StringBuilder csv = new StringBuilder();
+        final String timestamp = Instant.now().toString();
+
+        LOGGER.info("Results for {}", config);
+        for (final LoadCommand command : LoadCommand.values())
+        {
+            final int i = command.ordinal();
+            allCorrected.add(correctedHistograms[i]);
+            allUncorrected.add(uncorrectedHistograms[i]);
+            allTimeouts += timeouts[i];
+            if (correctedHistograms[i].getTotalCount() > 0 || timeouts[i] > 0)
+            {
+                report(csv, timestamp, config, command.displayName(), correctedHistograms[i],
+                    uncorrectedHistograms[i], timeouts[i], measuredNs);
+            }
+        }
+        report(csv, timestamp, config, "all", allCorrected, allUncorrected, allTimeouts, measuredNs);
+
+        appendCsv(config.csvFile(), csv);
+    }
+
+    private static void report(
+        final StringBuilder csv,
+        final String timestamp,
+        final LoadGeneratorConfig config,
+        final String name,
+        final Histogram corrected,
+        final Histogram uncorrected,
+        final long timeouts,
+        final long measuredNs)
+    {
+        final double throughput = corrected.getTotalCount() * (double)TimeUnit.SECONDS.toNanos(1) / measuredNs;
+        LOGGER.info("{}: count={} timeouts={} throughput={}/s", name, corrected.getTotalCount(), timeouts,
+            String.format("%.1f", throughput));
+        LOGGER.info("{} corrected   (us) {}", name, percentiles(corrected));
+        LOGGER.info("{} uncorrected (us) {}", name, percentiles(uncorrected));
+
+        appendCsvRow(csv, timestamp, config, name, "corrected", corrected, timeouts, throughput);
+        appendCsvRow(csv, timestamp, config, name, "uncorrected", uncorrected, timeouts, throughput);
+    }
+
+    private static String percentiles(final Histogram histogram)
+    {
+        return String.format("p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f p99.99=%.1f max=%.1f",
+            micros(histogram.getValueAtPercentile(50)),
+            micros(histogram.getValueAtPercentile(90)),
+            micros(histogram.getValueAtPercentile(99)),
+            micros(histogram.getValueAtPercentile(99.9)),
+            micros(histogram.getValueAtPercentile(99.99)),
+            micros(histogram.getMaxValue()));
+    }
+
+    private static void appendCsvRow(
+        final StringBuilder csv,
+        final String timestamp,
+        final LoadGeneratorConfig config,
+        final String name,
+        final String measure,
+        final Histogram histogram,
+        final long timeouts,
+        final double throughput)
+    {
+        csv.append(timestamp).append(',')
+            .append(name).append(',')
+            .append(measure).append(',')
+            .append(config.targetRate()).append(',')
+            .append(config.sessionCount()).append(',')
+            .append(histogram.getTotalCount()).append(',')
+            .append(timeouts).append(',')
+            .append(String.format("%.1f", throughput)).append(',')
+            .append(String.format("%.1f,%.1f,%.1f,%.1f,%.1f,%.1f",
+                micros(histogram.getValueAtPercentile(50)),
+                micros(histogram.getValueAtPercentile(90)),
+                micros(histogram.getValueAtPercentile(99)),
+                micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getValueAtPercentile(99.99)),
+                micros(histogram.getMaxValue())))
+            .append(System.lineSeparator());
+    }
+
+    private static void appendCsv(final String csvFile, final StringBuilder csv)
+    {
+        final boolean isNew = !Files.exists(Path.of(csvFile));
+        try (PrintWriter writer = new PrintWriter(new FileWriter(csvFile, true)))
+        {
+            if (isNew)
+            {
+                writer.println(CSV_HEADER);
+            }
+            writer.print(csv);
+            LOGGER.info("Results appended to {}", csvFile);
+        }
+        catch (final IOException e)
+        {
+            LOGGER.error("Failed to write results to {}", csvFile, e);
+        }
+    }
+
+    private static double micros(final long nanos)
+    {
+        return nanos / 1000.0;
+    }
+}
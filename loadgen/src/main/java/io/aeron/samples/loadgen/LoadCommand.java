@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.loadgen;
+
+/**
+ * The commands the load generator sends to the cluster
+ */
+public enum LoadCommand
+{
+    /**
+     * Adds a new participant
+     */
+    ADD_PARTICIPANT("add-participant"),
+    /**
+     * Adds a bid, above the current price, to the auction created for the run
+     */
+    ADD_BID("add-bid"),
+    /**
+     * Lists all auctions
+     */
+    LIST_AUCTIONS("list-auctions");
+
+    private static final LoadCommand[] VALUES = values();
+    private final String displayName;
+
+    LoadCommand(final String displayName)
+    {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Gets the command with the given ordinal, without allocating a copy of the values
+     * @param ordinal the ordinal of the command
+     * @return the command
+     */
+    public static LoadCommand get(final int ordinal)
+    {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Parses a command from its display name, for example add-bid
+     * @param displayName the display name of the command
+     * @return the command
+     */
+    public static LoadCommand parse(final String displayName)
+    {
+        for (final LoadCommand command : VALUES)
+        {
+            if (command.displayName.equals(displayName.trim()))
+            {
+                return command;
+            }
+        }
+        throw new IllegalArgumentException("unknown command: " + displayName);
+    }
+
+    /**
+     * The name of the command as used in the mix and the report
+     * @return the display name
+     */
+    public String displayName()
+    {
+        return displayName;
+    }
+}
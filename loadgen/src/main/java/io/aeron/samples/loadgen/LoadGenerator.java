@@ -0,0 +1,319 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.loadgen;
+
+import io.aeron.Aeron;
+import io.aeron.CommonContext;
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
+import io.aeron.samples.cluster.ClusterConfig;
+import org.agrona.CloseHelper;
+import org.agrona.concurrent.IdleStrategy;
+import org.agrona.concurrent.NanoClock;
+import org.agrona.concurrent.SigInt;
+import org.agrona.concurrent.SystemNanoClock;
+import org.agrona.concurrent.YieldingIdleStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drives a fixed rate of commands at the cluster over a number of sessions and reports the reply latencies.
+ * <p>
+ * Each command has an intended send time, {@code start + k / rate}, fixed by the target rate rather than by when the
+ * previous command was sent or replied to. When the load generator falls behind, because of back pressure or a stall,
+ * it sends the commands it owes as fast as it can, and their latencies are measured from their intended send times;
+ * see {@link LatencyRecorder}.
+ */
+public final class LoadGenerator
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final String INGRESS_CHANNEL = "aeron:udp?term-length=64k";
+    /**
+     * The participants the cluster starts with; they are added again in case the cluster was restored without them
+     */
+    private static final long SELLER_PARTICIPANT_ID = 500;
+    private static final long BIDDER_PARTICIPANT_ID = 501;
+    private static final long NEW_PARTICIPANT_ID_BASE = 1_000_000;
+    private static final long SETUP_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final long DRAIN_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
+    private static final long REPLY_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final long EXPIRY_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final long RANDOM_SEED = 42;
+
+    private final LoadGeneratorConfig config;
+    private final NanoClock nanoClock = SystemNanoClock.INSTANCE;
+    private final IdleStrategy idleStrategy = new YieldingIdleStrategy();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    private final SplittableRandom random = new SplittableRandom(RANDOM_SEED);
+    private final int[] mixWeights;
+    private final int mixTotal;
+    private final List<LoadSession> sessions = new ArrayList<>();
+    private long auctionId;
+    private long nextParticipantId = NEW_PARTICIPANT_ID_BASE;
+    private long nextPrice = 1;
+
+    private LoadGenerator(final LoadGeneratorConfig config)
+    {
+        this.config = config;
+        this.mixWeights = config.mixWeights();
+        this.mixTotal = Arrays.stream(mixWeights).sum();
+    }
+
+    /**
+     * The main method.
+     *
+     * @param args command line args
+     */
+    public static void main(final String[] args)
+    {
+        final LoadGeneratorConfig config = LoadGeneratorConfig.fromEnvironment();
+        final LoadGenerator loadGenerator = new LoadGenerator(config);
+        SigInt.register(() -> loadGenerator.running.set(false));
+
+        LOGGER.info("Starting load generator: {}", config);
+        final MediaDriver.Context mediaDriverContext = new MediaDriver.Context()
+            .aeronDirectoryName(CommonContext.generateRandomDirName())
+            .threadingMode(ThreadingMode.SHARED)
+            .dirDeleteOnStart(true)
+            .dirDeleteOnShutdown(true);
+        try (
+            MediaDriver mediaDriver = MediaDriver.launch(mediaDriverContext);
+            Aeron aeron = Aeron.connect(new Aeron.Context().aeronDirectoryName(mediaDriver.aeronDirectoryName())))
+        {
+            try
+            {
+                loadGenerator.run(aeron);
+            }
+            finally
+            {
+                // Close the sessions while the client and driver are still open, so they send a CloseSession rather
+                // than being left open on the cluster until they time out.
+                CloseHelper.closeAll(loadGenerator.sessions.stream().map(LoadSession::aeronCluster).toList());
+            }
+        }
+    }
+
+    private void run(final Aeron aeron)
+    {
+        connectSessions(aeron);
+        if (!createAuction())
+        {
+            LOGGER.error("Timed out setting up the auction to bid on");
+            return;
+        }
+        LOGGER.info("Bidding on auction {}", auctionId);
+
+        final long startNs = nanoClock.nanoTime();
+        final long measureFromNs = startNs + config.warmupNs();
+        final long endNs = measureFromNs + config.durationNs();
+        final double intervalNs = (double)TimeUnit.SECONDS.toNanos(1) / config.targetRate();
+        latencyRecorder.startMeasuring(measureFromNs);
+
+        long sent = 0;
+        long intendedNs = startNs;
+        LoadCommand command = nextCommand();
+        long nextExpiryNs = startNs + EXPIRY_INTERVAL_NS;
+        boolean measuring = false;
+
+        while (running.get() && intendedNs < endNs)
+        {
+            final long nowNs = nanoClock.nanoTime();
+            int workCount = 0;
+
+            while (intendedNs <= nowNs && intendedNs < endNs)
+            {
+                if (!offer(sessions.get((int)(sent % sessions.size())), command, intendedNs))
+                {
+                    break;
+                }
+                sent++;
+                workCount++;
+                intendedNs = startNs + (long)(sent * intervalNs);
+                command = nextCommand();
+            }
+
+            workCount += pollSessions(nowNs);
+            if (nowNs >= nextExpiryNs)
+            {
+                expireSessions(nowNs - REPLY_TIMEOUT_NS);
+                nextExpiryNs = nowNs + EXPIRY_INTERVAL_NS;
+            }
+            if (!measuring && nowNs >= measureFromNs)
+            {
+                measuring = true;
+                LOGGER.info("Warm up complete, measuring for {}s", TimeUnit.NANOSECONDS.toSeconds(config.durationNs()));
+            }
+            idleStrategy.idle(workCount);
+        }
+
+        final long measuredNs = Math.max(1, Math.min(nanoClock.nanoTime(), endNs) - measureFromNs);
+        drain();
+        latencyRecorder.report(config, measuredNs);
+    }
+
+    private void connectSessions(final Aeron aeron)
+    {
+        final List<String> hostnames = Arrays.asList(config.clusterAddresses().split(","));
+        final String ingressEndpoints = ClusterConfig.ingressEndpoints(
+            hostnames, config.basePort(), ClusterConfig.CLIENT_FACING_PORT_OFFSET);
+        for (int i = 0; i < config.sessionCount(); i++)
+        {
+            final LoadSession session = new LoadSession(latencyRecorder, nanoClock);
+            sessions.add(session);
+            final AeronCluster.Context context = new AeronCluster.Context()
+                .aeronDirectoryName(aeron.context().aeronDirectoryName())
+                .aeron(aeron)
+                .ownsAeronClient(false)
+                .egressListener(session)
+                .egressChannel("aeron:udp?endpoint=" + config.responseHost() + ":0")
+                .ingressChannel(INGRESS_CHANNEL)
+                .ingressEndpoints(ingressEndpoints);
+            session.aeronCluster(AeronCluster.connect(context));
+        }
+        LOGGER.info("Connected {} sessions to cluster leader, node {}",
+            sessions.size(), sessions.get(0).aeronCluster().leaderMemberId());
+    }
+
+    private boolean createAuction()
+    {
+        final LoadSession session = sessions.get(0);
+        final long deadlineNs = nanoClock.nanoTime() + SETUP_TIMEOUT_NS;
+        final long nowMs = System.currentTimeMillis();
+        final long endMs = nowMs + TimeUnit.NANOSECONDS.toMillis(config.warmupNs() + config.durationNs()) +
+            TimeUnit.MINUTES.toMillis(5);
+
+        while (!session.offerSetupParticipant(SELLER_PARTICIPANT_ID, "initiator"))
+        {
+            if (!awaitSetup(deadlineNs))
+            {
+                return false;
+            }
+        }
+        while (!session.offerSetupParticipant(BIDDER_PARTICIPANT_ID, "responder"))
+        {
+            if (!awaitSetup(deadlineNs))
+            {
+                return false;
+            }
+        }
+        while (!session.offerSetupAuction(SELLER_PARTICIPANT_ID, nowMs, endMs))
+        {
+            if (!awaitSetup(deadlineNs))
+            {
+                return false;
+            }
+        }
+        while (-1 == session.createdAuctionId())
+        {
+            if (!awaitSetup(deadlineNs))
+            {
+                return false;
+            }
+        }
+
+        auctionId = session.createdAuctionId();
+        return true;
+    }
+
+    private boolean awaitSetup(final long deadlineNs)
+    {
+        final long nowNs = nanoClock.nanoTime();
+        idleStrategy.idle(pollSessions(nowNs));
+        return running.get() && nowNs < deadlineNs;
+    }
+
+    private boolean offer(final LoadSession session, final LoadCommand command, final long intendedNs)
+    {
+        final boolean sent = session.offer(
+            command, intendedNs, nextParticipantId, auctionId, BIDDER_PARTICIPANT_ID, nextPrice);
+        if (sent)
+        {
+            if (LoadCommand.ADD_PARTICIPANT == command)
+            {
+                nextParticipantId++;
+            }
+            else if (LoadCommand.ADD_BID == command)
+            {
+                nextPrice++;
+            }
+        }
+        return sent;
+    }
+
+    private LoadCommand nextCommand()
+    {
+        int value = random.nextInt(mixTotal);
+        for (int i = 0; i < mixWeights.length; i++)
+        {
+            value -= mixWeights[i];
+            if (value < 0)
+            {
+                return LoadCommand.get(i);
+            }
+        }
+        throw new IllegalStateException("mix weights do not add up to " + mixTotal);
+    }
+
+    private void drain()
+    {
+        final long deadlineNs = nanoClock.nanoTime() + DRAIN_TIMEOUT_NS;
+        long nowNs;
+        while ((nowNs = nanoClock.nanoTime()) < deadlineNs && running.get() && pendingCount() > 0)
+        {
+            idleStrategy.idle(pollSessions(nowNs));
+        }
+        expireSessions(nowNs + 1);
+    }
+
+    private int pollSessions(final long nowNs)
+    {
+        int workCount = 0;
+        for (int i = 0; i < sessions.size(); i++)
+        {
+            workCount += sessions.get(i).poll(nowNs);
+        }
+        return workCount;
+    }
+
+    private void expireSessions(final long sentBeforeNs)
+    {
+        for (int i = 0; i < sessions.size(); i++)
+        {
+            sessions.get(i).expire(sentBeforeNs);
+        }
+    }
+
+    private int pendingCount()
+    {
+        int pendingCount = 0;
+        for (int i = 0; i < sessions.size(); i++)
+        {
+            pendingCount += sessions.get(i).pendingCount();
+        }
+        return pendingCount;
+    }
+}
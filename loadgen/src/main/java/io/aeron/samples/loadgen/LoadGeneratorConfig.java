@@ -0,0 +1,223 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.loadgen;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration of a load generator run. Each setting is read from an environment variable, then a system property,
+ * then falls back to a default.
+ */
+public final class LoadGeneratorConfig
+{
+    private final String clusterAddresses;
+    private final int basePort;
+    private final String responseHost;
+    private final int sessionCount;
+    private final int targetRate;
+    private final long warmupNs;
+    private final long durationNs;
+    private final int[] mixWeights;
+    private final String mix;
+    private final String csvFile;
+
+    private LoadGeneratorConfig(
+        final String clusterAddresses,
+        final int basePort,
+        final String responseHost,
+        final int sessionCount,
+        final int targetRate,
+        final long warmupNs,
+        final long durationNs,
+        final String mix,
+        final String csvFile)
+    {
+        this.clusterAddresses = clusterAddresses;
+        this.basePort = basePort;
+        this.responseHost = responseHost;
+        this.sessionCount = sessionCount;
+        this.targetRate = targetRate;
+        this.warmupNs = warmupNs;
+        this.durationNs = durationNs;
+        this.mix = mix;
+        this.mixWeights = parseMix(mix);
+        this.csvFile = csvFile;
+
+        if (sessionCount < 1)
+        {
+            throw new IllegalArgumentException("LOADGEN_SESSIONS must be at least 1: " + sessionCount);
+        }
+        if (targetRate < 1)
+        {
+            throw new IllegalArgumentException("LOADGEN_RATE must be at least 1: " + targetRate);
+        }
+    }
+
+    /**
+     * Reads the configuration from the environment
+     * @return the configuration
+     */
+    public static LoadGeneratorConfig fromEnvironment()
+    {
+        return new LoadGeneratorConfig(
+            get("CLUSTER_ADDRESSES", "cluster.addresses", "localhost"),
+            Integer.parseInt(get("CLUSTER_PORT_BASE", "port.base", "9000")),
+            get("LOADGEN_HOST", "loadgen.host", "localhost"),
+            Integer.parseInt(get("LOADGEN_SESSIONS", "loadgen.sessions", "4")),
+            Integer.parseInt(get("LOADGEN_RATE", "loadgen.rate", "1000")),
+            TimeUnit.SECONDS.toNanos(Long.parseLong(get("LOADGEN_WARMUP_SECONDS", "loadgen.warmup.seconds", "5"))),
+            TimeUnit.SECONDS.toNanos(Long.parseLong(get("LOADGEN_DURATION_SECONDS", "loadgen.duration.seconds", "30"))),
+            get("LOADGEN_MIX", "loadgen.mix", "add-bid=90,add-participant=9,list-auctions=1"),
+            get("LOADGEN_CSV_FILE", "loadgen.csv.file", "loadgen-results.csv"));
+    }
+
+    /**
+     * Comma separated cluster hosts
+     * @return the cluster addresses
+     */
+    public String clusterAddresses()
+    {
+        return clusterAddresses;
+    }
+
+    /**
+     * Base port of the cluster
+     * @return the base port
+     */
+    public int basePort()
+    {
+        return basePort;
+    }
+
+    /**
+     * Host the cluster sends egress to
+     * @return the response host
+     */
+    public String responseHost()
+    {
+        return responseHost;
+    }
+
+    /**
+     * Number of cluster sessions the load is spread over
+     * @return the session count
+     */
+    public int sessionCount()
+    {
+        return sessionCount;
+    }
+
+    /**
+     * Commands per second sent over all sessions
+     * @return the target rate
+     */
+    public int targetRate()
+    {
+        return targetRate;
+    }
+
+    /**
+     * Time the load runs for before recording starts
+     * @return the warm up time in nanoseconds
+     */
+    public long warmupNs()
+    {
+        return warmupNs;
+    }
+
+    /**
+     * Time the load is recorded for
+     * @return the duration in nanoseconds
+     */
+    public long durationNs()
+    {
+        return durationNs;
+    }
+
+    /**
+     * The mix of commands, as configured
+     * @return the mix, for example add-bid=90,add-participant=9,list-auctions=1
+     */
+    public String mix()
+    {
+        return mix;
+    }
+
+    /**
+     * Relative weight of each command in the mix, indexed by {@link LoadCommand} ordinal
+     * @return the weights
+     */
+    public int[] mixWeights()
+    {
+        return mixWeights;
+    }
+
+    /**
+     * File the results are appended to as CSV
+     * @return the CSV file name
+     */
+    public String csvFile()
+    {
+        return csvFile;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "sessions=" + sessionCount + " rate=" + targetRate + "/s warmup=" +
+            TimeUnit.NANOSECONDS.toSeconds(warmupNs) + "s duration=" + TimeUnit.NANOSECONDS.toSeconds(durationNs) +
+            "s mix=" + mix + " cluster=" + clusterAddresses + ":" + basePort;
+    }
+
+    private static int[] parseMix(final String mix)
+    {
+        final int[] weights = new int[LoadCommand.values().length];
+        int total = 0;
+        for (final String entry : mix.split(","))
+        {
+            final String[] nameAndWeight = entry.split("=");
+            if (2 != nameAndWeight.length)
+            {
+                throw new IllegalArgumentException("LOADGEN_MIX entries must be command=weight: " + entry);
+            }
+            final int weight = Integer.parseInt(nameAndWeight[1].trim());
+            if (weight < 0)
+            {
+                throw new IllegalArgumentException("LOADGEN_MIX weights must not be negative: " + entry);
+            }
+            weights[LoadCommand.parse(nameAndWeight[0]).ordinal()] = weight;
+            total += weight;
+        }
+
+        if (0 == total)
+        {
+            throw new IllegalArgumentException("LOADGEN_MIX must have a positive weight: " + mix);
+        }
+        return weights;
+    }
+
+    private static String get(final String envName, final String propertyName, final String defaultValue)
+    {
+        final String value = System.getenv(envName);
+        if (null == value || value.isEmpty())
+        {
+            return System.getProperty(propertyName, defaultValue);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2023 Adaptive Financial Consulting
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.aeron.samples.loadgen;
+
+import io.aeron.cluster.client.AeronCluster;
+import io.aeron.cluster.client.EgressListener;
+import io.aeron.cluster.codecs.EventCode;
+import io.aeron.logbuffer.Header;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandEncoder;
+import io.aeron.samples.cluster.protocol.AddAuctionResult;
+import io.aeron.samples.cluster.protocol.AddAuctionBidCommandResultDecoder;
+import io.aeron.samples.cluster.protocol.AddParticipantCommandEncoder;
+import io.aeron.samples.cluster.protocol.AddParticipantCommandResultDecoder;
+import io.aeron.samples.cluster.protocol.AuctionListDecoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandEncoder;
+import io.aeron.samples.cluster.protocol.CreateAuctionCommandResultDecoder;
+import io.aeron.samples.cluster.protocol.ListAuctionsCommandEncoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderDecoder;
+import io.aeron.samples.cluster.protocol.MessageHeaderEncoder;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.NanoClock;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single cluster session driven by the load generator. Every command sent is tracked in a ring of pending slots,
+ * indexed by its correlation id, so the reply can be matched to the time the command was intended to be sent and the
+ * time it was actually sent, without allocating.
+ */
+public class LoadSession implements EgressListener
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadSession.class);
+    private static final int PENDING_CAPACITY = 64 * 1024;
+    private static final int PENDING_MASK = PENDING_CAPACITY - 1;
+    private static final long NO_CORRELATION_ID = -1;
+    private static final long KEEP_ALIVE_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final String PARTICIPANT_NAME = "loadgen";
+
+    private final MessageHeaderEncoder messageHeaderEncoder = new MessageHeaderEncoder();
+    private final MessageHeaderDecoder messageHeaderDecoder = new MessageHeaderDecoder();
+    private final AddParticipantCommandEncoder addParticipantEncoder = new AddParticipantCommandEncoder();
+    private final AddAuctionBidCommandEncoder addAuctionBidEncoder = new AddAuctionBidCommandEncoder();
+    private final ListAuctionsCommandEncoder listAuctionsEncoder = new ListAuctionsCommandEncoder();
+    private final CreateAuctionCommandEncoder createAuctionEncoder = new CreateAuctionCommandEncoder();
+    private final AddParticipantCommandResultDecoder addParticipantResultDecoder =
+        new AddParticipantCommandResultDecoder();
+    private final AddAuctionBidCommandResultDecoder addAuctionBidResultDecoder =
+        new AddAuctionBidCommandResultDecoder();
+    private final AuctionListDecoder auctionListDecoder = new AuctionListDecoder();
+    private final CreateAuctionCommandResultDecoder createAuctionResultDecoder =
+        new CreateAuctionCommandResultDecoder();
+    private final UnsafeBuffer sendBuffer = new UnsafeBuffer(new byte[1024]);
+
+    private final long[] pendingCorrelationIds = new long[PENDING_CAPACITY];
+    private final long[] pendingIntendedNs = new long[PENDING_CAPACITY];
+    private final long[] pendingSentNs = new long[PENDING_CAPACITY];
+    private final int[] pendingCommands = new int[PENDING_CAPACITY];
+
+    private final LatencyRecorder latencyRecorder;
+    private final NanoClock nanoClock;
+    private AeronCluster aeronCluster;
+    private long nextCorrelationId;
+    private long lastSentNs;
+    private int pendingCount;
+    private long createdAuctionId = NO_CORRELATION_ID;
+
+    /**
+     * Constructor
+     * @param latencyRecorder records the latency of each reply
+     * @param nanoClock clock the send and reply times are taken from
+     */
+    public LoadSession(final LatencyRecorder latencyRecorder, final NanoClock nanoClock)
+    {
+        this.latencyRecorder = latencyRecorder;
+        this.nanoClock = nanoClock;
+        Arrays.fill(pendingCorrelationIds, NO_CORRELATION_ID);
+    }
+
+    /**
+     * Sets the cluster client this session sends on, once connected
+     * @param aeronCluster the connected cluster client
+     */
+    public void aeronCluster(final AeronCluster aeronCluster)
+    {
+        this.aeronCluster = aeronCluster;
+        this.lastSentNs = nanoClock.nanoTime();
+    }
+
+    /**
+     * The cluster client this session sends on
+     * @return the cluster client
+     */
+    public AeronCluster aeronCluster()
+    {
+        return aeronCluster;
+    }
+
+    /**
+     * Offers a command to the cluster
+     * @param command the command to send
+     * @param intendedNs the time the command should have been sent according to the target rate
+     * @param id the participant id for new participants
+     * @param auctionId the auction bids are added to
+     * @param bidderId the participant bids are added by
+     * @param price the price of bids
+     * @return true if the command was sent, false on back pressure or if too many commands are awaiting a reply
+     */
+    public boolean offer(
+        final LoadCommand command,
+        final long intendedNs,
+        final long id,
+        final long auctionId,
+        final long bidderId,
+        final long price)
+    {
+        final long correlationId = nextCorrelationId;
+        final int slot = (int)(correlationId & PENDING_MASK);
+        if (NO_CORRELATION_ID != pendingCorrelationIds[slot])
+        {
+            return false;
+        }
+
+        final int length;
+        switch (command)
+        {
+            case ADD_PARTICIPANT ->
+            {
+                addParticipantEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder)
+                    .participantId(id)
+                    .correlationId(correlationId)
+                    .name(PARTICIPANT_NAME);
+                length = MessageHeaderEncoder.ENCODED_LENGTH + addParticipantEncoder.encodedLength();
+            }
+            case ADD_BID ->
+            {
+                addAuctionBidEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder)
+                    .correlationId(correlationId)
+                    .auctionId(auctionId)
+                    .addedByParticipantId(bidderId)
+                    .price(price);
+                length = MessageHeaderEncoder.ENCODED_LENGTH + addAuctionBidEncoder.encodedLength();
+            }
+            case LIST_AUCTIONS ->
+            {
+                listAuctionsEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder)
+                    .correlationId(correlationId);
+                length = MessageHeaderEncoder.ENCODED_LENGTH + listAuctionsEncoder.encodedLength();
+            }
+            default -> throw new IllegalArgumentException("unknown command " + command);
+        }
+
+        if (aeronCluster.offer(sendBuffer, 0, length) < 0)
+        {
+            return false;
+        }
+
+        final long nowNs = nanoClock.nanoTime();
+        pendingCorrelationIds[slot] = correlationId;
+        pendingIntendedNs[slot] = intendedNs;
+        pendingSentNs[slot] = nowNs;
+        pendingCommands[slot] = command.ordinal();
+        pendingCount++;
+        nextCorrelationId++;
+        lastSentNs = nowNs;
+        return true;
+    }
+
+    /**
+     * Offers a participant used to set up the run, without tracking its latency
+     * @param participantId the participant id
+     * @param name the participant name
+     * @return true if the command was sent
+     */
+    public boolean offerSetupParticipant(final long participantId, final String name)
+    {
+        addParticipantEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder)
+            .participantId(participantId)
+            .correlationId(NO_CORRELATION_ID)
+            .name(name);
+        return aeronCluster.offer(
+            sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + addParticipantEncoder.encodedLength()) > 0;
+    }
+
+    /**
+     * Offers the auction the run bids on, without tracking its latency; see {@link #createdAuctionId()}
+     * @param createdByParticipantId the participant creating the auction
+     * @param startTimeMs the start time of the auction in epoch milliseconds
+     * @param endTimeMs the end time of the auction in epoch milliseconds
+     * @return true if the command was sent
+     */
+    public boolean offerSetupAuction(final long createdByParticipantId, final long startTimeMs, final long endTimeMs)
+    {
+        createAuctionEncoder.wrapAndApplyHeader(sendBuffer, 0, messageHeaderEncoder)
+            .correlationId(NO_CORRELATION_ID)
+            .createdByParticipantId(createdByParticipantId)
+            .startTime(startTimeMs)
+            .endTime(endTimeMs)
+            .name("loadgen auction")
+            .description("auction bid on by the load generator");
+        return aeronCluster.offer(
+            sendBuffer, 0, MessageHeaderEncoder.ENCODED_LENGTH + createAuctionEncoder.encodedLength()) > 0;
+    }
+
+    /**
+     * The id of the auction created by {@link #offerSetupAuction(long, long, long)}
+     * @return the auction id, or -1 until the cluster has replied
+     */
+    public long createdAuctionId()
+    {
+        return createdAuctionId;
+    }
+
+    /**
+     * Polls the egress and keeps the session alive when idle
+     * @param nowNs the current time
+     * @return the number of fragments polled
+     */
+    public int poll(final long nowNs)
+    {
+        final int workCount = aeronCluster.pollEgress();
+        if (nowNs - lastSentNs > KEEP_ALIVE_INTERVAL_NS && aeronCluster.sendKeepAlive())
+        {
+            lastSentNs = nowNs;
+        }
+        return workCount;
+    }
+
+    /**
+     * Counts every command sent before the given time that is still awaiting a reply as timed out, and frees its slot
+     * @param sentBeforeNs commands sent before this time are expired
+     */
+    public void expire(final long sentBeforeNs)
+    {
+        if (0 == pendingCount)
+        {
+            return;
+        }
+
+        for (int slot = 0; slot < PENDING_CAPACITY; slot++)
+        {
+            if (NO_CORRELATION_ID != pendingCorrelationIds[slot] && pendingSentNs[slot] - sentBeforeNs < 0)
+            {
+                latencyRecorder.recordTimeout(LoadCommand.get(pendingCommands[slot]), pendingIntendedNs[slot]);
+                pendingCorrelationIds[slot] = NO_CORRELATION_ID;
+                pendingCount--;
+            }
+        }
+    }
+
+    /**
+     * Number of commands sent that are awaiting a reply
+     * @return the pending count
+     */
+    public int pendingCount()
+    {
+        return pendingCount;
+    }
+
+    @Override
+    public void onMessage(
+        final long clusterSessionId,
+        final long timestamp,
+        final DirectBuffer buffer,
+        final int offset,
+        final int length,
+        final Header header)
+    {
+        if (length < MessageHeaderDecoder.ENCODED_LENGTH)
+        {
+            return;
+        }
+
+        messageHeaderDecoder.wrap(buffer, offset);
+        final int templateId = messageHeaderDecoder.templateId();
+        switch (templateId)
+        {
+            case AddParticipantCommandResultDecoder.TEMPLATE_ID ->
+            {
+                addParticipantResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                onReply(addParticipantResultDecoder.correlationId());
+            }
+            case AddAuctionBidCommandResultDecoder.TEMPLATE_ID ->
+            {
+                addAuctionBidResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                onReply(addAuctionBidResultDecoder.correlationId());
+            }
+            case AuctionListDecoder.TEMPLATE_ID ->
+            {
+                auctionListDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                onReply(auctionListDecoder.correlationId());
+            }
+            case CreateAuctionCommandResultDecoder.TEMPLATE_ID ->
+            {
+                createAuctionResultDecoder.wrapAndApplyHeader(buffer, offset, messageHeaderDecoder);
+                if (NO_CORRELATION_ID == createAuctionResultDecoder.correlationId())
+                {
+                    if (AddAuctionResult.SUCCESS == createAuctionResultDecoder.result())
+                    {
+                        createdAuctionId = createAuctionResultDecoder.auctionId();
+                    }
+                    else
+                    {
+                        LOGGER.error("Failed to create the auction to bid on: {}", createAuctionResultDecoder.result());
+                    }
+                }
+            }
+            default ->
+            {
+                // auction events are broadcast to every session and are not replies to the load
+            }
+        }
+    }
+
+    @Override
+    public void onSessionEvent(
+        final long correlationId,
+        final long clusterSessionId,
+        final long leadershipTermId,
+        final int leaderMemberId,
+        final EventCode code,
+        final String detail)
+    {
+        if (EventCode.ERROR == code)
+        {
+            LOGGER.warn("Cluster session error: {}", detail);
+        }
+    }
+
+    private void onReply(final long correlationId)
+    {
+        final int slot = (int)(correlationId & PENDING_MASK);
+        if (correlationId < 0 || pendingCorrelationIds[slot] != correlationId)
+        {
+            return;
+        }
+
+        final long nowNs = nanoClock.nanoTime();
+        latencyRecorder.recordReply(
+            LoadCommand.get(pendingCommands[slot]), pendingIntendedNs[slot], pendingSentNs[slot], nowNs);
+        pendingCorrelationIds[slot] = NO_CORRELATION_ID;
+        pendingCount--;
+    }
+}
@@ -24,10 +24,13 @@ import io.aeron.cluster.ClusterBackup;
 import io.aeron.cluster.ClusterStandby;
 import io.aeron.cluster.service.ClusteredServiceContainer;
 import io.aeron.driver.MediaDriver;
+import io.aeron.driver.ThreadingMode;
 import io.aeron.samples.cluster.ClusterConfig;
 import io.aeron.samples.infra.AppClusteredService;
+import org.agrona.concurrent.IdleStrategy;
 import org.agrona.concurrent.NoOpLock;
 import org.agrona.concurrent.ShutdownSignalBarrier;
+import org.agrona.concurrent.SleepingMillisIdleStrategy;
 import org.agrona.concurrent.SystemEpochClock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +52,10 @@ public class ClusterStandbyApp
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClusterStandbyApp.class);
     public static final String DEFAULT_STANDBY_MEMBER_ID = "4";
+    private static final int LOW_FOOTPRINT_TERM_LENGTH = 64 * 1024;
+    private static final int LOW_FOOTPRINT_MTU_LENGTH = 1408;
+    private static final int LOW_FOOTPRINT_SEGMENT_FILE_LENGTH = 16 * 1024 * 1024;
+    private static final long LOW_FOOTPRINT_IDLE_SLEEP_MS = 1;
 
     /**
      * The main method.
@@ -63,7 +70,10 @@ public class ClusterStandbyApp
         final int standbyMemberId = getMemberId();
         final int basePort = getBasePort();
         final File baseDir = getBaseDir(standbyMemberId);
+        final boolean lowFootprint = useLowFootprint();
+        final boolean warmRestart = useWarmRestart();
 
+        // The Aeron directory only holds the media driver's buffers, so is deleted even on a warm restart.
         final MediaDriver.Context mediaDriverContext = new MediaDriver.Context().dirDeleteOnStart(true);
         final String aeronDirectoryName = mediaDriverContext.aeronDirectoryName();
 
@@ -88,6 +98,11 @@ public class ClusterStandbyApp
             .recordingEventsEnabled(false)
             .threadingMode(ArchiveThreadingMode.SHARED);
 
+        if (lowFootprint)
+        {
+            applyLowFootprint(mediaDriverContext, archiveContext);
+        }
+
         final AeronArchive.Context aeronArchiveContext = new AeronArchive.Context()
             .lock(NoOpLock.INSTANCE)
             .controlRequestChannel(archiveContext.localControlChannel())
@@ -112,7 +127,7 @@ public class ClusterStandbyApp
             .sourceType(ClusterBackup.SourceType.FOLLOWER) // What kind of node(s) to connect to.
             .standbySnapshotEnabled(true)
             .standbySnapshotNotificationsEnabled(true)
-            .deleteDirOnStart(true);
+            .deleteDirOnStart(!warmRestart);                       // Keep the recording log and its snapshots.
 
         final ClusteredServiceContainer.Context clusteredServiceContext = new ClusteredServiceContainer.Context()
             .aeronDirectoryName(aeronDirectoryName)
@@ -120,9 +135,15 @@ public class ClusterStandbyApp
             .clusterDir(new File(baseDir, ClusterConfig.CLUSTER_SUB_DIR))
             .clusteredService(new AppClusteredService())
             .serviceId(0);
+        if (lowFootprint)
+        {
+            clusteredServiceContext.idleStrategySupplier(ClusterStandbyApp::lowFootprintIdleStrategy);
+        }
 
         LOGGER.info("Standby Directory: {} ", clusterStandbyContext.standbyDirectoryName());
         LOGGER.info("Archive Directory: {} ", archiveContext.archiveDir());
+        LOGGER.info("Low footprint: {}", lowFootprint);
+        LOGGER.info("Warm restart: {}", warmRestart);
         LOGGER.info("Connecting to cluster: {}", clusterConsensusEndpoints);
 
         try (
@@ -136,6 +157,28 @@ public class ClusterStandbyApp
         }
     }
 
+    /**
+     * Runs the media driver without threads of its own, invoked by the shared archive thread, with small buffers.
+     * Images take the term length of the cluster's publications, so are mapped sparse rather than pre-faulted.
+     * Recordings still use segments of at least the term length of the recorded stream.
+     *
+     * @param mediaDriverContext context for the media driver.
+     * @param archiveContext     context for the archive.
+     */
+    private static void applyLowFootprint(
+        final MediaDriver.Context mediaDriverContext, final Archive.Context archiveContext)
+    {
+        mediaDriverContext
+            .threadingMode(ThreadingMode.INVOKER)
+            .publicationTermBufferLength(LOW_FOOTPRINT_TERM_LENGTH)
+            .ipcTermBufferLength(LOW_FOOTPRINT_TERM_LENGTH)
+            .mtuLength(LOW_FOOTPRINT_MTU_LENGTH)
+            .termBufferSparseFile(true);
+        archiveContext
+            .idleStrategySupplier(ClusterStandbyApp::lowFootprintIdleStrategy)
+            .segmentFileLength(LOW_FOOTPRINT_SEGMENT_FILE_LENGTH);
+    }
+
     /**
      * Get the cluster node id
      * @return cluster node id, default 0
@@ -250,6 +293,42 @@ public class ClusterStandbyApp
         }
     }
 
+    /**
+     * Use the low footprint mode, with fewer threads that sleep when idle and smaller buffers
+     *
+     * @return true if low footprint mode should be used
+     */
+    private static boolean useLowFootprint()
+    {
+        String lowFootprint = System.getenv("LOW_FOOTPRINT");
+        if (null == lowFootprint || lowFootprint.isEmpty())
+        {
+            lowFootprint = System.getProperty("low.footprint", "false");
+        }
+        return Boolean.parseBoolean(lowFootprint);
+    }
+
+    /**
+     * Restart from the standby directory, archive and latest standby snapshot of an earlier run, rather than
+     * retrieving a snapshot and replaying the log from the cluster again
+     *
+     * @return true if the standby should keep its standby directory on start
+     */
+    private static boolean useWarmRestart()
+    {
+        String warmRestart = System.getenv("STANDBY_WARM_RESTART");
+        if (null == warmRestart || warmRestart.isEmpty())
+        {
+            warmRestart = System.getProperty("standby.warm.restart", "false");
+        }
+        return Boolean.parseBoolean(warmRestart);
+    }
+
+    private static IdleStrategy lowFootprintIdleStrategy()
+    {
+        return new SleepingMillisIdleStrategy(LOW_FOOTPRINT_IDLE_SLEEP_MS);
+    }
+
     /**
      * Apply DNS delay
      *